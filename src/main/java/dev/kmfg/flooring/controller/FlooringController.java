@@ -52,6 +52,9 @@ public class FlooringController {
                 case EXPORT_ALL_ORDERS:
                     exportAllOrders();
                     break;
+                case FIND_CUSTOMER_ORDERS:
+                    findCustomerOrders();
+                    break;
                 default:
                     view.displayUnimplementedMenuSelection(userSelection);
                     break;
@@ -59,7 +62,9 @@ public class FlooringController {
         } catch(FlooringDataPersistenceException | OrderDataValidationException | StateTaxNotFoundException e) {
             view.displayError(e);
         } catch(OrderNotFoundException orderNotFoundException) {
-            if(orderNotFoundException.areThereAnyOrdersInDate()) {
+            if(orderNotFoundException.getOrderDate() == null) {
+                view.displayOrderNotFound(orderNotFoundException.getOrderNumber());
+            } else if(orderNotFoundException.areThereAnyOrdersInDate()) {
                 view.displayOrderNotFound(
                         orderNotFoundException.getOrderDate(),
                         orderNotFoundException.getOrderNumber()
@@ -97,11 +102,14 @@ public class FlooringController {
         view.displayFoundOrders(foundOrders, dateToFindOrders);
     }
 
+    private void findCustomerOrders() throws FlooringDataPersistenceException {
+        final String customerName = view.displayFindCustomerOrders();
+        final List<Order> foundOrders = service.getOrdersByCustomerName(customerName);
+        view.displayFoundCustomerOrders(foundOrders, customerName);
+    }
+
     private void editOrder() throws FlooringDataPersistenceException, OrderNotFoundException, StateTaxNotFoundException, OrderDataValidationException {
-        // get the order date and number
-        Order orderToEdit = view.displayFindOrder();
-        // reassign the order with a real one
-        orderToEdit = service.getOrder(orderToEdit.getOrderDate(), orderToEdit.getOrderNumber());
+        final Order orderToEdit = service.getOrder(view.displayFindOrder());
 
         final Order editedOrder = view.displayEditOrder(orderToEdit, service.getAllStateTaxes(), service.getAllProducts());
 
@@ -124,10 +132,7 @@ public class FlooringController {
     }
 
     private void removeOrder() throws FlooringDataPersistenceException, OrderNotFoundException, StateTaxNotFoundException {
-        // get the order date and number
-        Order orderToRemove = view.displayFindOrder();
-        // reassign the order with a real one
-        orderToRemove = service.getOrder(orderToRemove.getOrderDate(), orderToRemove.getOrderNumber());
+        final Order orderToRemove = service.getOrder(view.displayFindOrder());
 
         if(view.displayConfirmOrderRemove(orderToRemove)) {
             final Order removedOrder = service.removeOrder(orderToRemove.getOrderDate(), orderToRemove.getOrderNumber());
@@ -0,0 +1,125 @@
+package dev.kmfg.flooring.dao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class AtomicFiles {
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes the entire new content of a file as text.
+     */
+    public interface Content {
+        void writeTo(Writer out) throws IOException;
+    }
+
+    private static Path getTempPath(Path target) {
+        return target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+    }
+
+    private static FileChannel openTemp(Path tempPath) throws IOException {
+        return FileChannel.open(
+                tempPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        );
+    }
+
+    private static void moveOver(Path tempPath, Path target) throws IOException {
+        try {
+            Files.move(tempPath, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch(AtomicMoveNotSupportedException e) {
+            // some file systems cannot rename atomically, a plain replace is the best that can be done there.
+            Files.move(tempPath, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        forceDirectory(target.toAbsolutePath().getParent());
+    }
+
+    private static void deleteTemp(Path tempPath) {
+        try {
+            Files.deleteIfExists(tempPath);
+        } catch(IOException e) {
+            // a stale temp file is overwritten by the next replace anyway.
+        }
+    }
+
+    /**
+     * Replaces the target with the given bytes so a reader sees either the old or the new content, never a mix.
+     * The bytes go to a sibling temp file, are forced to disk, then the temp file is moved over the target.
+     * @param target file to replace, it does not need to exist.
+     * @param bytes the entire new content.
+     * @throws IOException if the content could not be made durable.
+     */
+    public static void replace(Path target, ByteBuffer bytes) throws IOException {
+        final Path tempPath = getTempPath(target);
+
+        try(FileChannel channel = openTemp(tempPath)) {
+            while(bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        } catch(IOException e) {
+            deleteTemp(tempPath);
+            throw e;
+        }
+
+        moveOver(tempPath, target);
+    }
+
+    /**
+     * Same as replacing with bytes, but the content is streamed as UTF-8 text through one buffered channel,
+     *  so it never has to be held in memory whole.
+     * @param target file to replace, it does not need to exist.
+     * @param content writes the entire new content.
+     * @throws IOException if the content could not be made durable.
+     */
+    public static void replace(Path target, Content content) throws IOException {
+        final Path tempPath = getTempPath(target);
+
+        try(FileChannel channel = openTemp(tempPath)) {
+            // not closed, that would close the channel before it is forced
+            final Writer out = new BufferedWriter(
+                    Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), WRITE_BUFFER_SIZE),
+                    WRITE_BUFFER_SIZE
+            );
+            content.writeTo(out);
+            out.flush();
+            channel.force(true);
+        } catch(IOException e) {
+            deleteTemp(tempPath);
+            throw e;
+        }
+
+        moveOver(tempPath, target);
+    }
+
+    /**
+     * Forces a directory entry change (create, rename, delete) to disk.
+     * Not every platform allows opening a directory, so this is best effort.
+     * @param directory to force
+     */
+    public static void forceDirectory(Path directory) {
+        if(directory == null) {
+            return;
+        }
+
+        try(FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch(IOException e) {
+            // the rename itself already happened, the platform just cannot sync directories.
+        }
+    }
+}
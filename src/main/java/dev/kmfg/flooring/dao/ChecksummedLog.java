@@ -0,0 +1,315 @@
+package dev.kmfg.flooring.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * An append only file of text records, one per line, each prefixed with its own CRC32.
+ * Appends are forced to disk before returning, and a torn or corrupt record is detected on read.
+ * Records must not contain line breaks.
+ */
+public class ChecksummedLog {
+    private static final char CHECKSUM_DELIMITER = '|';
+    private static final char RECORD_END = '\n';
+
+    private final Path logPath;
+
+    /**
+     * Where a reader got to in a log, so it can later tell whether the log is unchanged,
+     *  or has only had records appended since, which are then all that needs to be read.
+     */
+    public static class Position {
+        private final Object fileKey;
+        private final long size;
+        private final long lastModifiedMillis;
+        // bytes of intact records read, and the last of them as written, checked again before reading on from there
+        private final long length;
+        private final byte[] lastRecord;
+
+        private Position(BasicFileAttributes attributes, long length, byte[] lastRecord) {
+            this.fileKey = attributes.fileKey();
+            this.size = attributes.size();
+            this.lastModifiedMillis = attributes.lastModifiedTime().toMillis();
+            this.length = length;
+            this.lastRecord = lastRecord;
+        }
+
+        private boolean isSameFile(BasicFileAttributes attributes) {
+            return attributes.size() == size
+                    && attributes.lastModifiedTime().toMillis() == lastModifiedMillis
+                    && Objects.equals(attributes.fileKey(), fileKey);
+        }
+    }
+
+    /**
+     * The records read from a log, and whether every byte of the log was an intact record.
+     */
+    public static class Contents {
+        private final List<String> records;
+        private final boolean intact;
+        private final Position position;
+
+        private Contents(List<String> records, boolean intact, Position position) {
+            this.records = records;
+            this.intact = intact;
+            this.position = position;
+        }
+
+        /**
+         * @return every intact record up to the first bad one, in the order they were appended.
+         */
+        public List<String> getRecords() {
+            return records;
+        }
+
+        /**
+         * @return false if the log ended with a torn record, or had a corrupt record.
+         */
+        public boolean isIntact() {
+            return intact;
+        }
+
+        /**
+         * @return where reading stopped, null if the log does not exist.
+         */
+        public Position getPosition() {
+            return position;
+        }
+    }
+
+    public ChecksummedLog(Path logPath) {
+        this.logPath = logPath;
+    }
+
+    public Path getLogPath() {
+        return logPath;
+    }
+
+    private static long checksum(byte[] bytes, int offset, int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+
+    private static byte[] encode(List<String> records) {
+        final StringBuilder out = new StringBuilder();
+        for(String record : records) {
+            final byte[] recordBytes = record.getBytes(StandardCharsets.UTF_8);
+            out.append(Long.toHexString(checksum(recordBytes, 0, recordBytes.length)))
+                    .append(CHECKSUM_DELIMITER)
+                    .append(record)
+                    .append(RECORD_END);
+        }
+        return out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the bytes after the last line break, which is the last record of encoded records.
+     */
+    private static byte[] lastRecordOf(byte[] encoded) {
+        int lineStart = encoded.length - 1;
+        while(lineStart > 0 && encoded[lineStart - 1] != RECORD_END) {
+            lineStart--;
+        }
+        return Arrays.copyOfRange(encoded, Math.max(lineStart, 0), encoded.length);
+    }
+
+    private BasicFileAttributes readAttributes() throws IOException {
+        try {
+            return Files.readAttributes(logPath, BasicFileAttributes.class);
+        } catch(NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    public boolean exists() {
+        return Files.exists(logPath);
+    }
+
+    /**
+     * @return size of the log in bytes, 0 if it does not exist.
+     * @throws IOException if the size cannot be read.
+     */
+    public long size() throws IOException {
+        try {
+            return Files.size(logPath);
+        } catch(NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Parses the records in bytes from an offset, stopping at the first torn or corrupt record.
+     * @param lastRecord the record line just before the offset, or empty
+     * @param startOfBytes offset of bytes[0] in the log
+     */
+    private static Contents parse(BasicFileAttributes attributes, byte[] bytes, int offset, byte[] lastRecord, long startOfBytes) {
+        final List<String> records = new ArrayList<>();
+        int lineStart = offset;
+        int lastLineStart = -1;
+        boolean intact = true;
+        while(lineStart < bytes.length) {
+            int lineEnd = lineStart;
+            int delimiter = -1;
+            while(lineEnd < bytes.length && bytes[lineEnd] != RECORD_END) {
+                if(delimiter < 0 && bytes[lineEnd] == CHECKSUM_DELIMITER) {
+                    delimiter = lineEnd;
+                }
+                lineEnd++;
+            }
+            // no line end means the last append was torn
+            if(lineEnd == bytes.length || delimiter < 0 || !hasChecksum(bytes, lineStart, delimiter, lineEnd)) {
+                intact = false;
+                break;
+            }
+
+            records.add(new String(bytes, delimiter + 1, lineEnd - delimiter - 1, StandardCharsets.UTF_8));
+            lastLineStart = lineStart;
+            lineStart = lineEnd + 1;
+        }
+
+        final byte[] readTo = lastLineStart < 0 ? lastRecord : Arrays.copyOfRange(bytes, lastLineStart, lineStart);
+        return new Contents(records, intact, new Position(attributes, startOfBytes + lineStart, readTo));
+    }
+
+    private static boolean hasChecksum(byte[] bytes, int lineStart, int delimiter, int lineEnd) {
+        try {
+            final long expected = Long.parseLong(new String(bytes, lineStart, delimiter - lineStart, StandardCharsets.US_ASCII), 16);
+            return expected == checksum(bytes, delimiter + 1, lineEnd - delimiter - 1);
+        } catch(NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static byte[] readFrom(FileChannel channel, long offset) throws IOException {
+        final long remaining = channel.size() - offset;
+        if(remaining > Integer.MAX_VALUE) {
+            throw new IOException("Log is too large to read.");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(remaining, 0));
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer, offset + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Reads every record. Reading stops at the first torn or corrupt record.
+     * @return the records, empty and intact if the log does not exist.
+     * @throws IOException if the log exists but cannot be read.
+     */
+    public Contents read() throws IOException {
+        try(FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            final BasicFileAttributes attributes = Files.readAttributes(logPath, BasicFileAttributes.class);
+            return parse(attributes, readFrom(channel, 0), 0, new byte[0], 0);
+        } catch(NoSuchFileException e) {
+            return new Contents(Collections.emptyList(), true, null);
+        }
+    }
+
+    /**
+     * Checks the log is still exactly as it was when read to the given position.
+     * Only meaningful while every writer of the log is shut out, such as under a process lock.
+     * @param position from an earlier read, append or rewrite, may be null
+     * @throws IOException if the log cannot be checked.
+     */
+    public boolean isAt(Position position) throws IOException {
+        final BasicFileAttributes attributes = readAttributes();
+        return position != null && attributes != null && position.isSameFile(attributes);
+    }
+
+    /**
+     * Reads only the records appended since a position.
+     * This is only possible if the log is the same file, no shorter, and still has the record last read
+     *  at the same place, a log that was replaced or rewritten in place must be read again from the start.
+     * @param position from an earlier read, append or rewrite
+     * @return the appended records, or null if the log must be read again from the start.
+     * @throws IOException if the log cannot be read.
+     */
+    public Contents readAppended(Position position) throws IOException {
+        if(position == null || position.fileKey == null) {
+            return null; // without a file key a replaced log cannot be told apart from an appended one
+        }
+
+        try(FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            final BasicFileAttributes attributes = Files.readAttributes(logPath, BasicFileAttributes.class);
+            if(!position.fileKey.equals(attributes.fileKey()) || attributes.size() < position.length) {
+                return null;
+            }
+
+            final long anchor = position.length - position.lastRecord.length;
+            final byte[] bytes = readFrom(channel, anchor);
+            if(bytes.length < position.lastRecord.length
+                    || !Arrays.equals(bytes, 0, position.lastRecord.length, position.lastRecord, 0, position.lastRecord.length)) {
+                return null;
+            }
+            return parse(attributes, bytes, position.lastRecord.length, position.lastRecord, anchor);
+        } catch(NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Appends the records in a single write, and forces them to disk.
+     * @param records to append
+     * @return the position after the records, assuming the log was intact before them, null if there were none.
+     * @throws IOException if the records could not be made durable.
+     */
+    public Position append(List<String> records) throws IOException {
+        if(records.isEmpty()) {
+            return null;
+        }
+
+        final byte[] encoded = encode(records);
+        final ByteBuffer bytes = ByteBuffer.wrap(encoded);
+        final long length;
+        try(FileChannel channel = FileChannel.open(
+                logPath,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND
+        )) {
+            while(bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+            length = channel.size();
+        }
+        return new Position(Files.readAttributes(logPath, BasicFileAttributes.class), length, lastRecordOf(encoded));
+    }
+
+    /**
+     * Atomically replaces the whole log with the given records, used to compact it.
+     * @param records the new content of the log
+     * @return the position at the end of the new log.
+     * @throws IOException if the log could not be replaced.
+     */
+    public Position rewrite(List<String> records) throws IOException {
+        final byte[] encoded = encode(records);
+        AtomicFiles.replace(logPath, ByteBuffer.wrap(encoded));
+        return new Position(Files.readAttributes(logPath, BasicFileAttributes.class), encoded.length, lastRecordOf(encoded));
+    }
+
+    /**
+     * Removes the log.
+     * @throws IOException if it exists but could not be removed.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(logPath);
+    }
+}
@@ -0,0 +1,146 @@
+package dev.kmfg.flooring.dao;
+
+/**
+ * Int keys, such as order numbers, in an open addressing table with linear probing,
+ *  and 0 as the empty key since 0 is never an order number.
+ * Only the keys are kept here. A subclass keeps its values in its own arrays by slot, so nothing is boxed,
+ *  and is told whenever the table moves a key to another slot.
+ */
+public abstract class IntKeyTable {
+    protected static final int EMPTY = 0;
+    // grown once more than half of the slots are used
+    private static final int MAX_LOAD_DIVISOR = 2;
+
+    private int[] keys;
+    private int size;
+
+    /**
+     * @param capacity a power of two, the subclass allocates its values with the same capacity
+     */
+    protected IntKeyTable(int capacity) {
+        reset(capacity);
+    }
+
+    private static int hash(int key) {
+        // order numbers are sequential, so the bits are mixed before they pick a slot
+        final int mixed = key * 0x9E3779B9;
+        return mixed ^ (mixed >>> 16);
+    }
+
+    /**
+     * Drops every key, the subclass drops its values itself.
+     * @param capacity a power of two
+     */
+    protected final void reset(int capacity) {
+        keys = new int[capacity];
+        size = 0;
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot it would be put in.
+     */
+    protected final int slotOf(int key) {
+        final int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    protected final boolean isUsed(int slot) {
+        return keys[slot] != EMPTY;
+    }
+
+    /**
+     * Finds the slot of a key, adding the key if it is not there yet, which may grow the table first.
+     * @param key anything but 0
+     * @return the slot of the key.
+     */
+    protected final int insert(int key) {
+        if(key == EMPTY) {
+            throw new IllegalArgumentException("Key 0 cannot be stored.");
+        }
+
+        int slot = slotOf(key);
+        if(keys[slot] == EMPTY) {
+            if((size + 1) * MAX_LOAD_DIVISOR > keys.length) {
+                grow();
+                slot = slotOf(key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes a key, shifting back any key that probed past it so no lookup is cut short.
+     * @return false if the key was not there.
+     */
+    protected final boolean delete(int key) {
+        final int mask = keys.length - 1;
+        int slot = slotOf(key);
+        if(keys[slot] == EMPTY) {
+            return false;
+        }
+
+        int next = (slot + 1) & mask;
+        while(keys[next] != EMPTY) {
+            final int home = hash(keys[next]) & mask;
+            // the key at next may fill the gap only if its home is not between the gap and next
+            final boolean canMove = slot <= next
+                    ? home <= slot || home > next
+                    : home <= slot && home > next;
+            if(canMove) {
+                keys[slot] = keys[next];
+                moveValue(next, slot);
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[slot] = EMPTY;
+        clearValue(slot);
+        size--;
+        return true;
+    }
+
+    private void grow() {
+        final int[] oldKeys = keys;
+        keys = new int[oldKeys.length * 2];
+        final int[] newSlots = new int[oldKeys.length];
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] == EMPTY) {
+                newSlots[i] = -1;
+            } else {
+                final int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                newSlots[i] = slot;
+            }
+        }
+        resizeValues(newSlots, keys.length);
+    }
+
+    /**
+     * @return number of keys.
+     */
+    protected final int count() {
+        return size;
+    }
+
+    /**
+     * The key in one slot moved to another, empty, slot.
+     */
+    protected abstract void moveValue(int fromSlot, int toSlot);
+
+    /**
+     * The key in a slot was removed.
+     */
+    protected abstract void clearValue(int slot);
+
+    /**
+     * The table grew, the values should be moved into new arrays of the given capacity.
+     * @param newSlots the new slot of the key in each old slot, -1 for an old slot that was empty
+     */
+    protected abstract void resizeValues(int[] newSlots, int capacity);
+}
@@ -0,0 +1,135 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.model.Money;
+import dev.kmfg.flooring.model.Product;
+import dev.kmfg.flooring.model.Rate;
+import dev.kmfg.flooring.model.StateTax;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one shared Product per distinct (type, cost, labor cost), and one shared StateTax per distinct
+ *  (abbreviation, name, rate), so the orders read by every dao point at a few dozen instances instead of two per order,
+ *  and comparing two of them is usually an identity check.
+ * Both are immutable, so sharing them is safe. Lookups are by the type or abbreviation, then a scan of its few variants,
+ *  so a lookup that finds its instance makes no objects.
+ * Registration stops at a fixed number of keys and variants per key, past that a new instance is returned unshared,
+ *  so damaged or unusual data cannot grow the registry without bound.
+ */
+public class ModelFlyweights {
+    private static final int MAX_KEYS = 1024;
+    private static final int MAX_VARIANTS_PER_KEY = 64;
+
+    // product type to every registered product of that type
+    private static final ConcurrentHashMap<String, Product[]> products = new ConcurrentHashMap<>();
+    // state abbreviation to every registered state tax of that state
+    private static final ConcurrentHashMap<String, StateTax[]> stateTaxes = new ConcurrentHashMap<>();
+
+    private ModelFlyweights() {
+    }
+
+    private static Product find(Product[] variants, long costPerSqftCents, long laborCostPerSqftCents) {
+        if(variants != null) {
+            for(Product variant : variants) {
+                if(variant.getCostPerSqft().getCents() == costPerSqftCents
+                        && variant.getLaborCostPerSqft().getCents() == laborCostPerSqftCents) {
+                    return variant;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static StateTax find(StateTax[] variants, String stateName, long taxRateHundredthsOfPercent) {
+        if(variants != null) {
+            for(StateTax variant : variants) {
+                if(variant.getTaxRate().getHundredthsOfPercent() == taxRateHundredthsOfPercent
+                        && variant.getStateName().equals(stateName)) {
+                    return variant;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static <T> T[] append(T[] variants, T added) {
+        final T[] appended = Arrays.copyOf(variants, variants.length + 1);
+        appended[variants.length] = added;
+        return appended;
+    }
+
+    /**
+     * @return the shared product with these values, registering a new one if there is none.
+     */
+    public static Product product(String productType, long costPerSqftCents, long laborCostPerSqftCents) {
+        final Product found = find(products.get(productType), costPerSqftCents, laborCostPerSqftCents);
+        if(found != null) {
+            return found;
+        }
+
+        final Product created = new Product(productType, Money.ofCents(costPerSqftCents), Money.ofCents(laborCostPerSqftCents));
+        if(products.size() >= MAX_KEYS && !products.containsKey(productType)) {
+            return created;
+        }
+        final Product[] variants = products.compute(productType, (type, registered) -> {
+            if(registered == null) {
+                return new Product[] {created};
+            }
+            // another thread may have registered the same values since the lookup
+            if(find(registered, costPerSqftCents, laborCostPerSqftCents) != null || registered.length >= MAX_VARIANTS_PER_KEY) {
+                return registered;
+            }
+            return append(registered, created);
+        });
+        final Product shared = find(variants, costPerSqftCents, laborCostPerSqftCents);
+        return shared == null ? created : shared;
+    }
+
+    /**
+     * @return the shared product equal to the given one, which is registered if there is none.
+     */
+    public static Product product(Product product) {
+        if(product.getProductType() == null || product.getCostPerSqft() == null || product.getLaborCostPerSqft() == null) {
+            return product;
+        }
+        return product(product.getProductType(), product.getCostPerSqft().getCents(), product.getLaborCostPerSqft().getCents());
+    }
+
+    /**
+     * @return the shared state tax with these values, registering a new one if there is none.
+     */
+    public static StateTax stateTax(String stateAbbreviation, String stateName, long taxRateHundredthsOfPercent) {
+        final StateTax found = find(stateTaxes.get(stateAbbreviation), stateName, taxRateHundredthsOfPercent);
+        if(found != null) {
+            return found;
+        }
+
+        final StateTax created = new StateTax(stateAbbreviation, stateName, Rate.ofHundredthsOfPercent(taxRateHundredthsOfPercent));
+        if(stateTaxes.size() >= MAX_KEYS && !stateTaxes.containsKey(stateAbbreviation)) {
+            return created;
+        }
+        final StateTax[] variants = stateTaxes.compute(stateAbbreviation, (abbreviation, registered) -> {
+            if(registered == null) {
+                return new StateTax[] {created};
+            }
+            // another thread may have registered the same values since the lookup
+            if(find(registered, stateName, taxRateHundredthsOfPercent) != null || registered.length >= MAX_VARIANTS_PER_KEY) {
+                return registered;
+            }
+            return append(registered, created);
+        });
+        final StateTax shared = find(variants, stateName, taxRateHundredthsOfPercent);
+        return shared == null ? created : shared;
+    }
+
+    /**
+     * @return the shared state tax equal to the given one, which is registered if there is none.
+     */
+    public static StateTax stateTax(StateTax stateTax) {
+        if(stateTax.getStateAbbreviation() == null || stateTax.getStateName() == null || stateTax.getTaxRate() == null) {
+            return stateTax;
+        }
+        return stateTax(stateTax.getStateAbbreviation(), stateTax.getStateName(), stateTax.getTaxRate().getHundredthsOfPercent());
+    }
+}
@@ -0,0 +1,547 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Catalog of the order files in the orders directory, kept up to date by the order dao on every write.
+ * Answers which dates have orders, how many orders exist, and which dates may hold an order number,
+ *  without listing the directory or opening any order file.
+ * It is persisted as a ChecksummedLog, and rebuilt from the directory when that log is missing or corrupt.
+ * When other processes share the directory, the log is only read or written under the catalog's process lock,
+ *  and what is held in memory is checked against the log, reading whatever they appended, before it is used.
+ */
+public class OrderCatalog {
+    // used to populate or read orders in a date
+    private static final String FILE_FORMAT = "Orders_%02d%02d%04d.txt";
+    // used to check if a given file or path is an order likely generated by the application
+    private static final String FILE_FORMAT_REGEX = "^Orders_\\d{2}\\d{2}\\d{4}\\.txt";
+    private static final DateTimeFormatter INT_DATE_FORMATTER = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private static final String DELIMITER = ",";
+    private static final String PUT_RECORD = "P";
+    private static final String REMOVE_RECORD = "D";
+    private static final int PUT_RECORD_PARTS = 7;
+    private static final int REMOVE_RECORD_PARTS = 2;
+    // the log is compacted once it holds this many records, and twice as many records as entries
+    private static final int MIN_RECORDS_TO_COMPACT = 64;
+
+    private final Path ordersDirectory;
+    private final ChecksummedLog log;
+    // null if no other process shares the orders directory
+    private final OrderFileLocks processLocks;
+
+    private TreeMap<LocalDate, Entry> entries;
+    private int recordsInLog;
+    // how far the entries have read the log
+    private ChecksummedLog.Position position;
+
+    /**
+     * What the catalog knows about a single order file.
+     */
+    public static class Entry {
+        private final LocalDate orderDate;
+        private final int rowCount, minOrderNumber, maxOrderNumber;
+        private final long byteSize, checksum;
+
+        public Entry(LocalDate orderDate, int rowCount, int minOrderNumber, int maxOrderNumber, long byteSize, long checksum) {
+            this.orderDate = orderDate;
+            this.rowCount = rowCount;
+            this.minOrderNumber = minOrderNumber;
+            this.maxOrderNumber = maxOrderNumber;
+            this.byteSize = byteSize;
+            this.checksum = checksum;
+        }
+
+        public LocalDate getOrderDate() {
+            return orderDate;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        public int getMinOrderNumber() {
+            return minOrderNumber;
+        }
+
+        public int getMaxOrderNumber() {
+            return maxOrderNumber;
+        }
+
+        public long getByteSize() {
+            return byteSize;
+        }
+
+        /**
+         * @return CRC32 of the entire order file.
+         */
+        public long getChecksum() {
+            return checksum;
+        }
+    }
+
+    public OrderCatalog(Path ordersDirectory, Path catalogPath) {
+        this(ordersDirectory, catalogPath, null);
+    }
+
+    /**
+     * @param ordersDirectory holding the order files
+     * @param catalogPath of the catalog log
+     * @param processLocks locks shared with other processes using the same orders directory, null if there are none
+     */
+    public OrderCatalog(Path ordersDirectory, Path catalogPath, OrderFileLocks processLocks) {
+        this.ordersDirectory = ordersDirectory;
+        this.log = new ChecksummedLog(catalogPath);
+        this.processLocks = processLocks;
+    }
+
+    /**
+     * @param orderDate of the orders
+     * @return name of the file holding the orders for the date, without a path.
+     */
+    public static String getFileName(LocalDate orderDate) {
+        return String.format(
+                FILE_FORMAT,
+                orderDate.getMonthValue(),
+                orderDate.getDayOfMonth(),
+                orderDate.getYear()
+        );
+    }
+
+    /**
+     * @param fileName without a path
+     * @return the date the file holds orders for, or null if it is not an order file.
+     */
+    public static LocalDate parseFileName(String fileName) {
+        if(!fileName.matches(FILE_FORMAT_REGEX)) {
+            return null;
+        }
+
+        final String dateStr = fileName.substring(fileName.indexOf('_') + 1, fileName.indexOf('.'));
+        try {
+            return LocalDate.parse(dateStr, INT_DATE_FORMATTER);
+        } catch(DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Builds an entry by reading the order file. Only the order number of each row is parsed.
+     * @param orderDate of the file
+     * @param orderFile to read
+     * @return the entry, or null if the file does not exist.
+     * @throws FlooringDataPersistenceException if the file cannot be read or has a malformed order number.
+     */
+    public static Entry scan(LocalDate orderDate, Path orderFile) throws FlooringDataPersistenceException {
+        final byte[] content;
+        try {
+            content = Files.readAllBytes(orderFile);
+        } catch(NoSuchFileException e) {
+            return null;
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format("Could not read %s to catalog it.", orderFile),
+                    e
+            );
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+
+        int rowCount = 0;
+        int minOrderNumber = Integer.MAX_VALUE;
+        int maxOrderNumber = 0;
+        boolean isHeader = true;
+        int lineStart = 0;
+        while(lineStart < content.length) {
+            int lineEnd = lineStart;
+            while(lineEnd < content.length && content[lineEnd] != '\n') {
+                lineEnd++;
+            }
+
+            if(isHeader) {
+                isHeader = false;
+            } else if(lineEnd > lineStart && !(lineEnd == lineStart + 1 && content[lineStart] == '\r')) {
+                int orderNumber = 0;
+                int i = lineStart;
+                for(; i < lineEnd && content[i] != ','; i++) {
+                    if(content[i] < '0' || content[i] > '9') {
+                        throw new FlooringDataPersistenceException(
+                                String.format("Malformed order number while cataloging %s.", orderFile)
+                        );
+                    }
+                    orderNumber = orderNumber * 10 + (content[i] - '0');
+                }
+                rowCount++;
+                minOrderNumber = Math.min(minOrderNumber, orderNumber);
+                maxOrderNumber = Math.max(maxOrderNumber, orderNumber);
+            }
+
+            lineStart = lineEnd + 1;
+        }
+
+        return new Entry(
+                orderDate,
+                rowCount,
+                rowCount == 0 ? 0 : minOrderNumber,
+                maxOrderNumber,
+                content.length,
+                crc.getValue()
+        );
+    }
+
+    private static String marshallEntry(Entry entry) {
+        return String.join(DELIMITER,
+                PUT_RECORD,
+                INT_DATE_FORMATTER.format(entry.getOrderDate()),
+                Integer.toString(entry.getRowCount()),
+                Integer.toString(entry.getMinOrderNumber()),
+                Integer.toString(entry.getMaxOrderNumber()),
+                Long.toString(entry.getByteSize()),
+                Long.toHexString(entry.getChecksum())
+        );
+    }
+
+    /**
+     * Applies a single log record to the entries.
+     * @return false if the record is malformed.
+     */
+    private boolean applyRecord(String record) {
+        final String[] parts = record.split(DELIMITER);
+        try {
+            if(parts.length == PUT_RECORD_PARTS && parts[0].equals(PUT_RECORD)) {
+                final LocalDate orderDate = LocalDate.parse(parts[1], INT_DATE_FORMATTER);
+                entries.put(orderDate, new Entry(
+                        orderDate,
+                        Integer.parseInt(parts[2]),
+                        Integer.parseInt(parts[3]),
+                        Integer.parseInt(parts[4]),
+                        Long.parseLong(parts[5]),
+                        Long.parseLong(parts[6], 16)
+                ));
+                return true;
+            } else if(parts.length == REMOVE_RECORD_PARTS && parts[0].equals(REMOVE_RECORD)) {
+                entries.remove(LocalDate.parse(parts[1], INT_DATE_FORMATTER));
+                return true;
+            }
+        } catch(NumberFormatException | DateTimeParseException e) {
+            return false;
+        }
+        return false;
+    }
+
+    /**
+     * @return false if a record is malformed.
+     */
+    private boolean applyRecords(List<String> records) {
+        for(String record : records) {
+            if(!applyRecord(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Brings the entries in line with the log, the catalog's process lock must be held.
+     * @param canRebuild true if the exclusive lock is held, so a missing or damaged log can be rebuilt
+     * @return false if the log has to be rebuilt, which needs the exclusive lock.
+     */
+    private boolean refresh(boolean canRebuild) throws FlooringDataPersistenceException {
+        try {
+            // only another process can change the log behind this one's back
+            if(entries != null && (processLocks == null || log.isAt(position))) {
+                return true;
+            }
+
+            if(entries != null) {
+                final ChecksummedLog.Contents appended = log.readAppended(position);
+                if(appended != null && appended.isIntact() && applyRecords(appended.getRecords())) {
+                    recordsInLog += appended.getRecords().size();
+                    position = appended.getPosition();
+                    return true;
+                }
+            }
+
+            final ChecksummedLog.Contents contents = log.read();
+            entries = new TreeMap<>();
+            final boolean wellFormed = contents.isIntact() && applyRecords(contents.getRecords());
+            recordsInLog = contents.getRecords().size();
+            position = contents.getPosition();
+            if(position != null && wellFormed) {
+                return true;
+            }
+        } catch(IOException e) {
+            entries = null;
+            throw new FlooringDataPersistenceException("Could not read the order catalog.", e);
+        }
+
+        // a missing or damaged catalog can no longer be trusted, so it is rebuilt from the directory
+        entries = null;
+        if(!canRebuild) {
+            return false;
+        }
+        entries = new TreeMap<>();
+        rebuild();
+        return true;
+    }
+
+    private OrderFileLocks.Held lock(boolean exclusive) throws FlooringDataPersistenceException {
+        return processLocks == null ? null : processLocks.lockCatalog(exclusive);
+    }
+
+    private static void release(OrderFileLocks.Held held) {
+        if(held != null) {
+            held.release();
+        }
+    }
+
+    /**
+     * Takes the catalog's process lock, and brings the entries in line with the log under it.
+     * @param exclusive true to change the catalog
+     * @return the held lock to release, null if no other process shares the directory.
+     */
+    private OrderFileLocks.Held lockAndRefresh(boolean exclusive) throws FlooringDataPersistenceException {
+        OrderFileLocks.Held held = lock(exclusive);
+        try {
+            if(!refresh(exclusive)) {
+                // rebuilding writes the log, which a shared lock does not allow
+                release(held);
+                held = null;
+                held = lock(true);
+                refresh(true);
+            }
+            return held;
+        } catch(FlooringDataPersistenceException | RuntimeException e) {
+            release(held);
+            throw e;
+        }
+    }
+
+    private void appendRecord(String record) throws FlooringDataPersistenceException {
+        try {
+            if(recordsInLog + 1 >= MIN_RECORDS_TO_COMPACT && recordsInLog + 1 > entries.size() * 2) {
+                compact();
+            } else {
+                position = log.append(Collections.singletonList(record));
+                recordsInLog++;
+            }
+        } catch(IOException e) {
+            // the log may now end in a torn record, so it is read again before the next use
+            entries = null;
+            throw new FlooringDataPersistenceException("Could not persist the order catalog.", e);
+        }
+    }
+
+    /**
+     * Rewrites the log so it only holds one record per entry.
+     * The entries must have just been brought in line with the log under the exclusive lock,
+     *  otherwise the entries of other processes would be lost.
+     */
+    private void compact() throws IOException {
+        final List<String> records = entries.values().stream()
+                .map(OrderCatalog::marshallEntry)
+                .collect(Collectors.toList());
+        position = log.rewrite(records);
+        recordsInLog = records.size();
+    }
+
+    /**
+     * Rebuild mode. Lists the orders directory and brings the catalog in line with it.
+     * Entries whose file no longer exists are dropped, and every order file is rescanned.
+     * @throws FlooringDataPersistenceException if the directory or an order file cannot be read.
+     */
+    public synchronized void reconcile() throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(true);
+        try {
+            rebuild();
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * Rebuilds the entries from the directory, the exclusive lock must be held.
+     */
+    private void rebuild() throws FlooringDataPersistenceException {
+        final Map<LocalDate, Path> filesOnDisk = new HashMap<>();
+        if(Files.isDirectory(ordersDirectory)) {
+            try(Stream<Path> paths = Files.list(ordersDirectory)) {
+                for(Path path : paths.collect(Collectors.toList())) {
+                    final LocalDate orderDate = parseFileName(path.getFileName().toString());
+                    if(orderDate != null && Files.isRegularFile(path)) {
+                        filesOnDisk.put(orderDate, path);
+                    }
+                }
+            } catch(IOException e) {
+                entries = null;
+                throw new FlooringDataPersistenceException("Could not list the orders directory to rebuild the catalog.", e);
+            }
+        }
+
+        entries.keySet().retainAll(filesOnDisk.keySet());
+        for(Map.Entry<LocalDate, Path> fileOnDisk : filesOnDisk.entrySet()) {
+            final Entry scanned;
+            try {
+                scanned = scan(fileOnDisk.getKey(), fileOnDisk.getValue());
+            } catch(FlooringDataPersistenceException e) {
+                entries = null;
+                throw e;
+            }
+            if(scanned == null) {
+                entries.remove(fileOnDisk.getKey());
+            } else {
+                entries.put(fileOnDisk.getKey(), scanned);
+            }
+        }
+
+        try {
+            compact();
+        } catch(IOException e) {
+            entries = null;
+            throw new FlooringDataPersistenceException("Could not persist the rebuilt order catalog.", e);
+        }
+    }
+
+    /**
+     * Records the current state of an order file.
+     * @param entry for the file that was just written
+     * @throws FlooringDataPersistenceException if the catalog cannot be persisted.
+     */
+    public synchronized void put(Entry entry) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(true);
+        try {
+            entries.put(entry.getOrderDate(), entry);
+            appendRecord(marshallEntry(entry));
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * Records that the order file for a date no longer exists.
+     * @param orderDate of the removed file
+     * @throws FlooringDataPersistenceException if the catalog cannot be persisted.
+     */
+    public synchronized void remove(LocalDate orderDate) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(true);
+        try {
+            if(entries.remove(orderDate) != null) {
+                appendRecord(String.join(DELIMITER, REMOVE_RECORD, INT_DATE_FORMATTER.format(orderDate)));
+            }
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * @param orderDate of the file
+     * @return the entry, or null if there is no order file for the date.
+     * @throws FlooringDataPersistenceException if the catalog cannot be loaded.
+     */
+    public synchronized Entry getEntry(LocalDate orderDate) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(false);
+        try {
+            return entries.get(orderDate);
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * @return every date with an order file, in ascending order.
+     * @throws FlooringDataPersistenceException if the catalog cannot be loaded.
+     */
+    public synchronized List<LocalDate> getOrderDates() throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(false);
+        try {
+            return new ArrayList<>(entries.keySet());
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * Index of the order files in a date range, so a range can be read without listing the directory.
+     * @param from first date, inclusive
+     * @param to last date, inclusive
+     * @return the order file of every date in the range that has one, by ascending date.
+     * @throws FlooringDataPersistenceException if the catalog cannot be loaded.
+     */
+    public synchronized NavigableMap<LocalDate, Path> getOrderFiles(LocalDate from, LocalDate to) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(false);
+        try {
+            final NavigableMap<LocalDate, Path> orderFiles = new TreeMap<>();
+            if(from.isAfter(to)) {
+                return orderFiles;
+            }
+            for(LocalDate orderDate : entries.subMap(from, true, to, true).keySet()) {
+                orderFiles.put(orderDate, ordersDirectory.resolve(getFileName(orderDate)));
+            }
+            return orderFiles;
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * @return number of orders across every date.
+     * @throws FlooringDataPersistenceException if the catalog cannot be loaded.
+     */
+    public synchronized int getOrderCount() throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(false);
+        try {
+            return entries.values().stream()
+                    .mapToInt(Entry::getRowCount)
+                    .sum();
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * @return largest order number across every date, 0 if there are no orders.
+     * @throws FlooringDataPersistenceException if the catalog cannot be loaded.
+     */
+    public synchronized int getMaxOrderNumber() throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(false);
+        try {
+            return entries.values().stream()
+                    .mapToInt(Entry::getMaxOrderNumber)
+                    .max()
+                    .orElse(0);
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * Narrows down which order files could hold an order number.
+     * @param orderNumber to look for
+     * @return dates whose order number range includes the order number, in ascending order.
+     * @throws FlooringDataPersistenceException if the catalog cannot be loaded.
+     */
+    public synchronized List<LocalDate> locateOrder(int orderNumber) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lockAndRefresh(false);
+        try {
+            return entries.values().stream()
+                    .filter(entry -> entry.getMinOrderNumber() <= orderNumber && orderNumber <= entry.getMaxOrderNumber())
+                    .map(Entry::getOrderDate)
+                    .collect(Collectors.toList());
+        } finally {
+            release(held);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.model.Order;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Orders held off heap, one direct buffer per field, with a row per order.
+ * Money is cents, tax rates are hundredths of a percent, areas are fixed-point longs with two decimal places, dates are epoch days,
+ *  states and product types are ids into a dictionary, and customer names are UTF-8 bytes in a shared name buffer.
+ * No Order is kept, one is only created when a row is asked for, pointing at the shared Product and StateTax of ModelFlyweights.
+ * Removing a row moves the last row into its place, so rows are not in any order.
+ * Not thread safe, the dao serialises every use.
+ */
+public class OrderColumnStore {
+    public static final int FIXED_POINT_SCALE = 2;
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int MIN_NAME_BYTES = 1024;
+
+    private final Dictionary stateAbbreviations;
+    private final Dictionary productTypes;
+
+    private int capacity;
+    private int size;
+    private ByteBuffer orderNumbers;
+    private ByteBuffer epochDays;
+    private ByteBuffer nameOffsets;
+    private ByteBuffer nameLengths;
+    private ByteBuffer stateIds;
+    private ByteBuffer taxRates;
+    private ByteBuffer productIds;
+    private ByteBuffer areas;
+    private ByteBuffer costsPerSqft;
+    private ByteBuffer laborCostsPerSqft;
+
+    private ByteBuffer names;
+    private int nameBytesUsed;
+    // bytes of names no row points to anymore
+    private int nameBytesUnused;
+
+    /**
+     * Strings that repeat across many rows, each stored once and referred to by its id.
+     */
+    private static class Dictionary {
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+
+        private int idOf(String value) {
+            return ids.computeIfAbsent(value, added -> {
+                values.add(added);
+                return values.size() - 1;
+            });
+        }
+
+        private String valueOf(int id) {
+            return values.get(id);
+        }
+    }
+
+    public OrderColumnStore() {
+        this.stateAbbreviations = new Dictionary();
+        this.productTypes = new Dictionary();
+        clear();
+    }
+
+    private static ByteBuffer column(int capacity, int width) {
+        return ByteBuffer.allocateDirect(capacity * width).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer grow(ByteBuffer column, int capacity) {
+        final ByteBuffer grown = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        final ByteBuffer used = column.duplicate();
+        used.clear();
+        grown.put(used);
+        grown.clear();
+        return grown;
+    }
+
+    /**
+     * @return the value as a fixed-point long.
+     * @throws ArithmeticException if the value has more than two decimal places, or is too large.
+     */
+    public static long toFixedPoint(BigDecimal value) {
+        return value.setScale(FIXED_POINT_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromFixedPoint(long value) {
+        return BigDecimal.valueOf(value, FIXED_POINT_SCALE);
+    }
+
+    /**
+     * Drops every row, and gives back the off heap memory of the columns once they are collected.
+     */
+    public void clear() {
+        capacity = MIN_CAPACITY;
+        size = 0;
+        orderNumbers = column(capacity, Integer.BYTES);
+        epochDays = column(capacity, Integer.BYTES);
+        nameOffsets = column(capacity, Integer.BYTES);
+        nameLengths = column(capacity, Integer.BYTES);
+        stateIds = column(capacity, Integer.BYTES);
+        taxRates = column(capacity, Long.BYTES);
+        productIds = column(capacity, Integer.BYTES);
+        areas = column(capacity, Long.BYTES);
+        costsPerSqft = column(capacity, Long.BYTES);
+        laborCostsPerSqft = column(capacity, Long.BYTES);
+        names = column(MIN_NAME_BYTES, Byte.BYTES);
+        nameBytesUsed = 0;
+        nameBytesUnused = 0;
+    }
+
+    private void ensureCapacity(int rows) {
+        if(rows <= capacity) {
+            return;
+        }
+
+        int grownCapacity = capacity;
+        while(grownCapacity < rows) {
+            grownCapacity = Math.multiplyExact(grownCapacity, 2);
+        }
+        orderNumbers = grow(orderNumbers, grownCapacity * Integer.BYTES);
+        epochDays = grow(epochDays, grownCapacity * Integer.BYTES);
+        nameOffsets = grow(nameOffsets, grownCapacity * Integer.BYTES);
+        nameLengths = grow(nameLengths, grownCapacity * Integer.BYTES);
+        stateIds = grow(stateIds, grownCapacity * Integer.BYTES);
+        taxRates = grow(taxRates, grownCapacity * Long.BYTES);
+        productIds = grow(productIds, grownCapacity * Integer.BYTES);
+        areas = grow(areas, grownCapacity * Long.BYTES);
+        costsPerSqft = grow(costsPerSqft, grownCapacity * Long.BYTES);
+        laborCostsPerSqft = grow(laborCostsPerSqft, grownCapacity * Long.BYTES);
+        capacity = grownCapacity;
+    }
+
+    /**
+     * Appends a name to the name buffer, first dropping the names no row points to once they are most of it.
+     * @return offset of the name.
+     */
+    private int putName(byte[] name) {
+        if(nameBytesUsed + name.length > names.capacity()) {
+            if(nameBytesUnused > nameBytesUsed / 2) {
+                compactNames();
+            }
+            int grownCapacity = names.capacity();
+            while(grownCapacity < nameBytesUsed + name.length) {
+                grownCapacity = Math.multiplyExact(grownCapacity, 2);
+            }
+            if(grownCapacity != names.capacity()) {
+                names = grow(names, grownCapacity);
+            }
+        }
+
+        final int offset = nameBytesUsed;
+        names.position(offset);
+        names.put(name);
+        names.clear();
+        nameBytesUsed += name.length;
+        return offset;
+    }
+
+    private void compactNames() {
+        final ByteBuffer compacted = column(names.capacity(), Byte.BYTES);
+        for(int row = 0; row < size; row++) {
+            final int offset = nameOffsets.getInt(row * Integer.BYTES);
+            final int length = nameLengths.getInt(row * Integer.BYTES);
+            final ByteBuffer name = names.duplicate();
+            name.limit(offset + length).position(offset);
+            nameOffsets.putInt(row * Integer.BYTES, compacted.position());
+            compacted.put(name);
+        }
+        nameBytesUsed = compacted.position();
+        nameBytesUnused = 0;
+        compacted.clear();
+        names = compacted;
+    }
+
+    /**
+     * Converts every field before anything is written, so a value that cannot be stored leaves the row as it was.
+     */
+    private void writeRow(int row, Order order) {
+        final int orderNumber = order.getOrderNumber();
+        final int epochDay = Math.toIntExact(order.getOrderDate().toEpochDay());
+        final long taxRate = order.getStateTax().getTaxRate().getHundredthsOfPercent();
+        final long area = toFixedPoint(order.getArea());
+        final long costPerSqft = order.getProduct().getCostPerSqft().getCents();
+        final long laborCostPerSqft = order.getProduct().getLaborCostPerSqft().getCents();
+        final byte[] name = order.getCustomerName().getBytes(StandardCharsets.UTF_8);
+
+        orderNumbers.putInt(row * Integer.BYTES, orderNumber);
+        epochDays.putInt(row * Integer.BYTES, epochDay);
+        nameOffsets.putInt(row * Integer.BYTES, putName(name));
+        nameLengths.putInt(row * Integer.BYTES, name.length);
+        stateIds.putInt(row * Integer.BYTES, stateAbbreviations.idOf(order.getStateTax().getStateAbbreviation()));
+        taxRates.putLong(row * Long.BYTES, taxRate);
+        productIds.putInt(row * Integer.BYTES, productTypes.idOf(order.getProduct().getProductType()));
+        areas.putLong(row * Long.BYTES, area);
+        costsPerSqft.putLong(row * Long.BYTES, costPerSqft);
+        laborCostsPerSqft.putLong(row * Long.BYTES, laborCostPerSqft);
+    }
+
+    private void copyRow(int from, int to) {
+        orderNumbers.putInt(to * Integer.BYTES, orderNumbers.getInt(from * Integer.BYTES));
+        epochDays.putInt(to * Integer.BYTES, epochDays.getInt(from * Integer.BYTES));
+        nameOffsets.putInt(to * Integer.BYTES, nameOffsets.getInt(from * Integer.BYTES));
+        nameLengths.putInt(to * Integer.BYTES, nameLengths.getInt(from * Integer.BYTES));
+        stateIds.putInt(to * Integer.BYTES, stateIds.getInt(from * Integer.BYTES));
+        taxRates.putLong(to * Long.BYTES, taxRates.getLong(from * Long.BYTES));
+        productIds.putInt(to * Integer.BYTES, productIds.getInt(from * Integer.BYTES));
+        areas.putLong(to * Long.BYTES, areas.getLong(from * Long.BYTES));
+        costsPerSqft.putLong(to * Long.BYTES, costsPerSqft.getLong(from * Long.BYTES));
+        laborCostsPerSqft.putLong(to * Long.BYTES, laborCostsPerSqft.getLong(from * Long.BYTES));
+    }
+
+    /**
+     * @param order with its number and date set
+     * @return the row of the order.
+     * @throws ArithmeticException if a value has more than two decimal places, or is too large.
+     */
+    public int append(Order order) {
+        ensureCapacity(size + 1);
+        writeRow(size, order);
+        return size++;
+    }
+
+    /**
+     * Replaces every field of a row.
+     * @throws ArithmeticException if a value has more than two decimal places, or is too large, the row is left as it was.
+     */
+    public void set(int row, Order order) {
+        final int oldNameLength = nameLengths.getInt(row * Integer.BYTES);
+        writeRow(row, order);
+        nameBytesUnused += oldNameLength;
+    }
+
+    /**
+     * Removes a row by moving the last row into its place.
+     * @return the order number of the row moved into the removed row, or -1 if the last row was removed.
+     */
+    public int remove(int row) {
+        nameBytesUnused += nameLengths.getInt(row * Integer.BYTES);
+        final int last = --size;
+        if(row == last) {
+            return -1;
+        }
+        copyRow(last, row);
+        return orderNumbers.getInt(row * Integer.BYTES);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getOrderNumber(int row) {
+        return orderNumbers.getInt(row * Integer.BYTES);
+    }
+
+    public int getEpochDay(int row) {
+        return epochDays.getInt(row * Integer.BYTES);
+    }
+
+    public String getCustomerName(int row) {
+        final byte[] name = new byte[nameLengths.getInt(row * Integer.BYTES)];
+        final ByteBuffer nameBytes = names.duplicate();
+        nameBytes.position(nameOffsets.getInt(row * Integer.BYTES));
+        nameBytes.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates an order from a row, the columns are not kept by it.
+     * Its StateTax state name is "Not Loaded", same as the order files.
+     */
+    public Order getOrder(int row) {
+        return new Order()
+                .setOrderNumber(getOrderNumber(row))
+                .setOrderDate(LocalDate.ofEpochDay(getEpochDay(row)))
+                .setCustomerName(getCustomerName(row))
+                .setArea(fromFixedPoint(areas.getLong(row * Long.BYTES)))
+                .setStateTax(ModelFlyweights.stateTax(
+                        stateAbbreviations.valueOf(stateIds.getInt(row * Integer.BYTES)),
+                        "Not Loaded",
+                        taxRates.getLong(row * Long.BYTES)
+                ))
+                .setProduct(ModelFlyweights.product(
+                        productTypes.valueOf(productIds.getInt(row * Integer.BYTES)),
+                        costsPerSqft.getLong(row * Long.BYTES),
+                        laborCostsPerSqft.getLong(row * Long.BYTES)
+                ));
+    }
+
+    /**
+     * @return bytes of direct memory held by the columns and the name buffer.
+     */
+    public long getOffHeapBytes() {
+        return (long) capacity * (6 * Integer.BYTES + 4 * Long.BYTES) + names.capacity();
+    }
+}
@@ -0,0 +1,314 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Group commit for mutations to the same order date.
+ * The first caller for a date leads a batch, later callers for the date join it until it is full or the leader
+ *  stops lingering. While a batch of the date is being committed the next batch keeps filling,
+ *  so concurrent writers share one rewrite or journal append, and one fsync, even without any linger.
+ * Every caller in a batch is released together once the batch is committed.
+ * Each date queues its batches under its own monitor, and each batch releases its callers through its own latch,
+ *  so a commit only ever wakes the callers of its batch and the next leader of its date.
+ * @param <M> the mutation
+ * @param <R> result handed back to the caller of a mutation
+ */
+public class OrderCommitCoordinator<M, R> {
+    private final int maxBatchSize;
+    private final long maxLingerMillis;
+    private final Committer<M, R> committer;
+
+    private final ConcurrentHashMap<LocalDate, DateQueue<M, R>> dateQueues;
+
+    private long batchCount;
+    private long mutationCount;
+    private int largestBatchSize;
+
+    /**
+     * Applies and persists a whole batch of mutations to one date.
+     */
+    public interface Committer<M, R> {
+        /**
+         * Every request in the batch should be completed or failed.
+         * @throws FlooringDataPersistenceException if the batch could not be persisted, failing any request left.
+         */
+        void commit(LocalDate orderDate, List<Request<M, R>> batch) throws FlooringDataPersistenceException;
+    }
+
+    /**
+     * A mutation waiting in a batch, and its outcome once committed.
+     * Only the leader of the batch completes or fails it, and its callers only look once the batch is committed.
+     */
+    public static class Request<M, R> {
+        private final M mutation;
+        private R result;
+        private Exception failure;
+        private boolean done;
+
+        private Request(M mutation) {
+            this.mutation = mutation;
+        }
+
+        public M getMutation() {
+            return mutation;
+        }
+
+        public void complete(R result) {
+            this.result = result;
+            this.done = true;
+        }
+
+        public void fail(Exception failure) {
+            this.failure = failure;
+            this.done = true;
+        }
+
+        /**
+         * @return result of the committed mutation, null if it failed.
+         */
+        public R getResult() {
+            return result;
+        }
+
+        /**
+         * @return why the mutation failed, null if it was committed.
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+
+        /**
+         * @return result of the committed mutation.
+         * @throws FlooringDataPersistenceException if the mutation or its batch failed to persist.
+         * @throws OrderNotFoundException if the mutation targets an order that does not exist.
+         */
+        public R get() throws FlooringDataPersistenceException, OrderNotFoundException {
+            if(failure == null) {
+                return result;
+            } else if(failure instanceof OrderNotFoundException) {
+                throw (OrderNotFoundException) failure;
+            } else if(failure instanceof FlooringDataPersistenceException) {
+                throw (FlooringDataPersistenceException) failure;
+            } else if(failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            throw new FlooringDataPersistenceException("Could not commit the mutation.", failure);
+        }
+    }
+
+    private static class Batch<M, R> {
+        private final List<Request<M, R>> requests = new ArrayList<>();
+        // counted down once every request is completed or failed
+        private final CountDownLatch committed = new CountDownLatch(1);
+        private boolean closed;
+    }
+
+    /**
+     * The batches of one date, guarded by its own monitor.
+     */
+    private static class DateQueue<M, R> {
+        private Batch<M, R> openBatch;
+        private boolean committing;
+        // leaders that have not finished their commit yet
+        private int leaders;
+        // dropped from the map once it had no leaders left, a caller that still finds it looks the date up again
+        private boolean retired;
+    }
+
+    /**
+     * @param maxBatchSize most mutations committed together, 1 commits every mutation alone
+     * @param maxLingerMillis how long the leader of a batch waits for more mutations, 0 to never wait
+     * @param committer applies and persists each batch
+     */
+    public OrderCommitCoordinator(int maxBatchSize, long maxLingerMillis, Committer<M, R> committer) {
+        if(maxBatchSize < 1 || maxLingerMillis < 0) {
+            throw new IllegalArgumentException("Batch size must be at least 1, and linger cannot be negative.");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerMillis = maxLingerMillis;
+        this.committer = committer;
+        this.dateQueues = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Queues a mutation into the open batch of its date, and waits until that batch is committed.
+     * @param orderDate the mutation applies to
+     * @param mutation to commit
+     * @return result of the mutation.
+     * @throws FlooringDataPersistenceException if the mutation or its batch failed to persist.
+     * @throws OrderNotFoundException if the mutation targets an order that does not exist.
+     */
+    public R submit(LocalDate orderDate, M mutation) throws FlooringDataPersistenceException, OrderNotFoundException {
+        return submitAll(orderDate, Collections.singletonList(mutation)).get(0).get();
+    }
+
+    /**
+     * Queues mutations into the open batch of their date together, and waits until that batch is committed.
+     * They are never split across batches, even past the max batch size, so the date is committed once for all of them.
+     * @param orderDate every mutation applies to
+     * @param mutations to commit, in order
+     * @return the committed requests, in the same order as the mutations, each holding its result or failure.
+     */
+    public List<Request<M, R>> submitAll(LocalDate orderDate, List<M> mutations) {
+        final List<Request<M, R>> requests = new ArrayList<>(mutations.size());
+        for(M mutation : mutations) {
+            requests.add(new Request<>(mutation));
+        }
+
+        DateQueue<M, R> queue;
+        Batch<M, R> batch = null;
+        boolean leader = false;
+        do {
+            queue = dateQueues.computeIfAbsent(orderDate, date -> new DateQueue<>());
+            synchronized(queue) {
+                if(queue.retired) {
+                    continue;
+                }
+                leader = queue.openBatch == null;
+                if(leader) {
+                    queue.openBatch = new Batch<>();
+                    queue.leaders++;
+                }
+                batch = queue.openBatch;
+                batch.requests.addAll(requests);
+
+                if(batch.requests.size() >= maxBatchSize) {
+                    close(queue, batch);
+                    queue.notifyAll();
+                }
+            }
+        } while(batch == null);
+
+        if(leader) {
+            lead(orderDate, queue, batch);
+        }
+        awaitCommitted(batch);
+        return requests;
+    }
+
+    private static <M, R> void close(DateQueue<M, R> queue, Batch<M, R> batch) {
+        batch.closed = true;
+        if(queue.openBatch == batch) {
+            queue.openBatch = null;
+        }
+    }
+
+    private void lead(LocalDate orderDate, DateQueue<M, R> queue, Batch<M, R> batch) {
+        boolean interrupted = false;
+        synchronized(queue) {
+            final long lingerDeadline = System.currentTimeMillis() + maxLingerMillis;
+            long remainingLinger = maxLingerMillis;
+            while(!batch.closed && remainingLinger > 0) {
+                try {
+                    queue.wait(remainingLinger);
+                } catch(InterruptedException e) {
+                    // stop lingering, but still commit what was gathered
+                    interrupted = true;
+                    break;
+                }
+                remainingLinger = lingerDeadline - System.currentTimeMillis();
+            }
+
+            // the batch keeps filling while an earlier batch of the date is committed
+            while(queue.committing) {
+                try {
+                    queue.wait();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+
+            close(queue, batch);
+            queue.committing = true;
+        }
+
+        try {
+            committer.commit(orderDate, batch.requests);
+        } catch(FlooringDataPersistenceException | RuntimeException e) {
+            for(Request<M, R> request : batch.requests) {
+                if(!request.done) {
+                    request.fail(e);
+                }
+            }
+        } finally {
+            for(Request<M, R> request : batch.requests) {
+                if(!request.done) {
+                    request.fail(new FlooringDataPersistenceException("Mutation was left out of its commit."));
+                }
+            }
+            synchronized(queue) {
+                queue.committing = false;
+                queue.leaders--;
+                if(queue.leaders == 0) {
+                    queue.retired = true;
+                    dateQueues.remove(orderDate, queue);
+                }
+                // only the next leader of this date waits on it
+                queue.notifyAll();
+            }
+            synchronized(this) {
+                batchCount++;
+                mutationCount += batch.requests.size();
+                largestBatchSize = Math.max(largestBatchSize, batch.requests.size());
+            }
+            batch.committed.countDown();
+        }
+
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitCommitted(Batch<M, R> batch) {
+        boolean interrupted = false;
+        // the mutations may already be persisted, so waiting cannot be abandoned
+        while(true) {
+            try {
+                batch.committed.await();
+                break;
+            } catch(InterruptedException e) {
+                interrupted = true;
+            }
+        }
+
+        if(interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of batches committed.
+     */
+    public synchronized long getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return number of mutations committed across every batch.
+     */
+    public synchronized long getMutationCount() {
+        return mutationCount;
+    }
+
+    /**
+     * @return most mutations committed in one batch.
+     */
+    public synchronized int getLargestBatchSize() {
+        return largestBatchSize;
+    }
+
+    /**
+     * @return mean mutations per batch, 0 before the first batch.
+     */
+    public synchronized double getAverageBatchSize() {
+        return batchCount == 0 ? 0 : (double) mutationCount / batchCount;
+    }
+}
@@ -0,0 +1,392 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Secondary index from normalized customer name to the date and number of each of their orders,
+ *  kept up to date by the order dao on every committed mutation.
+ * Names are normalized by trimming, collapsing whitespace and lower casing, so lookups ignore case,
+ *  and are held sorted so a prefix lookup only visits the matching names.
+ * It is persisted as a ChecksummedLog, and must be rebuilt from the orders when that log is missing or corrupt.
+ * When other processes share the directory, the log is only read or written under the index's process lock,
+ *  and what is held in memory is checked against the log, reading whatever they appended, before it is used.
+ */
+public class OrderCustomerIndex {
+    private static final DateTimeFormatter INT_DATE_FORMATTER = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    private static final String DELIMITER = ",";
+    private static final String PUT_RECORD = "P";
+    private static final String REMOVE_RECORD = "D";
+    // the customer name is last, it may itself hold the delimiter
+    private static final int PUT_RECORD_PARTS = 4;
+    private static final int REMOVE_RECORD_PARTS = 2;
+    // the log is compacted once it holds this many records, and twice as many records as entries
+    private static final int MIN_RECORDS_TO_COMPACT = 64;
+
+    private final ChecksummedLog log;
+    // null if no other process shares the orders directory
+    private final OrderFileLocks processLocks;
+
+    private Map<Integer, Entry> entriesByOrderNumber;
+    private TreeMap<String, Set<Integer>> orderNumbersByName;
+    private int recordsInLog;
+    // how far the entries have read the log
+    private ChecksummedLog.Position position;
+    // set when an update could not be persisted, so the log on disk is behind
+    private boolean stale;
+
+    /**
+     * Where a single order of a customer can be found.
+     */
+    public static class Entry {
+        private final LocalDate orderDate;
+        private final int orderNumber;
+        private final String customerName;
+
+        public Entry(LocalDate orderDate, int orderNumber, String customerName) {
+            this.orderDate = orderDate;
+            this.orderNumber = orderNumber;
+            this.customerName = customerName;
+        }
+
+        public LocalDate getOrderDate() {
+            return orderDate;
+        }
+
+        public int getOrderNumber() {
+            return orderNumber;
+        }
+
+        /**
+         * @return the normalized customer name.
+         */
+        public String getCustomerName() {
+            return customerName;
+        }
+    }
+
+    public OrderCustomerIndex(Path indexPath) {
+        this(indexPath, null);
+    }
+
+    /**
+     * @param indexPath of the index log
+     * @param processLocks locks shared with other processes using the same orders directory, null if there are none
+     */
+    public OrderCustomerIndex(Path indexPath, OrderFileLocks processLocks) {
+        this.log = new ChecksummedLog(indexPath);
+        this.processLocks = processLocks;
+    }
+
+    /**
+     * @param customerName as entered, may be partial
+     * @return the name trimmed, with runs of whitespace collapsed to one space, and lower cased.
+     */
+    public static String normalize(String customerName) {
+        return customerName.trim()
+                .replaceAll("\\s+", " ")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static String marshallEntry(Entry entry) {
+        return String.join(DELIMITER,
+                PUT_RECORD,
+                INT_DATE_FORMATTER.format(entry.getOrderDate()),
+                Integer.toString(entry.getOrderNumber()),
+                entry.getCustomerName()
+        );
+    }
+
+    private void putEntry(Entry entry) {
+        removeEntry(entry.getOrderNumber());
+        entriesByOrderNumber.put(entry.getOrderNumber(), entry);
+        orderNumbersByName.computeIfAbsent(entry.getCustomerName(), name -> new HashSet<>())
+                .add(entry.getOrderNumber());
+    }
+
+    private boolean removeEntry(int orderNumber) {
+        final Entry removed = entriesByOrderNumber.remove(orderNumber);
+        if(removed == null) {
+            return false;
+        }
+
+        final Set<Integer> orderNumbers = orderNumbersByName.get(removed.getCustomerName());
+        orderNumbers.remove(orderNumber);
+        if(orderNumbers.isEmpty()) {
+            orderNumbersByName.remove(removed.getCustomerName());
+        }
+        return true;
+    }
+
+    /**
+     * Applies a single log record to the entries.
+     * @return false if the record is malformed.
+     */
+    private boolean applyRecord(String record) {
+        final String[] parts = record.split(DELIMITER, PUT_RECORD_PARTS);
+        try {
+            if(parts.length == PUT_RECORD_PARTS && parts[0].equals(PUT_RECORD)) {
+                putEntry(new Entry(
+                        LocalDate.parse(parts[1], INT_DATE_FORMATTER),
+                        Integer.parseInt(parts[2]),
+                        parts[3]
+                ));
+                return true;
+            } else if(parts.length == REMOVE_RECORD_PARTS && parts[0].equals(REMOVE_RECORD)) {
+                removeEntry(Integer.parseInt(parts[1]));
+                return true;
+            }
+        } catch(NumberFormatException | DateTimeParseException e) {
+            return false;
+        }
+        return false;
+    }
+
+    private void clearEntries() {
+        entriesByOrderNumber = new HashMap<>();
+        orderNumbersByName = new TreeMap<>();
+    }
+
+    private void dropEntries() {
+        entriesByOrderNumber = null;
+        orderNumbersByName = null;
+    }
+
+    /**
+     * @return false if a record is malformed.
+     */
+    private boolean applyRecords(List<String> records) {
+        for(String record : records) {
+            if(!applyRecord(record)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Brings the entries in line with the log, the index's process lock must be held.
+     * @return false if the log is missing or damaged, and the index has to be rebuilt before it can be trusted.
+     */
+    private boolean refresh() throws FlooringDataPersistenceException {
+        if(stale) {
+            return false;
+        }
+
+        try {
+            // only another process can change the log behind this one's back
+            if(entriesByOrderNumber != null && (processLocks == null || log.isAt(position))) {
+                return true;
+            }
+
+            if(entriesByOrderNumber != null) {
+                final ChecksummedLog.Contents appended = log.readAppended(position);
+                if(appended != null && appended.isIntact() && applyRecords(appended.getRecords())) {
+                    recordsInLog += appended.getRecords().size();
+                    position = appended.getPosition();
+                    return true;
+                }
+            }
+
+            final ChecksummedLog.Contents contents = log.read();
+            clearEntries();
+            final boolean wellFormed = contents.isIntact() && applyRecords(contents.getRecords());
+            recordsInLog = contents.getRecords().size();
+            position = contents.getPosition();
+            if(position != null && wellFormed) {
+                return true;
+            }
+        } catch(IOException e) {
+            dropEntries();
+            throw new FlooringDataPersistenceException("Could not read the customer index.", e);
+        }
+
+        dropEntries();
+        return false;
+    }
+
+    private OrderFileLocks.Held lock(boolean exclusive) throws FlooringDataPersistenceException {
+        return processLocks == null ? null : processLocks.lockCustomerIndex(exclusive);
+    }
+
+    private static void release(OrderFileLocks.Held held) {
+        if(held != null) {
+            held.release();
+        }
+    }
+
+    /**
+     * Loads the index from its log, or reads what other processes appended to it since it was loaded.
+     * @return false if the log is missing or damaged, and the index has to be rebuilt before it can be trusted.
+     * @throws FlooringDataPersistenceException if the log cannot be read.
+     */
+    public synchronized boolean load() throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lock(false);
+        try {
+            return refresh();
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * Rebuild mode. Replaces every entry with the given orders, and rewrites the log.
+     * The orders are read without the index's process lock, since reading them takes date locks that a commit
+     *  holds while it waits for the index. Whatever other processes wrote to the log meanwhile is applied on top,
+     *  an entry of an order removed since is harmless, the orders themselves are checked when they are found.
+     * @param orders every order there is
+     * @throws FlooringDataPersistenceException if the rebuilt index cannot be persisted.
+     */
+    public synchronized void rebuild(Iterator<Order> orders) throws FlooringDataPersistenceException {
+        ChecksummedLog.Position startPosition = null;
+        if(processLocks != null) {
+            final OrderFileLocks.Held startHeld = lock(false);
+            try {
+                startPosition = log.read().getPosition();
+            } catch(IOException e) {
+                throw new FlooringDataPersistenceException("Could not read the customer index.", e);
+            } finally {
+                release(startHeld);
+            }
+        }
+
+        clearEntries();
+        try {
+            while(orders.hasNext()) {
+                final Order order = orders.next();
+                putEntry(new Entry(order.getOrderDate(), order.getOrderNumber(), normalize(order.getCustomerName())));
+            }
+        } catch(RuntimeException e) {
+            // a partial index cannot be trusted
+            invalidate();
+            throw e;
+        }
+
+        final OrderFileLocks.Held held = lock(true);
+        try {
+            if(processLocks != null) {
+                ChecksummedLog.Contents newer = log.readAppended(startPosition);
+                if(newer == null) {
+                    // replaced since, or there was no log to append to
+                    newer = log.read();
+                }
+                for(String record : newer.getRecords()) {
+                    applyRecord(record);
+                }
+            }
+            compact();
+        } catch(IOException e) {
+            invalidate();
+            throw new FlooringDataPersistenceException("Could not persist the rebuilt customer index.", e);
+        } finally {
+            release(held);
+        }
+        stale = false;
+    }
+
+    /**
+     * Forgets every entry, so the index has to be rebuilt before its next use.
+     */
+    public synchronized void invalidate() {
+        dropEntries();
+        stale = true;
+    }
+
+    /**
+     * Rewrites the log so it only holds one record per entry.
+     * The entries must have just been brought in line with the log under the exclusive lock,
+     *  otherwise the entries of other processes would be lost.
+     */
+    private void compact() throws IOException {
+        final List<String> records = entriesByOrderNumber.values().stream()
+                .map(OrderCustomerIndex::marshallEntry)
+                .collect(Collectors.toList());
+        position = log.rewrite(records);
+        recordsInLog = records.size();
+    }
+
+    /**
+     * Records the orders that were added or edited, and the order numbers that were removed, with one append.
+     * The index is loaded first if it is not yet, so the log never falls behind the orders.
+     * Does nothing if the log is missing or damaged, it will be rebuilt before it is used.
+     * @param putOrders added or edited, as they are now stored
+     * @param removedOrderNumbers of removed orders
+     * @throws FlooringDataPersistenceException if the index cannot be persisted.
+     */
+    public synchronized void update(Collection<Order> putOrders, Collection<Integer> removedOrderNumbers) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lock(true);
+        try {
+            if(!refresh()) {
+                return;
+            }
+
+            final List<String> records = new ArrayList<>();
+            for(Order order : putOrders) {
+                final Entry entry = new Entry(order.getOrderDate(), order.getOrderNumber(), normalize(order.getCustomerName()));
+                putEntry(entry);
+                records.add(marshallEntry(entry));
+            }
+            for(int orderNumber : removedOrderNumbers) {
+                if(removeEntry(orderNumber)) {
+                    records.add(String.join(DELIMITER, REMOVE_RECORD, Integer.toString(orderNumber)));
+                }
+            }
+            if(records.isEmpty()) {
+                return;
+            }
+
+            try {
+                if(recordsInLog + records.size() >= MIN_RECORDS_TO_COMPACT && recordsInLog + records.size() > entriesByOrderNumber.size() * 2) {
+                    compact();
+                } else {
+                    position = log.append(records);
+                    recordsInLog += records.size();
+                }
+            } catch(IOException e) {
+                throw new FlooringDataPersistenceException("Could not persist the customer index.", e);
+            }
+        } finally {
+            release(held);
+        }
+    }
+
+    /**
+     * Finds the orders of every customer whose normalized name starts with the normalized prefix.
+     * @param customerNamePrefix whole or partial customer name, in any case
+     * @return where each matching order is, by date and then order number,
+     *  or null if the log is missing or damaged, and the index has to be rebuilt first.
+     * @throws FlooringDataPersistenceException if the log cannot be read.
+     */
+    public synchronized List<Entry> find(String customerNamePrefix) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held held = lock(false);
+        try {
+            if(!refresh()) {
+                return null;
+            }
+
+            final String prefix = normalize(customerNamePrefix);
+            final List<Entry> found = new ArrayList<>();
+            for(Map.Entry<String, Set<Integer>> name : orderNumbersByName.tailMap(prefix, true).entrySet()) {
+                if(!name.getKey().startsWith(prefix)) {
+                    break;
+                }
+                for(int orderNumber : name.getValue()) {
+                    found.add(entriesByOrderNumber.get(orderNumber));
+                }
+            }
+            found.sort(Comparator.comparing(Entry::getOrderDate).thenComparingInt(Entry::getOrderNumber));
+            return found;
+        } finally {
+            release(held);
+        }
+    }
+}
@@ -5,7 +5,9 @@ import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
 import dev.kmfg.flooring.model.Order;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderDao {
     /**
@@ -15,6 +17,13 @@ public interface OrderDao {
      */
     void exportAll(String fileNameWithPath) throws FlooringDataPersistenceException;
 
+    /**
+     * Gets the number of orders on every date, without reading the orders.
+     * @return number of orders
+     * @throws FlooringDataPersistenceException if the orders cannot be counted.
+     */
+    int getNumberOfOrders() throws FlooringDataPersistenceException;
+
     /**
      * Gets all orders and dates.
      * Orders will be MISSING their StateTax State Name because this class cannot
@@ -24,6 +33,16 @@ public interface OrderDao {
      */
     List<Order> getAllOrders() throws FlooringDataPersistenceException, OrderNotFoundException;
 
+    /**
+     * Streams every order, in date order and then order number order.
+     * Days are read lazily one at a time as the stream is consumed, so memory does not grow with the number of days.
+     * Orders will be MISSING their StateTax State Name because this class cannot
+     *  query the StateTaxDao
+     * @return a stream of every order, a failure while it is consumed is thrown as UncheckedFlooringDataPersistenceException.
+     * @throws FlooringDataPersistenceException if the order dates cannot be listed.
+     */
+    Stream<Order> streamAllOrders() throws FlooringDataPersistenceException;
+
     /**
      * Gets all orders for specific date.
      * Orders will be MISSING their StateTax State Name because this class cannot
@@ -34,6 +53,27 @@ public interface OrderDao {
      */
     List<Order> getAllOrders(LocalDate orderDate) throws FlooringDataPersistenceException, OrderNotFoundException;
 
+    /**
+     * Gets all orders in a date range, only reading the days in the range.
+     * Orders will be MISSING their StateTax State Name because this class cannot
+     *  query the StateTaxDao
+     * @param from first date to get orders for, inclusive
+     * @param to last date to get orders for, inclusive
+     * @return all orders in the range by date and then order number, empty if from is after to.
+     * @throws FlooringDataPersistenceException if the orders cannot be fetched.
+     */
+    List<Order> getOrders(LocalDate from, LocalDate to) throws FlooringDataPersistenceException;
+
+    /**
+     * Gets the orders of every customer whose name starts with the given prefix, ignoring case and extra whitespace.
+     * Orders will be MISSING their StateTax State Name because this class cannot
+     *  query the StateTaxDao
+     * @param customerNamePrefix whole or partial customer name
+     * @return the matching orders by date and then order number.
+     * @throws FlooringDataPersistenceException if the orders cannot be fetched.
+     */
+    List<Order> getOrdersByCustomerName(String customerNamePrefix) throws FlooringDataPersistenceException;
+
     /**
      * Adds an order, if it does not already exist.
      * @param order the order to add
@@ -53,6 +93,17 @@ public interface OrderDao {
      */
     Order getOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException;
 
+    /**
+     * Gets an order by its number alone, order numbers are unique across every date.
+     * Orders will be MISSING their StateTax State Name because this class cannot
+     *  query the StateTaxDao
+     * @param orderNumber the order number (id)
+     * @return the order, if it exists.
+     * @throws FlooringDataPersistenceException if there is an issue fetching the order.
+     * @throws OrderNotFoundException if no order has the orderNumber, its orderDate is null.
+     */
+    Order getOrder(int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException;
+
     /**
      * The order to edit. It MUST already exist.
      * @param order to overwrite.
@@ -71,4 +122,31 @@ public interface OrderDao {
      * @throws OrderNotFoundException if the order does not exist for the orderDate and orderNumber.
      */
     Order removeOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException;
+
+    /**
+     * Adds many orders, with a single block of order numbers, and a single write per order date.
+     * An order that cannot be added does not stop the rest.
+     * @param orders to add, numbered in the order given
+     * @return a result per order, in the order given.
+     * @throws FlooringDataPersistenceException if no order could be attempted, such as when numbers cannot be allocated.
+     */
+    List<OrderResult> addOrders(Collection<Order> orders) throws FlooringDataPersistenceException;
+
+    /**
+     * Edits many orders, with a single write per order date. Each order MUST already exist.
+     * An order that cannot be edited does not stop the rest.
+     * @param orders to overwrite
+     * @return a result per order, in the order given.
+     * @throws FlooringDataPersistenceException if no order could be attempted.
+     */
+    List<OrderResult> editOrders(Collection<Order> orders) throws FlooringDataPersistenceException;
+
+    /**
+     * Removes many orders, with a single write per order date.
+     * An order that cannot be removed does not stop the rest.
+     * @param orders to remove, only their date and order number are used
+     * @return a result per order, in the order given, holding the removed order when successful.
+     * @throws FlooringDataPersistenceException if no order could be attempted.
+     */
+    List<OrderResult> removeOrders(Collection<Order> orders) throws FlooringDataPersistenceException;
 }
@@ -0,0 +1,660 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.dao.exception.UncheckedFlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps every order off heap in an OrderColumnStore, so millions of orders cost a few dozen bytes each,
+ *  and an Order is only created when one is returned.
+ * The Orders_MMddyyyy.txt files of its directory are read once, on first use, and a date's file is rewritten
+ *  after every change to it. A date whose file cannot be written is read back from its file, so memory never holds
+ *  a change that is not on disk.
+ * Lookups by number go through an OrderNumberIndex of rows, and the order numbers of each date are kept sorted,
+ *  so a date's rows are found without scanning the date column. Customer names are found by scanning a column.
+ * It has its own directory of order files, importOrderFiles copies in the orders of another, such as Data/Orders.
+ * Every method is synchronized.
+ */
+public class OrderDaoColumnarImpl implements OrderDao {
+    private static final String SEQUENCE_FILE_NAME = "OrderNumberSequence.dat";
+
+    private final Path ordersPath;
+    private final OrderFileReader orderFileReader;
+    private final OrderFileWriter orderFileWriter;
+    private final OrderNumberSequence orderNumberSequence;
+
+    private final OrderColumnStore columns;
+    // order number to its date and row in the columns
+    private final OrderNumberIndex rows;
+    // order numbers on each date with orders, by epoch day
+    private final TreeMap<Integer, DayOrderNumbers> days;
+    private boolean loaded;
+
+    /**
+     * The order numbers on one date, kept sorted.
+     * Numbers rather than rows are kept, since removing a row moves another order into its place.
+     */
+    private static final class DayOrderNumbers {
+        private int[] orderNumbers = new int[4];
+        private int size;
+
+        private void add(int orderNumber) {
+            int at = size;
+            // numbers are handed out in order, so an added order nearly always goes last
+            if(size > 0 && orderNumbers[size - 1] >= orderNumber) {
+                at = Arrays.binarySearch(orderNumbers, 0, size, orderNumber);
+                if(at >= 0) {
+                    return;
+                }
+                at = -(at + 1);
+            }
+            if(size == orderNumbers.length) {
+                orderNumbers = Arrays.copyOf(orderNumbers, size * 2);
+            }
+            System.arraycopy(orderNumbers, at, orderNumbers, at + 1, size - at);
+            orderNumbers[at] = orderNumber;
+            size++;
+        }
+
+        private void remove(int orderNumber) {
+            final int at = Arrays.binarySearch(orderNumbers, 0, size, orderNumber);
+            if(at >= 0) {
+                System.arraycopy(orderNumbers, at + 1, orderNumbers, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    public OrderDaoColumnarImpl() {
+        this("Data/ColumnarOrders");
+    }
+
+    public OrderDaoColumnarImpl(String ordersPath) {
+        this(ordersPath, new OrderFileReaderScannerImpl(), new OrderFileWriterAtomicImpl());
+    }
+
+    /**
+     * @param ordersPath directory of the order files, created when first used
+     * @param orderFileReader reads an order file into the columns
+     * @param orderFileWriter writes a date's orders back after a change
+     */
+    public OrderDaoColumnarImpl(String ordersPath, OrderFileReader orderFileReader, OrderFileWriter orderFileWriter) {
+        this.ordersPath = Paths.get(ordersPath);
+        this.orderFileReader = orderFileReader;
+        this.orderFileWriter = orderFileWriter;
+        this.orderNumberSequence = new OrderNumberSequence(Paths.get(ordersPath, SEQUENCE_FILE_NAME));
+        this.columns = new OrderColumnStore();
+        this.rows = new OrderNumberIndex();
+        this.days = new TreeMap<>();
+    }
+
+    private static int epochDayOf(LocalDate orderDate) {
+        return Math.toIntExact(orderDate.toEpochDay());
+    }
+
+    /**
+     * @return the epoch day, clamped to the days an order can be on.
+     */
+    private static int clampedEpochDayOf(LocalDate orderDate) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, orderDate.toEpochDay()));
+    }
+
+    private Path fileOf(LocalDate orderDate) {
+        return ordersPath.resolve(OrderCatalog.getFileName(orderDate));
+    }
+
+    private void load() throws FlooringDataPersistenceException {
+        if(loaded) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(ordersPath);
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not create orders directory", e);
+        }
+
+        final List<LocalDate> orderDates = new ArrayList<>();
+        try(DirectoryStream<Path> directory = Files.newDirectoryStream(ordersPath)) {
+            for(Path file : directory) {
+                final LocalDate orderDate = OrderCatalog.parseFileName(file.getFileName().toString());
+                if(orderDate != null) {
+                    orderDates.add(orderDate);
+                }
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not list the order files in %s.", ordersPath), e);
+        }
+
+        try {
+            for(LocalDate orderDate : orderDates) {
+                loadDay(orderDate);
+            }
+        } catch(FlooringDataPersistenceException | RuntimeException e) {
+            clearColumns();
+            throw e;
+        }
+        loaded = true;
+    }
+
+    private void clearColumns() {
+        columns.clear();
+        rows.clear();
+        days.clear();
+    }
+
+    /**
+     * Appends every order in a date's file to the columns, a missing file has no orders.
+     */
+    private void loadDay(LocalDate orderDate) throws FlooringDataPersistenceException {
+        final List<Order> dayOrders;
+        try {
+            dayOrders = orderFileReader.read(fileOf(orderDate), orderDate, new CRC32());
+        } catch(OrderNotFoundException e) {
+            return;
+        }
+
+        for(Order order : dayOrders) {
+            try {
+                rows.put(order.getOrderNumber(), orderDate, columns.append(order));
+            } catch(ArithmeticException e) {
+                throw new FlooringDataPersistenceException(String.format(
+                        "Order #%d in %s has an amount with more than %d decimal places.",
+                        order.getOrderNumber(),
+                        fileOf(orderDate),
+                        OrderColumnStore.FIXED_POINT_SCALE
+                ), e);
+            }
+            addToDay(order.getOrderNumber(), orderDate);
+        }
+    }
+
+    private void addToDay(int orderNumber, LocalDate orderDate) {
+        days.computeIfAbsent(epochDayOf(orderDate), epochDay -> new DayOrderNumbers()).add(orderNumber);
+    }
+
+    /**
+     * Drops a date's orders from memory and reads them back from its file, after the file could not be written.
+     * If the file cannot be read either, every order is dropped and read again on next use.
+     */
+    private void reloadDay(LocalDate orderDate) {
+        // removing a row moves another into its place, so the rows are looked up again by number
+        final int[] dayOrderNumbers = Arrays.stream(rowsOf(epochDayOf(orderDate), epochDayOf(orderDate)))
+                .map(columns::getOrderNumber)
+                .toArray();
+        for(int orderNumber : dayOrderNumbers) {
+            removeRow(orderNumber, rows.getRow(orderNumber));
+        }
+        try {
+            loadDay(orderDate);
+        } catch(FlooringDataPersistenceException e) {
+            clearColumns();
+            loaded = false;
+        }
+    }
+
+    /**
+     * Removes a row, moving the last row into its place.
+     */
+    private void removeRow(int orderNumber, int row) {
+        final int epochDay = columns.getEpochDay(row);
+        final int movedOrderNumber = columns.remove(row);
+        rows.remove(orderNumber);
+        if(movedOrderNumber != -1) {
+            rows.put(movedOrderNumber, LocalDate.ofEpochDay(columns.getEpochDay(row)), row);
+        }
+        final DayOrderNumbers day = days.get(epochDay);
+        day.remove(orderNumber);
+        if(day.size == 0) {
+            days.remove(epochDay);
+        }
+    }
+
+    /**
+     * @return the rows from one day to another, by date and then order number.
+     */
+    private int[] rowsOf(int fromEpochDay, int toEpochDay) {
+        final Collection<DayOrderNumbers> inRange = days.subMap(fromEpochDay, true, toEpochDay, true).values();
+        int found = 0;
+        for(DayOrderNumbers day : inRange) {
+            found += day.size;
+        }
+
+        final int[] sortedRows = new int[found];
+        int i = 0;
+        for(DayOrderNumbers day : inRange) {
+            for(int j = 0; j < day.size; j++) {
+                sortedRows[i++] = rows.getRow(day.orderNumbers[j]);
+            }
+        }
+        return sortedRows;
+    }
+
+    private List<Order> ordersOf(int[] sortedRows) {
+        final List<Order> found = new ArrayList<>(sortedRows.length);
+        for(int row : sortedRows) {
+            found.add(columns.getOrder(row));
+        }
+        return found;
+    }
+
+    /**
+     * @return the row of the order, or -1 if there is no such order on the date.
+     */
+    private int rowOf(LocalDate orderDate, int orderNumber) {
+        final int row = rows.getRow(orderNumber);
+        return row != -1 && columns.getEpochDay(row) == orderDate.toEpochDay() ? row : -1;
+    }
+
+    /**
+     * Rewrites a date's file from the columns, deleting it once the date has no orders.
+     * If that fails the date is read back from its file, dropping the changes that were not written.
+     */
+    private void persistDay(LocalDate orderDate) throws FlooringDataPersistenceException {
+        final List<Order> dayOrders = ordersOf(rowsOf(epochDayOf(orderDate), epochDayOf(orderDate)));
+        try {
+            if(dayOrders.isEmpty()) {
+                Files.deleteIfExists(fileOf(orderDate));
+            } else {
+                orderFileWriter.write(fileOf(orderDate), dayOrders);
+            }
+        } catch(IOException e) {
+            reloadDay(orderDate);
+            throw new FlooringDataPersistenceException(String.format("Could not remove the order file for %s.", orderDate), e);
+        } catch(FlooringDataPersistenceException | RuntimeException e) {
+            reloadDay(orderDate);
+            throw e;
+        }
+    }
+
+    private FlooringDataPersistenceException unstorable(Order order, ArithmeticException e) {
+        return new FlooringDataPersistenceException(String.format(
+                "Order #%d has an amount with more than %d decimal places, or too large to store.",
+                order.getOrderNumber(),
+                OrderColumnStore.FIXED_POINT_SCALE
+        ), e);
+    }
+
+    private int maxOrderNumber() {
+        int max = 0;
+        for(int row = 0; row < columns.size(); row++) {
+            max = Math.max(max, columns.getOrderNumber(row));
+        }
+        return max;
+    }
+
+    /**
+     * Stores a copy of the order under the number, the caller's order is left alone until its date is written.
+     * @return the stored copy.
+     */
+    private Order add(Order order, int orderNumber) throws FlooringDataPersistenceException {
+        if(rows.getRow(orderNumber) != -1) {
+            throw new FlooringDataPersistenceException("Cannot add an order that already exists!");
+        }
+        final Order added = order.cloneOrder().setOrderNumber(orderNumber);
+        try {
+            rows.put(orderNumber, added.getOrderDate(), columns.append(added));
+        } catch(ArithmeticException e) {
+            throw unstorable(added, e);
+        }
+        addToDay(orderNumber, added.getOrderDate());
+        return added;
+    }
+
+    /**
+     * Only once the adds are written is each added order's number set on the caller's own order.
+     * @return the results, holding the caller's orders.
+     */
+    private static List<OrderResult> toCallerResults(Collection<Order> ordersAdded, List<OrderResult> results) {
+        final List<OrderResult> callerResults = new ArrayList<>(results.size());
+        int i = 0;
+        for(Order order : ordersAdded) {
+            final OrderResult result = results.get(i++);
+            callerResults.add(result.isSuccessful()
+                    ? OrderResult.success(order.setOrderNumber(result.getOrder().getOrderNumber()))
+                    : result);
+        }
+        return callerResults;
+    }
+
+    private Order edit(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final int row = rowOf(order.getOrderDate(), order.getOrderNumber());
+        if(row == -1) {
+            throw new OrderNotFoundException(
+                    "Cannot edit an order that does not exist!",
+                    order.getOrderDate(),
+                    order.getOrderNumber()
+            );
+        }
+        try {
+            columns.set(row, order);
+        } catch(ArithmeticException e) {
+            throw unstorable(order, e);
+        }
+        return order;
+    }
+
+    private Order remove(LocalDate orderDate, int orderNumber) throws OrderNotFoundException {
+        final int row = rowOf(orderDate, orderNumber);
+        if(row == -1) {
+            throw new OrderNotFoundException(
+                    String.format(
+                            "Could not find order #%d to remove.",
+                            orderNumber
+                    ),
+                    orderDate,
+                    orderNumber
+            );
+        }
+        final Order removed = columns.getOrder(row);
+        removeRow(orderNumber, row);
+        return removed;
+    }
+
+    @Override
+    public void exportAll(String fileNameWithPath) throws FlooringDataPersistenceException {
+        if(getNumberOfOrders() == 0) {
+            throw new FlooringDataPersistenceException("Cannot export when you have no orders!");
+        }
+
+        final File file = new File(fileNameWithPath);
+        if(file.exists()) {
+            throw new FlooringDataPersistenceException(String.format("Cannot export to an existing file, %s", fileNameWithPath));
+        }
+        if(file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new FlooringDataPersistenceException(String.format("Unable to make directories for requested file %s", fileNameWithPath));
+        }
+
+        try(PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+            Stream<Order> allOrders = streamAllOrders()) {
+            out.println(OrderMarshaller.EXPORT_ALL_HEADER);
+            allOrders.forEach(order -> out.println(OrderMarshaller.exportMarshallOrder(order)));
+            if(out.checkError()) {
+                throw new IOException("The export could not be written.");
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Error writing to or open file %s.", fileNameWithPath), e);
+        } catch(UncheckedFlooringDataPersistenceException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public synchronized int getNumberOfOrders() throws FlooringDataPersistenceException {
+        load();
+        return columns.size();
+    }
+
+    @Override
+    public synchronized List<Order> getAllOrders() throws FlooringDataPersistenceException {
+        load();
+        return ordersOf(rowsOf(Integer.MIN_VALUE, Integer.MAX_VALUE));
+    }
+
+    /**
+     * @return the first date with orders at or after the given date, or null if there is none.
+     */
+    private synchronized LocalDate nextOrderDate(LocalDate from) throws FlooringDataPersistenceException {
+        load();
+        final Integer epochDay = days.ceilingKey(clampedEpochDayOf(from));
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private synchronized List<Order> readDay(LocalDate orderDate) throws FlooringDataPersistenceException {
+        load();
+        return ordersOf(rowsOf(clampedEpochDayOf(orderDate), clampedEpochDayOf(orderDate)));
+    }
+
+    /**
+     * Creates the orders of one date at a time.
+     */
+    @Override
+    public Stream<Order> streamAllOrders() throws FlooringDataPersistenceException {
+        return Stream.iterate(nextOrderDate(LocalDate.MIN), Objects::nonNull, orderDate -> {
+                    try {
+                        return nextOrderDate(orderDate.plusDays(1));
+                    } catch(FlooringDataPersistenceException e) {
+                        throw new UncheckedFlooringDataPersistenceException(e);
+                    }
+                })
+                .flatMap(orderDate -> {
+                    try {
+                        return readDay(orderDate).stream();
+                    } catch(FlooringDataPersistenceException e) {
+                        throw new UncheckedFlooringDataPersistenceException(e);
+                    }
+                });
+    }
+
+    @Override
+    public List<Order> getAllOrders(LocalDate orderDate) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final List<Order> dayOrders = readDay(orderDate);
+        if(dayOrders.isEmpty()) {
+            throw new OrderNotFoundException("No orders exist for given date!", orderDate, -1);
+        }
+        return dayOrders;
+    }
+
+    @Override
+    public synchronized List<Order> getOrders(LocalDate from, LocalDate to) throws FlooringDataPersistenceException {
+        load();
+        return from.isAfter(to) ? new ArrayList<>() : ordersOf(rowsOf(clampedEpochDayOf(from), clampedEpochDayOf(to)));
+    }
+
+    /**
+     * Scans the name column, only creating the orders that match.
+     */
+    @Override
+    public synchronized List<Order> getOrdersByCustomerName(String customerNamePrefix) throws FlooringDataPersistenceException {
+        load();
+        final String prefix = OrderCustomerIndex.normalize(customerNamePrefix);
+        final int[] matchingRows = IntStream.range(0, columns.size())
+                .filter(row -> OrderCustomerIndex.normalize(columns.getCustomerName(row)).startsWith(prefix))
+                .toArray();
+        final List<Order> customerOrders = ordersOf(matchingRows);
+        customerOrders.sort(Comparator.comparing(Order::getOrderDate).thenComparingInt(Order::getOrderNumber));
+        return customerOrders;
+    }
+
+    @Override
+    public synchronized Order addOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        load();
+        final Order added = add(order, orderNumberSequence.next(this::maxOrderNumber));
+        persistDay(added.getOrderDate());
+        return order.setOrderNumber(added.getOrderNumber());
+    }
+
+    @Override
+    public synchronized Order getOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        load();
+        final int row = rowOf(orderDate, orderNumber);
+        if(row == -1) {
+            throw new OrderNotFoundException(
+                    String.format(
+                            "No order found for %s with id %d",
+                            orderDate,
+                            orderNumber
+                    ),
+                    orderDate,
+                    orderNumber
+            );
+        }
+        return columns.getOrder(row);
+    }
+
+    @Override
+    public synchronized Order getOrder(int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        load();
+        final int row = rows.getRow(orderNumber);
+        if(row == -1) {
+            throw new OrderNotFoundException(
+                    String.format(
+                            "No order found with id %d",
+                            orderNumber
+                    ),
+                    null,
+                    orderNumber
+            );
+        }
+        return columns.getOrder(row);
+    }
+
+    @Override
+    public synchronized Order editOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        load();
+        final Order edited = edit(order);
+        persistDay(edited.getOrderDate());
+        return edited;
+    }
+
+    @Override
+    public synchronized Order removeOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        load();
+        final Order removed = remove(orderDate, orderNumber);
+        persistDay(orderDate);
+        return removed;
+    }
+
+    private interface OrderMutation {
+        Order apply(Order order, int index) throws FlooringDataPersistenceException, OrderNotFoundException;
+    }
+
+    /**
+     * Applies a change to each order, then writes each changed date once.
+     * An order that fails on its own is failed alone, a date that cannot be written fails every order changed on it.
+     */
+    private List<OrderResult> mutateEach(Collection<Order> batch, OrderMutation perOrder) {
+        final List<OrderResult> results = new ArrayList<>(batch.size());
+        final Map<LocalDate, List<Integer>> changedDates = new TreeMap<>();
+        int index = 0;
+        for(Order order : batch) {
+            try {
+                final Order changed = perOrder.apply(order, index);
+                results.add(OrderResult.success(changed));
+                changedDates.computeIfAbsent(changed.getOrderDate(), orderDate -> new ArrayList<>()).add(index);
+            } catch(FlooringDataPersistenceException | OrderNotFoundException e) {
+                results.add(OrderResult.failure(order, e));
+            }
+            index++;
+        }
+
+        final List<Order> given = new ArrayList<>(batch);
+        for(Map.Entry<LocalDate, List<Integer>> changedDate : changedDates.entrySet()) {
+            try {
+                persistDay(changedDate.getKey());
+            } catch(FlooringDataPersistenceException e) {
+                for(int failed : changedDate.getValue()) {
+                    results.set(failed, OrderResult.failure(given.get(failed), e));
+                }
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public synchronized List<OrderResult> addOrders(Collection<Order> ordersToAdd) throws FlooringDataPersistenceException {
+        if(ordersToAdd.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        load();
+        // one block of numbers for the whole call, handed out in the order given
+        final int firstOrderNumber = orderNumberSequence.nextBlock(ordersToAdd.size(), this::maxOrderNumber);
+        return toCallerResults(ordersToAdd, mutateEach(ordersToAdd, (order, index) -> add(order, firstOrderNumber + index)));
+    }
+
+    @Override
+    public synchronized List<OrderResult> editOrders(Collection<Order> ordersToEdit) throws FlooringDataPersistenceException {
+        load();
+        return mutateEach(ordersToEdit, (order, index) -> edit(order));
+    }
+
+    @Override
+    public synchronized List<OrderResult> removeOrders(Collection<Order> ordersToRemove) throws FlooringDataPersistenceException {
+        load();
+        return mutateEach(ordersToRemove, (order, index) -> remove(order.getOrderDate(), order.getOrderNumber()));
+    }
+
+    /**
+     * Imports every Orders_MMddyyyy.txt file of a directory, keeping the order numbers, so this dao can replace it.
+     * An order already here with the same date and number is replaced.
+     * @param ordersPath directory holding the order files, such as Data/Orders
+     * @return number of orders imported.
+     * @throws FlooringDataPersistenceException if a file cannot be read or written,
+     *  or an order number is already used on another date.
+     */
+    public synchronized int importOrderFiles(String ordersPath) throws FlooringDataPersistenceException {
+        final NavigableMap<LocalDate, Path> orderFiles = new TreeMap<>();
+        try(DirectoryStream<Path> directory = Files.newDirectoryStream(Paths.get(ordersPath))) {
+            for(Path file : directory) {
+                final LocalDate orderDate = OrderCatalog.parseFileName(file.getFileName().toString());
+                if(orderDate != null) {
+                    orderFiles.put(orderDate, file);
+                }
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not list the order files in %s.", ordersPath), e);
+        }
+
+        load();
+        int imported = 0;
+        for(Map.Entry<LocalDate, Path> orderFile : orderFiles.entrySet()) {
+            final List<Order> fileOrders;
+            try {
+                fileOrders = orderFileReader.read(orderFile.getValue(), orderFile.getKey(), new CRC32());
+            } catch(OrderNotFoundException e) {
+                throw new FlooringDataPersistenceException("An order file was removed during the import.", e);
+            }
+
+            int lastOrderNumber = 0;
+            for(Order order : fileOrders) {
+                importOrder(order);
+                lastOrderNumber = Math.max(lastOrderNumber, order.getOrderNumber());
+            }
+            persistDay(orderFile.getKey());
+            orderNumberSequence.advanceTo(lastOrderNumber, this::maxOrderNumber);
+            imported += fileOrders.size();
+        }
+        return imported;
+    }
+
+    private void importOrder(Order order) throws FlooringDataPersistenceException {
+        final int row = rows.getRow(order.getOrderNumber());
+        if(row == -1) {
+            add(order, order.getOrderNumber());
+        } else if(columns.getEpochDay(row) == order.getOrderDate().toEpochDay()) {
+            try {
+                columns.set(row, order);
+            } catch(ArithmeticException e) {
+                throw unstorable(order, e);
+            }
+        } else {
+            throw new FlooringDataPersistenceException(String.format(
+                    "Order number %d is already used on %s.",
+                    order.getOrderNumber(),
+                    LocalDate.ofEpochDay(columns.getEpochDay(row))
+            ));
+        }
+    }
+
+    /**
+     * @return bytes of direct memory held by the orders.
+     * @throws FlooringDataPersistenceException if the orders cannot be loaded.
+     */
+    public synchronized long getOffHeapBytes() throws FlooringDataPersistenceException {
+        load();
+        return columns.getOffHeapBytes();
+    }
+}
@@ -2,202 +2,474 @@ package dev.kmfg.flooring.dao;
 
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.dao.exception.UncheckedFlooringDataPersistenceException;
 import dev.kmfg.flooring.model.Order;
-import dev.kmfg.flooring.model.Product;
-import dev.kmfg.flooring.model.StateTax;
-import dev.kmfg.flooring.service.validator.GenericValidator;
 
 import java.io.*;
-import java.math.BigDecimal;
+import java.lang.ref.WeakReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+/**
+ * Stores orders in one file per date, and is safe to share between threads.
+ * Every date has its own read/write lock, so reads of a date share it, and a commit to one date never waits on another date.
+ * Work on every date at once, such as compacting the journal or rebuilding an index, holds the store lock exclusively,
+ *  while everything else holds it shared. Locks are always taken store lock first, then a date lock.
+ * Order numbers are claimed without any lock at all.
+ * When other processes share the orders directory, each date lock is backed by a lock on the date in OrderFileLocks,
+ *  shared for reads and exclusive for commits, and order numbers are claimed under the lock on the sequence.
+ */
 public class OrderDaoFileImpl implements OrderDao {
-    private static final String ORDERS_FILE_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
-    private static final String EXPORT_ALL_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,Date";
-    // used to populate or read orders in a date
-    private static final String FILE_FORMAT = "/Orders_%02d%02d%02d.txt";
-    // used to check if a given file or path is an order likely generated by the application
-    private static final String FILE_FORMAT_REGEX = "^Orders_\\d{2}\\d{2}\\d{4}\\.txt";
-    private static final String DELIMITER = ",";
-    private static final int REQUIRED_PARTS = 12;
-    private static final DateTimeFormatter INT_DATE_FORMATTER = DateTimeFormatter.ofPattern("MMddyyyy");
+    // kept next to the order files, the names cannot be mistaken for order files
+    private static final String SEQUENCE_FILE_NAME = "OrderNumberSequence.dat";
+    private static final String CATALOG_FILE_NAME = "OrderCatalog.dat";
+    private static final String JOURNAL_FILE_NAME = "OrderJournal.dat";
+    private static final String CUSTOMER_INDEX_FILE_NAME = "OrderCustomerIndex.dat";
+    private static final int CACHED_PARTITIONS = 128;
+    // journal records kept before they are folded back into the order files in the background
+    private static final int JOURNAL_RECORDS_TO_COMPACT = 256;
+    private static final int DEFAULT_MAX_COMMIT_BATCH_SIZE = 64;
+    // no waiting by default, batches still form while an earlier commit of the date is in progress
+    private static final long DEFAULT_MAX_COMMIT_LINGER_MILLIS = 0;
+    private static final long COMPACTOR_SHUTDOWN_SECONDS = 10;
 
     private final String ordersPath;
-    private final String fileName;
+    private final OrderFileParallelReader orderFileParallelReader;
+    private final OrderExportPipeline exportPipeline;
+    private final OrderFileWriter orderFileWriter;
+    private final OrderNumberSequence orderNumberSequence;
+    private final OrderCatalog catalog;
+    private final OrderPartitionCache partitionCache;
+    private final OrderJournal journal;
+    private final OrderCustomerIndex customerIndex;
+    private final OrderNumberIndex orderNumberIndex;
+    private final boolean journaled;
+    private final ExecutorService compactor;
+    private final OrderCommitCoordinator<DayMutation, Order> commitCoordinator;
+    // null if no other process shares the orders directory
+    private final OrderFileLocks processLocks;
 
-    private HashMap<Integer, Order> orders;
+    // orders in memory, partitioned by date so a date is replaced or dropped without touching any other.
+    // a date's partition is only replaced while its lock is held, and only changed in place while it is held exclusively.
+    private final ConcurrentHashMap<LocalDate, OrderPartition> orders;
+    private final ReentrantReadWriteLock storeLock;
+    private final ConcurrentHashMap<LocalDate, ReentrantReadWriteLock> dateLocks;
+    // the orders each date was last indexed from, a date is only indexed again once its orders are replaced
+    private final ConcurrentHashMap<LocalDate, WeakReference<List<Order>>> indexedDays;
+    private final AtomicLong dayIndexCount;
+    private volatile boolean journalReplayed;
+    private final AtomicBoolean compactionQueued;
 
     public OrderDaoFileImpl() {
-        this.ordersPath = "Data/Orders";
-        this.fileName = ordersPath + FILE_FORMAT;
-        this.orders = new HashMap<>();
+        this("Data/Orders");
     }
 
     public OrderDaoFileImpl(String ordersPath) {
+        this(ordersPath, new OrderFileReaderScannerImpl());
+    }
+
+    /**
+     * @param ordersPath directory holding the order files
+     * @param orderFileReader used to parse order files, such as OrderFileReaderMappedImpl
+     */
+    public OrderDaoFileImpl(String ordersPath, OrderFileReader orderFileReader) {
+        this(ordersPath, orderFileReader, false);
+    }
+
+    /**
+     * @param ordersPath directory holding the order files
+     * @param orderFileReader used to parse order files, such as OrderFileReaderMappedImpl
+     * @param journaled true to append mutations to a journal that is folded into the order files in the background,
+     *                  instead of rewriting the day of the order on every mutation.
+     */
+    public OrderDaoFileImpl(String ordersPath, OrderFileReader orderFileReader, boolean journaled) {
+        this(ordersPath, orderFileReader, new OrderFileWriterInPlaceImpl(), journaled);
+    }
+
+    /**
+     * @param ordersPath directory holding the order files
+     * @param orderFileReader used to parse order files, such as OrderFileReaderMappedImpl
+     * @param orderFileWriter used to rewrite order files, such as OrderFileWriterAtomicImpl
+     * @param journaled true to append mutations to a journal that is folded into the order files in the background,
+     *                  instead of rewriting the day of the order on every mutation.
+     */
+    public OrderDaoFileImpl(String ordersPath, OrderFileReader orderFileReader, OrderFileWriter orderFileWriter, boolean journaled) {
+        this(
+                ordersPath,
+                orderFileReader,
+                orderFileWriter,
+                journaled,
+                DEFAULT_MAX_COMMIT_BATCH_SIZE,
+                DEFAULT_MAX_COMMIT_LINGER_MILLIS,
+                Runtime.getRuntime().availableProcessors()
+        );
+    }
+
+    /**
+     * @param ordersPath directory holding the order files
+     * @param orderFileReader used to parse order files, such as OrderFileReaderMappedImpl
+     * @param orderFileWriter used to rewrite order files, such as OrderFileWriterAtomicImpl
+     * @param journaled true to append mutations to a journal that is folded into the order files in the background,
+     *                  instead of rewriting the day of the order on every mutation.
+     * @param processLocks locks shared with other processes using the same orders directory, null if there are none
+     */
+    public OrderDaoFileImpl(
+            String ordersPath,
+            OrderFileReader orderFileReader,
+            OrderFileWriter orderFileWriter,
+            boolean journaled,
+            OrderFileLocks processLocks
+    ) {
+        this(
+                ordersPath,
+                orderFileReader,
+                orderFileWriter,
+                journaled,
+                DEFAULT_MAX_COMMIT_BATCH_SIZE,
+                DEFAULT_MAX_COMMIT_LINGER_MILLIS,
+                Runtime.getRuntime().availableProcessors(),
+                processLocks
+        );
+    }
+
+    /**
+     * @param ordersPath directory holding the order files
+     * @param orderFileReader used to parse order files, such as OrderFileReaderMappedImpl, from many threads at once
+     * @param orderFileWriter used to rewrite order files, such as OrderFileWriterAtomicImpl
+     * @param journaled true to append mutations to a journal that is folded into the order files in the background,
+     *                  instead of rewriting the day of the order on every mutation.
+     * @param maxCommitBatchSize most concurrent mutations to one date committed together
+     * @param maxCommitLingerMillis how long a commit waits for more mutations to the same date to join it
+     * @param readParallelism most order files parsed at once when every order is read or exported, 1 to parse one at a time
+     */
+    public OrderDaoFileImpl(
+            String ordersPath,
+            OrderFileReader orderFileReader,
+            OrderFileWriter orderFileWriter,
+            boolean journaled,
+            int maxCommitBatchSize,
+            long maxCommitLingerMillis,
+            int readParallelism
+    ) {
+        this(ordersPath, orderFileReader, orderFileWriter, journaled, maxCommitBatchSize, maxCommitLingerMillis, readParallelism, null);
+    }
+
+    /**
+     * @param ordersPath directory holding the order files
+     * @param orderFileReader used to parse order files, such as OrderFileReaderMappedImpl, from many threads at once
+     * @param orderFileWriter used to rewrite order files, such as OrderFileWriterAtomicImpl
+     * @param journaled true to append mutations to a journal that is folded into the order files in the background,
+     *                  instead of rewriting the day of the order on every mutation.
+     * @param maxCommitBatchSize most concurrent mutations to one date committed together
+     * @param maxCommitLingerMillis how long a commit waits for more mutations to the same date to join it
+     * @param readParallelism most order files parsed at once when every order is read or exported, 1 to parse one at a time
+     * @param processLocks locks shared with other processes using the same orders directory, null if there are none.
+     *                     The journal is only ever replayed by the process that wrote it, so it cannot be shared.
+     */
+    public OrderDaoFileImpl(
+            String ordersPath,
+            OrderFileReader orderFileReader,
+            OrderFileWriter orderFileWriter,
+            boolean journaled,
+            int maxCommitBatchSize,
+            long maxCommitLingerMillis,
+            int readParallelism,
+            OrderFileLocks processLocks
+    ) {
+        if(journaled && processLocks != null) {
+            throw new IllegalArgumentException("Journal mode cannot share the orders directory with other processes.");
+        }
+
         this.ordersPath = ordersPath;
-        this.fileName = ordersPath + FILE_FORMAT;
-        this.orders = new HashMap<>();
+        this.orderFileParallelReader = new OrderFileParallelReader(orderFileReader, readParallelism);
+        this.exportPipeline = new OrderExportPipeline(readParallelism);
+        this.orderFileWriter = orderFileWriter;
+        this.orderNumberSequence = new OrderNumberSequence(Paths.get(ordersPath, SEQUENCE_FILE_NAME), processLocks);
+        this.catalog = new OrderCatalog(Paths.get(ordersPath), Paths.get(ordersPath, CATALOG_FILE_NAME), processLocks);
+        this.partitionCache = new OrderPartitionCache(CACHED_PARTITIONS);
+        this.journal = new OrderJournal(Paths.get(ordersPath, JOURNAL_FILE_NAME));
+        this.customerIndex = new OrderCustomerIndex(Paths.get(ordersPath, CUSTOMER_INDEX_FILE_NAME), processLocks);
+        this.orderNumberIndex = new OrderNumberIndex();
+        this.journaled = journaled;
+        this.compactor = journaled
+                ? Executors.newSingleThreadExecutor(runnable -> {
+                    final Thread thread = new Thread(runnable, "order-journal-compactor");
+                    // the journal is durable, so an exit mid compaction only means replaying it on the next start
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        this.commitCoordinator = new OrderCommitCoordinator<>(maxCommitBatchSize, maxCommitLingerMillis, this::commit);
+        this.processLocks = processLocks;
+        this.orders = new ConcurrentHashMap<>();
+        this.storeLock = new ReentrantReadWriteLock();
+        this.dateLocks = new ConcurrentHashMap<>();
+        this.indexedDays = new ConcurrentHashMap<>();
+        this.dayIndexCount = new AtomicLong();
+        this.compactionQueued = new AtomicBoolean();
     }
 
-    private int getNextOrderNumber() {
-        return orders.values().stream()
-                .mapToInt(Order::getOrderNumber)
-                .max()
-                .orElse(0) + 1;
+    /**
+     * An add, edit, or remove waiting to be committed with the other mutations to its date.
+     */
+    private static class DayMutation {
+        private enum Kind { ADD, EDIT, REMOVE }
+
+        private final Kind kind;
+        private final Order order;
+        private final LocalDate orderDate;
+        private final int orderNumber;
+
+        private DayMutation(Kind kind, Order order, LocalDate orderDate, int orderNumber) {
+            this.kind = kind;
+            this.order = order;
+            this.orderDate = orderDate;
+            this.orderNumber = orderNumber;
+        }
+
+        private boolean needsOrderNumber() {
+            return kind == Kind.ADD && orderNumber == 0;
+        }
     }
 
-    private Order unmarshallOrder(String orderStr, LocalDate orderDate) throws FlooringDataPersistenceException {
-        final String[] orderParts = orderStr.split(DELIMITER);
-        if(orderParts.length != REQUIRED_PARTS) {
-            throw new FlooringDataPersistenceException(
-                    String.format(
-                            "Malformed data while unmarshalling order. Required %d parts, but received %d.",
-                            REQUIRED_PARTS,
-                            orderParts.length
-                    )
-            );
+    /**
+     * Hands out a block of consecutive order numbers.
+     * @return the first number of the block.
+     */
+    private int getNextOrderNumbers(int count) throws FlooringDataPersistenceException {
+        // only used if the sequence file is missing or corrupt
+        return orderNumberSequence.nextBlock(
+                count,
+                () -> Math.max(catalog.getMaxOrderNumber(), journal.getMaxOrderNumber())
+        );
+    }
+
+    /**
+     * A date locked in this process, and for other processes if they share the orders directory.
+     */
+    private static class DateLock {
+        private final Lock lock;
+        private final OrderFileLocks.Held processLock;
+
+        private DateLock(Lock lock, OrderFileLocks.Held processLock) {
+            this.lock = lock;
+            this.processLock = processLock;
+        }
+
+        private void unlock() {
+            if(processLock != null) {
+                processLock.release();
+            }
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Locks a single date, the store lock must already be held.
+     * The date is locked in this process first, so threads of this process never wait on each other for the process lock.
+     * @param exclusive true to change the date, false to only read it
+     * @return the held lock, to be unlocked by the caller.
+     * @throws FlooringDataPersistenceException if another process held the date for longer than the lock timeout.
+     */
+    private DateLock lockDate(LocalDate orderDate, boolean exclusive) throws FlooringDataPersistenceException {
+        final ReentrantReadWriteLock dateLock = dateLocks.computeIfAbsent(orderDate, date -> new ReentrantReadWriteLock());
+        final Lock lock = exclusive ? dateLock.writeLock() : dateLock.readLock();
+        lock.lock();
+        if(processLocks == null) {
+            return new DateLock(lock, null);
         }
 
-        //  MaterialCost, LaborCost, Tax, Total are ignored as these are calculated values
         try {
-            final int orderNumber = Integer.parseInt(orderParts[0]);
-            final String customerName = orderParts[1].replace('#', ',');
-            final String stateAbbreviation = orderParts[2];
-            final BigDecimal taxRate = GenericValidator.createBigDecimal(orderParts[3]);
-            final String productType = orderParts[4];
-            final BigDecimal area = GenericValidator.createBigDecimal(orderParts[5]);
-            final BigDecimal costPerSqft = GenericValidator.createBigDecimal(orderParts[6]);
-            final BigDecimal laborCostPerSqft = GenericValidator.createBigDecimal(orderParts[7]);
-
-            final StateTax stateTax = new StateTax(stateAbbreviation, "Not Loaded", taxRate);
-            final Product product = new Product(productType, costPerSqft, laborCostPerSqft);
-
-            return new Order()
-                    .setCustomerName(customerName)
-                    .setOrderNumber(orderNumber)
-                    .setOrderDate(orderDate)
-                    .setArea(area)
-                    .setStateTax(stateTax)
-                    .setProduct(product);
-        } catch (NumberFormatException e) {
-            throw new FlooringDataPersistenceException(
-                    "Malformed data while unmarshalling order.",
-                    e
-            );
+            return new DateLock(lock, processLocks.lockDate(orderDate, exclusive));
+        } catch(FlooringDataPersistenceException | RuntimeException e) {
+            lock.unlock();
+            throw e;
         }
     }
 
     /**
-     * Unlike the regular marshall, this includes the date, and does not convert commas to pound.
-     * Does not null check any fields on order. May produce NPE if not validated.
-     * @param order the order to stringify
-     * @return the stringified order
-     */
-    private String exportMarshallOrder(Order order) {
-        return Stream.of(
-                        order.getOrderNumber(),
-                        String.format("\"%s\"", order.getCustomerName()), // csv does this so were gonna do it too.
-                        order.getStateTax().getStateAbbreviation(),
-                        order.getStateTax().getTaxRate(),
-                        order.getProduct().getProductType(),
-                        order.getArea(),
-                        order.getProduct().getCostPerSqft(),
-                        order.getProduct().getLaborCostPerSqft(),
-                        order.getMaterialCost(),
-                        order.getLaborCost(),
-                        order.getTax(),
-                        order.getTotal(),
-                        GenericValidator.EXPORT_DATE_FORMATTER.format(order.getOrderDate())
-                )
-                .map(Object::toString)
-                .collect(Collectors.joining(","));
-    }
-
-    /**
-     * Does not null check any fields on order. May produce NPE if not validated.
-     * @param order the order to stringify
-     * @return the stringified order
-     */
-    private String marshallOrder(Order order) {
-        return Stream.of(
-                        order.getOrderNumber(),
-                        order.getCustomerName().replace(',', '#'),
-                        order.getStateTax().getStateAbbreviation(),
-                        order.getStateTax().getTaxRate(),
-                        order.getProduct().getProductType(),
-                        order.getArea(),
-                        order.getProduct().getCostPerSqft(),
-                        order.getProduct().getLaborCostPerSqft(),
-                        order.getMaterialCost(),
-                        order.getLaborCost(),
-                        order.getTax(),
-                        order.getTotal()
-                )
-                .map(Object::toString)
-                .collect(Collectors.joining(","));
+     * Creates the orders directory and replays the journal if that is not done yet.
+     * Must be called before any lock is held, replaying may need the store lock exclusively.
+     */
+    private void ensureReady() throws FlooringDataPersistenceException {
+        createOrdersDirectory();
+        replayJournal();
+    }
+
+    /**
+     * Replays the journal left by the last run, once.
+     * Without journal mode nothing else will fold it into the order files, so that is done right away.
+     * @throws FlooringDataPersistenceException if the journal cannot be replayed.
+     */
+    private void replayJournal() throws FlooringDataPersistenceException {
+        if(journalReplayed) {
+            return;
+        }
+
+        storeLock.writeLock().lock();
+        try {
+            if(journalReplayed) {
+                return;
+            }
+
+            journal.replay();
+            journalReplayed = true;
+            if(journal.getRecordCount() > 0) {
+                if(journaled) {
+                    queueCompaction();
+                } else {
+                    compactJournal();
+                }
+            }
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    private void queueCompaction() {
+        if(!compactionQueued.compareAndSet(false, true)) {
+            return;
+        }
+        compactor.execute(() -> {
+            compactionQueued.set(false);
+            try {
+                compactJournal();
+            } catch(FlooringDataPersistenceException e) {
+                // every record is still in the journal, so nothing is lost and the next compaction retries.
+            }
+        });
     }
 
     private String getFileName(LocalDate orderDate) {
-        return String.format(
-                fileName,
-                orderDate.getMonthValue(),
-                orderDate.getDayOfMonth(),
-                orderDate.getYear()
-        );
+        return ordersPath + "/" + OrderCatalog.getFileName(orderDate);
     }
 
     /**
-     * Reads orders on the specific date.
+     * Reads the orders in the file of a date. The file is only parsed if the cached orders for the date are out of date.
      * @throws FlooringDataPersistenceException if there is an issue accessing the orders.
      * @throws OrderNotFoundException if the orders file does not exist.
      */
-    private void read(LocalDate orderDate) throws OrderNotFoundException, FlooringDataPersistenceException {
-        Scanner scanner;
+    private List<Order> readFile(LocalDate orderDate) throws OrderNotFoundException, FlooringDataPersistenceException {
+        return readFile(orderDate, Collections.emptyMap());
+    }
 
+    /**
+     * Same as reading the file of a date, but on a cache miss the file may already have been parsed.
+     * @param parsedFiles files parsed ahead of time, by date
+     */
+    private List<Order> readFile(LocalDate orderDate, Map<LocalDate, OrderFileParallelReader.ParsedFile> parsedFiles)
+            throws OrderNotFoundException, FlooringDataPersistenceException {
+        final Path file = Paths.get(getFileName(orderDate));
+
+        List<Order> dayOrders = partitionCache.get(orderDate, file);
+        if(dayOrders == null) {
+            OrderFileParallelReader.ParsedFile parsedFile = parsedFiles.get(orderDate);
+            if(parsedFile == null) {
+                parsedFile = orderFileParallelReader.read(orderDate, file);
+            }
+            // the cached list, so the next hit hands back the same orders and the day is not indexed again
+            dayOrders = partitionCache.put(orderDate, parsedFile.getStamp(), parsedFile.getOrders(), parsedFile.getChecksum());
+        }
+        return dayOrders;
+    }
+
+    private List<Order> loadDay(LocalDate orderDate) throws OrderNotFoundException, FlooringDataPersistenceException {
+        return loadDay(orderDate, Collections.emptyMap());
+    }
+
+    /**
+     * Gets the orders of a date, as the order file with any journaled mutations laid over it.
+     * @param parsedFiles files parsed ahead of time, by date
+     * @throws FlooringDataPersistenceException if there is an issue accessing the orders.
+     * @throws OrderNotFoundException if there are no orders on the date.
+     */
+    private List<Order> loadDay(LocalDate orderDate, Map<LocalDate, OrderFileParallelReader.ParsedFile> parsedFiles)
+            throws OrderNotFoundException, FlooringDataPersistenceException {
+        if(!journal.hasPending(orderDate)) {
+            return indexDay(orderDate, readFile(orderDate, parsedFiles));
+        }
+
+        List<Order> fileOrders;
         try {
-            scanner = new Scanner(
-                    new BufferedReader(
-                            new FileReader(getFileName(orderDate))
-                    )
-            );
-        } catch(FileNotFoundException e) {
+            fileOrders = readFile(orderDate, parsedFiles);
+        } catch(OrderNotFoundException e) {
+            fileOrders = new ArrayList<>();
+        }
+
+        final List<Order> dayOrders = journal.apply(orderDate, fileOrders);
+        if(dayOrders.isEmpty()) {
             throw new OrderNotFoundException("No orders exist for given date!", orderDate, -1);
         }
+        return indexDay(orderDate, dayOrders);
+    }
 
-        // remove any orders with this current date
-        orders.entrySet()
-                .removeIf(entry -> entry.getValue().getOrderDate().isEqual(orderDate));
+    /**
+     * Records where every order of a date is in the order number index,
+     *  unless these are the very orders the date was last indexed from, as on a partition cache hit.
+     * @return the same orders.
+     */
+    private List<Order> indexDay(LocalDate orderDate, List<Order> dayOrders) {
+        final WeakReference<List<Order>> indexed = indexedDays.get(orderDate);
+        if(indexed != null && indexed.get() == dayOrders) {
+            return dayOrders;
+        }
 
-        String currentLine;
-        Order order;
-        if(scanner.hasNextLine()) {
-            scanner.nextLine(); // consume the CSV header.
+        final int[] orderNumbers = new int[dayOrders.size()];
+        for(int row = 0; row < orderNumbers.length; row++) {
+            orderNumbers[row] = dayOrders.get(row).getOrderNumber();
         }
-        while(scanner.hasNextLine()) {
-            currentLine = scanner.nextLine();
-            order = unmarshallOrder(currentLine, orderDate);
-            orders.put(order.getOrderNumber(), order);
+        orderNumberIndex.putDay(orderDate, orderNumbers);
+        indexedDays.put(orderDate, new WeakReference<>(dayOrders));
+        dayIndexCount.incrementAndGet();
+        return dayOrders;
+    }
+
+    /**
+     * Reads orders on the specific date into memory. The date's lock must be held.
+     * @throws FlooringDataPersistenceException if there is an issue accessing the orders.
+     * @throws OrderNotFoundException if there are no orders on the date.
+     */
+    private void read(LocalDate orderDate) throws OrderNotFoundException, FlooringDataPersistenceException {
+        final List<Order> dayOrders;
+        try {
+            dayOrders = loadDay(orderDate);
+        } catch(OrderNotFoundException e) {
+            orders.remove(orderDate);
+            throw e;
         }
 
-        scanner.close();
+        // replaces any orders with this current date
+        orders.put(orderDate, OrderPartition.of(dayOrders));
     }
 
-
     /**
-     * Reads every order on every date.
+     * Reads orders on the specific date, if there are any.
+     * When there are none, any orders in memory for the date are dropped.
      * @throws FlooringDataPersistenceException if there is an issue accessing the orders.
-     * @throws OrderNotFoundException if there was an order date thought to exist, that couldn't be collected.
      */
-    private void readAll() throws FlooringDataPersistenceException, OrderNotFoundException {
-        Path filePath = Paths.get(ordersPath);
+    private void readIfPresent(LocalDate orderDate) throws FlooringDataPersistenceException {
+        try {
+            read(orderDate);
+        } catch(OrderNotFoundException e) {
+            // read already dropped the date
+        }
+    }
+
+    private void createOrdersDirectory() throws FlooringDataPersistenceException {
+        final Path filePath = Paths.get(ordersPath);
 
         if(!Files.exists(filePath)) {
             try {
@@ -206,22 +478,74 @@ public class OrderDaoFileImpl implements OrderDao {
                 throw new FlooringDataPersistenceException("Could not create orders directory", e);
             }
         }
+    }
 
-        try {
-            orders = new HashMap<>();
+    /**
+     * Reads every order on every date the catalog knows of. The store lock must be held.
+     * Files that are not cached are parsed in parallel first, then every date is merged in date order,
+     *  exactly as if each had been read one after another.
+     * @return every order, by date and then order number.
+     * @throws FlooringDataPersistenceException if there is an issue accessing the orders.
+     * @throws OrderNotFoundException if there was an order date thought to exist, that couldn't be collected.
+     */
+    private List<Order> readAll() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final NavigableSet<LocalDate> orderDates = getOrderDates();
+        final Map<LocalDate, Path> uncachedFiles = new LinkedHashMap<>();
+        for(LocalDate orderDate : orderDates) {
+            if(!partitionCache.contains(orderDate)) {
+                uncachedFiles.put(orderDate, Paths.get(getFileName(orderDate)));
+            }
+        }
+        final Map<LocalDate, OrderFileParallelReader.ParsedFile> parsedFiles = orderFileParallelReader.readAll(uncachedFiles);
 
-            for(Path path : Files.list(filePath).collect(Collectors.toList())) {
-                // if it's not a file or doesn't match the file format, skip.
-                if(!Files.isRegularFile(path) || !path.getFileName().toString().matches(FILE_FORMAT_REGEX)) {
-                    continue;
+        final List<Order> allOrders = new ArrayList<>();
+        for(LocalDate orderDate : orderDates) {
+            final DateLock dateLock = lockDate(orderDate, false);
+            try {
+                final OrderPartition partition = OrderPartition.of(loadDay(orderDate, parsedFiles));
+                orders.put(orderDate, partition);
+                allOrders.addAll(partition.values());
+            } catch(OrderNotFoundException e) {
+                // the journal may have removed every order of a date that still has a file,
+                //  or a commit may have removed the date since the dates were listed
+                if(!journal.hasPending(orderDate) && catalog.getEntry(orderDate) != null) {
+                    throw e;
                 }
-                final String fileName = path.getFileName().toString();
-                final String dateStr = fileName.substring(fileName.indexOf('_') + 1, fileName.indexOf('.'));
-                read(LocalDate.parse(dateStr, INT_DATE_FORMATTER));
+            } finally {
+                dateLock.unlock();
             }
-        } catch (IOException e) {
-            throw new FlooringDataPersistenceException("Could not read orders path", e);
         }
+        return allOrders;
+    }
+
+    /**
+     * @return every date with an order file or journaled mutations, ascending.
+     */
+    private NavigableSet<LocalDate> getOrderDates() throws FlooringDataPersistenceException {
+        final NavigableSet<LocalDate> orderDates = new TreeSet<>(catalog.getOrderDates());
+        orderDates.addAll(journal.getPendingDates());
+        return orderDates;
+    }
+
+    /**
+     * Orders in memory and in the partition cache are shared between reads and never changed,
+     *  so a caller is only ever given clones it is free to change.
+     * @return a clone of every order, in the same order.
+     */
+    private static List<Order> cloneOrders(List<Order> sharedOrders) {
+        final List<Order> clones = new ArrayList<>(sharedOrders.size());
+        for(Order order : sharedOrders) {
+            clones.add(order.cloneOrder());
+        }
+        return clones;
+    }
+
+    /**
+     * @return orders in memory for the date by order number, empty if there are none.
+     */
+    private List<Order> getOrdersOn(LocalDate orderDate) {
+        final OrderPartition partition = orders.get(orderDate);
+        return partition == null ? new ArrayList<>() : partition.values();
     }
 
     /**
@@ -275,120 +599,565 @@ public class OrderDaoFileImpl implements OrderDao {
         return file;
     }
 
-    private void write(LocalDate orderDate) throws FlooringDataPersistenceException {
-        final String fileName = getFileName(orderDate);
-        final boolean overwrite = true;
-        final File file = createAndGetFile(fileName, overwrite);
+    /**
+     * Rewrites the file of a date with the given orders, removing it if there are none.
+     */
+    private void write(LocalDate orderDate, List<Order> dayOrders) throws FlooringDataPersistenceException {
+        final Path file = Paths.get(getFileName(orderDate));
 
-        PrintWriter out;
+        if(dayOrders.isEmpty()) {
+            try {
+                Files.deleteIfExists(file);
+            } catch(IOException e) {
+                // otherwise this would be logged if we were logging
+                // I don't think this warrants an exception because it does
+                // stop the program from running in a good state
+            }
+            catalog.remove(orderDate);
+            partitionCache.evict(orderDate);
+            return;
+        }
+
+        final List<Order> sortedOrders = new ArrayList<>(dayOrders);
+        sortedOrders.sort(Comparator.comparingInt(Order::getOrderNumber));
+        orderFileWriter.write(file, sortedOrders);
+
+        final OrderPartitionCache.FileStamp stamp = OrderPartitionCache.FileStamp.of(file);
+        final OrderCatalog.Entry entry = OrderCatalog.scan(orderDate, file);
+        catalog.put(entry);
+        partitionCache.put(orderDate, stamp, sortedOrders, entry.getChecksum());
+    }
 
-        // have to use atomic because
-        //  streams can be parallel
-        //  the compiler will complain if a regular int gets used
-        AtomicInteger numOrdersAdded = new AtomicInteger();
+    /**
+     * Applies a single mutation to the orders in memory, and adds it to the journal batch.
+     * The orders in memory are clones the dao owns, the caller's order is left alone until the mutation is persisted.
+     * @param orderNumber for an added order, ignored otherwise
+     * @return the order as it is now held in memory, for an edit or add, or a clone of the removed order.
+     */
+    private Order apply(DayMutation mutation, int orderNumber, OrderJournal.Batch journalBatch)
+            throws FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderPartition partition = orders.computeIfAbsent(mutation.orderDate, date -> new OrderPartition());
+        switch(mutation.kind) {
+            case ADD:
+                if(partition.containsKey(orderNumber)) {
+                    throw new FlooringDataPersistenceException("Cannot add an order that already exists!");
+                }
+                final Order addedOrder = mutation.order.cloneOrder().setOrderNumber(orderNumber);
+                partition.put(addedOrder);
+                journalBatch.put(addedOrder);
+                return addedOrder;
+            case EDIT:
+                if(!partition.containsKey(mutation.order.getOrderNumber())) {
+                    throw new OrderNotFoundException(
+                            "Cannot edit an order that does not exist!",
+                            mutation.order.getOrderDate(),
+                            mutation.order.getOrderNumber()
+                    );
+                }
+                final Order editedOrder = mutation.order.cloneOrder();
+                partition.put(editedOrder);
+                journalBatch.put(editedOrder);
+                return editedOrder;
+            default:
+                final Order removedOrder = partition.remove(mutation.orderNumber);
+                if(partition.isEmpty()) {
+                    orders.remove(mutation.orderDate);
+                }
+                if(removedOrder == null) {
+                    throw new OrderNotFoundException(
+                            String.format(
+                                    "Could not find order #%d to remove.",
+                                    mutation.orderNumber
+                            ),
+                            mutation.orderDate,
+                            mutation.orderNumber
+                    );
+                }
+                journalBatch.remove(mutation.orderDate, mutation.orderNumber);
+                return removedOrder.cloneOrder();
+        }
+    }
+
+    /**
+     * Applies a batch of mutations to one date, and persists them together.
+     * In journal mode the batch is one journal append, otherwise the date is rewritten once.
+     * A mutation that fails on its own is failed alone, a failure to persist fails the whole batch.
+     * Only the date being committed is locked exclusively.
+     */
+    private void commit(LocalDate orderDate, List<OrderCommitCoordinator.Request<DayMutation, Order>> batch)
+            throws FlooringDataPersistenceException {
+        ensureReady();
+        storeLock.readLock().lock();
+        final DateLock dateLock = lockDate(orderDate, true);
         try {
-            // I am aware at a larger scale, or with software that may scale, this is quite poor.
-            // A 3rd party library or in depth file handling with RandomAccessFile could be better for disk writes.
-            final boolean append = false;
-            out = new PrintWriter(new FileWriter(file, append));
-
-            out.println(ORDERS_FILE_HEADER);
-            orders.values().stream()
-                    .filter(order -> order.getOrderDate().isEqual(orderDate))
-                    .forEach(order -> {
-                        out.println(marshallOrder(order));
-                        out.flush();
-                        numOrdersAdded.incrementAndGet();
-                    });
-        } catch (IOException e) {
-            throw new FlooringDataPersistenceException(
-                    String.format(
-                            "Error writing to or open file %s.",
-                            fileName
-                    ),
-                    e
-            );
+            commitLocked(orderDate, batch);
+        } finally {
+            dateLock.unlock();
+            storeLock.readLock().unlock();
         }
+    }
 
-        out.close();
-        if(numOrdersAdded.get() == 0) {
-            // the result is ignored, otherwise this would be logged if we were logging
-            // I don't think this warrants an exception because it does
-            // stop the program from running in a good state
-            file.delete();
+    private void commitLocked(LocalDate orderDate, List<OrderCommitCoordinator.Request<DayMutation, Order>> batch)
+            throws FlooringDataPersistenceException {
+        readIfPresent(orderDate);
+
+        // adds from addOrders already hold a number from their own block
+        final int addCount = (int) batch.stream()
+                .filter(request -> request.getMutation().needsOrderNumber())
+                .count();
+        int nextOrderNumber = addCount == 0 ? 0 : getNextOrderNumbers(addCount);
+
+        final OrderJournal.Batch journalBatch = new OrderJournal.Batch();
+        final List<OrderCommitCoordinator.Request<DayMutation, Order>> applied = new ArrayList<>();
+        final List<Order> results = new ArrayList<>();
+        for(OrderCommitCoordinator.Request<DayMutation, Order> request : batch) {
+            try {
+                final DayMutation mutation = request.getMutation();
+                final int orderNumber = mutation.needsOrderNumber() ? nextOrderNumber++ : mutation.orderNumber;
+                results.add(apply(mutation, orderNumber, journalBatch));
+                applied.add(request);
+            } catch(FlooringDataPersistenceException | OrderNotFoundException e) {
+                request.fail(e);
+            }
+        }
+        if(applied.isEmpty()) {
+            return;
+        }
+
+        try {
+            if(journaled) {
+                journal.append(journalBatch);
+                if(journal.getRecordCount() >= JOURNAL_RECORDS_TO_COMPACT) {
+                    queueCompaction();
+                }
+            } else {
+                write(orderDate, getOrdersOn(orderDate));
+            }
+        } catch(FlooringDataPersistenceException e) {
+            // drop the mutations that did not make it to disk
+            readIfPresent(orderDate);
+            throw e;
+        }
+
+        updateIndexes(orderDate, applied, results);
+        for(int i = 0; i < applied.size(); i++) {
+            applied.get(i).complete(toCallerResult(applied.get(i).getMutation(), results.get(i)));
+        }
+    }
+
+    /**
+     * Only once a mutation is persisted is an added order's number set on the caller's own order.
+     * @param applied the order apply returned for the mutation
+     * @return the order handed back to the caller, their own for an add or edit.
+     */
+    private static Order toCallerResult(DayMutation mutation, Order applied) {
+        switch(mutation.kind) {
+            case ADD:
+                return mutation.order.setOrderNumber(applied.getOrderNumber());
+            case EDIT:
+                return mutation.order;
+            default:
+                return applied;
         }
     }
 
+    /**
+     * Records committed mutations in the customer index and the order number index.
+     * The mutations are already durable, so a customer index that cannot be updated is dropped to be rebuilt on its next use.
+     */
+    private void updateIndexes(
+            LocalDate orderDate,
+            List<OrderCommitCoordinator.Request<DayMutation, Order>> applied,
+            List<Order> results
+    ) {
+        final List<Order> putOrders = new ArrayList<>();
+        final List<Integer> removedOrderNumbers = new ArrayList<>();
+        boolean added = false;
+        for(int i = 0; i < applied.size(); i++) {
+            final DayMutation.Kind kind = applied.get(i).getMutation().kind;
+            if(kind == DayMutation.Kind.REMOVE) {
+                removedOrderNumbers.add(results.get(i).getOrderNumber());
+                orderNumberIndex.remove(results.get(i).getOrderNumber());
+            } else {
+                added |= kind == DayMutation.Kind.ADD;
+                putOrders.add(results.get(i));
+            }
+        }
+        if(added) {
+            // the date in memory is what was just committed, so its rows are those of the rewritten file,
+            //  and getOrder finds an added order without searching the catalog
+            indexDay(orderDate, getOrdersOn(orderDate));
+        }
+
+        try {
+            customerIndex.update(putOrders, removedOrderNumbers);
+        } catch(FlooringDataPersistenceException e) {
+            customerIndex.invalidate();
+        }
+    }
+
+    /**
+     * Rebuilds the customer index from every order. The store lock must be held exclusively,
+     *  so no commit waits on the index while the rebuild waits on the commit's date.
+     */
+    private void rebuildCustomerIndex() throws FlooringDataPersistenceException {
+        try(Stream<Order> orderStream = streamSharedOrders()) {
+            customerIndex.rebuild(orderStream.iterator());
+        } catch(UncheckedFlooringDataPersistenceException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Folds every journaled mutation into the order files, then clears the journal.
+     * A crash part way leaves the journal in place, and replaying it again is harmless.
+     * @throws FlooringDataPersistenceException if an order file or the journal cannot be written.
+     */
+    public void compactJournal() throws FlooringDataPersistenceException {
+        storeLock.writeLock().lock();
+        try {
+            for(LocalDate orderDate : journal.getPendingDates()) {
+                List<Order> fileOrders;
+                try {
+                    fileOrders = readFile(orderDate);
+                } catch(OrderNotFoundException e) {
+                    fileOrders = new ArrayList<>();
+                }
+                write(orderDate, journal.apply(orderDate, fileOrders));
+            }
+            journal.clear();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Folds the journal into the order files and stops the background compaction.
+     * Only needed in journal mode, an unclean exit is recovered by replaying the journal on the next start.
+     * @throws FlooringDataPersistenceException if the journal cannot be folded in.
+     */
+    public void close() throws FlooringDataPersistenceException {
+        replayJournal();
+        compactJournal();
+
+        if(processLocks != null) {
+            processLocks.close();
+        }
+        if(compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(COMPACTOR_SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return the group commit coordinator, for its batch size metrics.
+     */
+    public OrderCommitCoordinator<?, ?> getCommitCoordinator() {
+        return commitCoordinator;
+    }
+
+    /**
+     * @return the locks shared with other processes, for their wait metrics, or null if there are none.
+     */
+    public OrderFileLocks getProcessLocks() {
+        return processLocks;
+    }
+
+    /**
+     * @return the cache of parsed orders per date, for its hit and miss counts.
+     */
+    public OrderPartitionCache getPartitionCache() {
+        return partitionCache;
+    }
+
+    /**
+     * @return number of times a date's orders were put in the order number index.
+     */
+    public long getDayIndexCount() {
+        return dayIndexCount.get();
+    }
+
+    /**
+     * Rebuild mode for the catalog. Lists the orders directory and brings the catalog in line with it.
+     * Only needed if order files were added, changed, or removed outside of this dao.
+     * @throws FlooringDataPersistenceException if the directory or an order file cannot be read.
+     */
+    public void rebuildCatalog() throws FlooringDataPersistenceException {
+        ensureReady();
+        storeLock.writeLock().lock();
+        try {
+            catalog.reconcile();
+            rebuildCustomerIndex();
+        } finally {
+            storeLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Exports every order in date order, ties broken by order number.
+     * The day files are already split by date, so walking them in date order is the merge.
+     * Days are read and marshalled in parallel, but written in date order, with only a few days in memory at once.
+     */
     @Override
     public void exportAll(String fileNameWithPath) throws FlooringDataPersistenceException {
-        if(orders.values().isEmpty()) {
+        if(getNumberOfOrders() == 0) {
             throw new FlooringDataPersistenceException("Cannot export when you have no orders!");
         }
 
         final boolean overwrite = false;
         File file = createAndGetFile(fileNameWithPath, overwrite);
 
-        PrintWriter out;
+        exportPipeline.export(file.toPath(), snapshotOrderDates(), this::readDayForStream);
+    }
 
+    @Override
+    public int getNumberOfOrders() throws FlooringDataPersistenceException {
+        ensureReady();
+        storeLock.readLock().lock();
         try {
-            final boolean append = false;
-            out = new PrintWriter(new FileWriter(file, append));
-
-            out.println(EXPORT_ALL_HEADER);
-            orders.values()
-                    .stream()
-                    .sorted(Comparator.comparing(Order::getOrderDate))
-                    .forEach(order -> out.println(exportMarshallOrder(order)));
-        } catch (IOException e) {
-            throw new FlooringDataPersistenceException(
-                    String.format(
-                            "Error writing to or open file %s.",
-                            fileName
-                    ),
-                    e
-            );
+            int numberOfOrders = catalog.getOrderCount();
+            // only the dates with journaled mutations are counted by hand
+            for(LocalDate orderDate : journal.getPendingDates()) {
+                final DateLock dateLock = lockDate(orderDate, false);
+                try {
+                    final OrderCatalog.Entry entry = catalog.getEntry(orderDate);
+                    if(entry != null) {
+                        numberOfOrders -= entry.getRowCount();
+                    }
+                    numberOfOrders += loadDay(orderDate).size();
+                } catch(OrderNotFoundException e) {
+                    // every order of the date was removed
+                } finally {
+                    dateLock.unlock();
+                }
+            }
+            return numberOfOrders;
+        } finally {
+            storeLock.readLock().unlock();
         }
-
-        out.close();
     }
 
     @Override
     public List<Order> getAllOrders() throws FlooringDataPersistenceException, OrderNotFoundException {
-        readAll();
-        return new ArrayList<>(orders.values());
+        ensureReady();
+        storeLock.readLock().lock();
+        try {
+            return cloneOrders(readAll());
+        } finally {
+            storeLock.readLock().unlock();
+        }
     }
 
+    /**
+     * Only the order files of dates in the range are opened, found through the catalog's sorted index of them.
+     * Uncached files in the range are parsed in parallel, then every date is read in date order.
+     */
     @Override
-    public List<Order> getAllOrders(LocalDate orderDate) throws FlooringDataPersistenceException, OrderNotFoundException {
-        read(orderDate);
-        return orders.values().stream()
-                .filter(order -> order.getOrderDate().isEqual(orderDate))
-                .collect(Collectors.toList());
+    public List<Order> getOrders(LocalDate from, LocalDate to) throws FlooringDataPersistenceException {
+        final List<Order> rangeOrders = new ArrayList<>();
+        if(from.isAfter(to)) {
+            return rangeOrders;
+        }
+
+        ensureReady();
+        storeLock.readLock().lock();
+        try {
+            readRange(from, to, rangeOrders);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+        return rangeOrders;
     }
 
+    private void readRange(LocalDate from, LocalDate to, List<Order> rangeOrders) throws FlooringDataPersistenceException {
+        final NavigableMap<LocalDate, Path> orderFiles = catalog.getOrderFiles(from, to);
+        final NavigableSet<LocalDate> orderDates = new TreeSet<>(orderFiles.navigableKeySet());
+        orderDates.addAll(journal.getPendingDates().subSet(from, true, to, true));
+
+        final Map<LocalDate, Path> uncachedFiles = new LinkedHashMap<>(orderFiles);
+        uncachedFiles.keySet().removeIf(partitionCache::contains);
+        final Map<LocalDate, OrderFileParallelReader.ParsedFile> parsedFiles = orderFileParallelReader.readAll(uncachedFiles);
+
+        for(LocalDate orderDate : orderDates) {
+            final DateLock dateLock = lockDate(orderDate, false);
+            try {
+                final OrderPartition partition = OrderPartition.of(loadDay(orderDate, parsedFiles));
+                orders.put(orderDate, partition);
+                rangeOrders.addAll(cloneOrders(partition.values()));
+            } catch(OrderNotFoundException e) {
+                // every order of the date was removed
+                orders.remove(orderDate);
+            } finally {
+                dateLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Looks the customer up in the customer index, then reads only the dates of their orders.
+     * The index is rebuilt from every order first if it is missing or damaged.
+     */
     @Override
-    public Order addOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
-        readAll();
+    public List<Order> getOrdersByCustomerName(String customerNamePrefix) throws FlooringDataPersistenceException {
+        ensureReady();
+        List<OrderCustomerIndex.Entry> found = customerIndex.find(customerNamePrefix);
+        if(found == null) {
+            storeLock.writeLock().lock();
+            try {
+                found = customerIndex.find(customerNamePrefix);
+                if(found == null) {
+                    rebuildCustomerIndex();
+                    found = customerIndex.find(customerNamePrefix);
+                }
+            } finally {
+                storeLock.writeLock().unlock();
+            }
+        }
+        if(found == null) {
+            throw new FlooringDataPersistenceException("The customer index could not be rebuilt.");
+        }
+
+        storeLock.readLock().lock();
+        try {
+            return findCustomerOrders(customerNamePrefix, found);
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    private List<Order> findCustomerOrders(String customerNamePrefix, List<OrderCustomerIndex.Entry> found) throws FlooringDataPersistenceException {
+        final Map<LocalDate, Set<Integer>> orderNumbersByDate = new TreeMap<>();
+        for(OrderCustomerIndex.Entry entry : found) {
+            orderNumbersByDate.computeIfAbsent(entry.getOrderDate(), date -> new HashSet<>())
+                    .add(entry.getOrderNumber());
+        }
 
-        order.setOrderNumber(getNextOrderNumber());
+        final String prefix = OrderCustomerIndex.normalize(customerNamePrefix);
+        final List<Order> customerOrders = new ArrayList<>();
+        for(Map.Entry<LocalDate, Set<Integer>> date : orderNumbersByDate.entrySet()) {
+            final List<Order> dayOrders;
+            final DateLock dateLock = lockDate(date.getKey(), false);
+            try {
+                dayOrders = new ArrayList<>(loadDay(date.getKey()));
+            } catch(OrderNotFoundException e) {
+                continue;
+            } finally {
+                dateLock.unlock();
+            }
+
+            // the orders themselves are checked too, in case the index fell behind
+            dayOrders.sort(Comparator.comparingInt(Order::getOrderNumber));
+            for(Order order : dayOrders) {
+                if(date.getValue().contains(order.getOrderNumber())
+                        && OrderCustomerIndex.normalize(order.getCustomerName()).startsWith(prefix)) {
+                    customerOrders.add(order.cloneOrder());
+                }
+            }
+        }
+        return customerOrders;
+    }
 
-        if(orders.containsKey(order.getOrderNumber())) {
-            throw new FlooringDataPersistenceException("Cannot add an order that already exists!");
+    /**
+     * Reads the orders of a date for a stream. Cached orders are used, but a file that is parsed is not cached,
+     *  so streaming years of orders does not push every recently used date out of the cache.
+     * @return orders of the date by order number, empty if there are none.
+     */
+    private List<Order> readDayForStream(LocalDate orderDate) throws FlooringDataPersistenceException {
+        final List<Order> dayOrders;
+        storeLock.readLock().lock();
+        // shared, so many days, or the same day, can be parsed at once
+        final DateLock dateLock = lockDate(orderDate, false);
+        try {
+            List<Order> fileOrders;
+            try {
+                fileOrders = partitionCache.contains(orderDate)
+                        ? readFile(orderDate)
+                        : orderFileParallelReader.read(orderDate, Paths.get(getFileName(orderDate))).getOrders();
+            } catch(OrderNotFoundException e) {
+                // removed since the stream started
+                fileOrders = new ArrayList<>();
+            }
+            dayOrders = new ArrayList<>(journal.apply(orderDate, fileOrders));
+        } finally {
+            dateLock.unlock();
+            storeLock.readLock().unlock();
         }
+        dayOrders.sort(Comparator.comparingInt(Order::getOrderNumber));
+        return dayOrders;
+    }
+
+    private List<LocalDate> snapshotOrderDates() throws FlooringDataPersistenceException {
+        ensureReady();
+        storeLock.readLock().lock();
+        try {
+            return new ArrayList<>(getOrderDates());
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return every order, shared and not to be changed, see cloneOrders.
+     */
+    private Stream<Order> streamSharedOrders() throws FlooringDataPersistenceException {
+        return snapshotOrderDates().stream()
+                .flatMap(orderDate -> {
+                    try {
+                        return readDayForStream(orderDate).stream();
+                    } catch(FlooringDataPersistenceException e) {
+                        throw new UncheckedFlooringDataPersistenceException(e);
+                    }
+                });
+    }
+
+    @Override
+    public Stream<Order> streamAllOrders() throws FlooringDataPersistenceException {
+        return streamSharedOrders().map(Order::cloneOrder);
+    }
 
-        orders.put(order.getOrderNumber(), order);
-        write(order.getOrderDate());
-        read(order.getOrderDate());
+    @Override
+    public List<Order> getAllOrders(LocalDate orderDate) throws FlooringDataPersistenceException, OrderNotFoundException {
+        ensureReady();
+        storeLock.readLock().lock();
+        final DateLock dateLock = lockDate(orderDate, false);
+        try {
+            read(orderDate);
+            return cloneOrders(getOrdersOn(orderDate));
+        } finally {
+            dateLock.unlock();
+            storeLock.readLock().unlock();
+        }
+    }
 
-        return order;
+    @Override
+    public Order addOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        return commitCoordinator.submit(
+                order.getOrderDate(),
+                new DayMutation(DayMutation.Kind.ADD, order, order.getOrderDate(), 0)
+        );
     }
 
     @Override
     public Order getOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
-        read(orderDate);
+        ensureReady();
+        final Order foundOrder;
+        storeLock.readLock().lock();
+        final DateLock dateLock = lockDate(orderDate, false);
+        try {
+            read(orderDate);
+            final OrderPartition partition = orders.get(orderDate);
+            foundOrder = partition == null ? null : partition.get(orderNumber);
+        } finally {
+            dateLock.unlock();
+            storeLock.readLock().unlock();
+        }
 
-        if(orders.containsKey(orderNumber)) {
-            return orders.get(orderNumber);
+        if(foundOrder != null) {
+            return foundOrder.cloneOrder();
         } else {
             throw new OrderNotFoundException(
                     String.format(
@@ -402,42 +1171,160 @@ public class OrderDaoFileImpl implements OrderDao {
         }
     }
 
+    /**
+     * The order number index points straight at the order's date and row.
+     * Numbers not indexed yet are looked for in the dates the catalog says could hold them, which indexes those dates.
+     */
     @Override
-    public Order editOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
-        read(order.getOrderDate());
+    public Order getOrder(int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        ensureReady();
+        storeLock.readLock().lock();
+        try {
+            return findOrder(orderNumber).cloneOrder();
+        } finally {
+            storeLock.readLock().unlock();
+        }
+    }
 
-        if(!orders.containsKey(order.getOrderNumber())) {
-            throw new OrderNotFoundException(
-                    "Cannot edit an order that does not exist!",
-                    order.getOrderDate(),
-                    order.getOrderNumber()
-            );
+    private Order findOrder(int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final LocalDate indexedDate = orderNumberIndex.getOrderDate(orderNumber);
+        if(indexedDate != null) {
+            final Order foundOrder = findInDay(indexedDate, orderNumber);
+            if(foundOrder != null) {
+                return foundOrder;
+            }
+            // changed since it was indexed
+            orderNumberIndex.remove(orderNumber);
         }
 
-        orders.put(order.getOrderNumber(), order);
-        write(order.getOrderDate());
+        final NavigableSet<LocalDate> candidateDates = new TreeSet<>(catalog.locateOrder(orderNumber));
+        candidateDates.addAll(journal.getPendingDates());
+        if(indexedDate != null) {
+            candidateDates.remove(indexedDate);
+        }
+        for(LocalDate candidateDate : candidateDates) {
+            final Order foundOrder = findInDay(candidateDate, orderNumber);
+            if(foundOrder != null) {
+                return foundOrder;
+            }
+        }
 
-        return order;
+        throw new OrderNotFoundException(
+                String.format(
+                        "No order found with id %d",
+                        orderNumber
+                ),
+                null,
+                orderNumber
+        );
+    }
+
+    /**
+     * @return the order from the orders of a date, or null if the date has no such order.
+     */
+    private Order findInDay(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException {
+        final DateLock dateLock = lockDate(orderDate, false);
+        try {
+            final List<Order> dayOrders = loadDay(orderDate);
+
+            // the day is indexed, so the row is current unless another date took the number since
+            final int row = orderNumberIndex.getRow(orderNumber);
+            if(row >= 0 && row < dayOrders.size() && dayOrders.get(row).getOrderNumber() == orderNumber) {
+                return dayOrders.get(row);
+            }
+
+            // the number was dropped from the index after the day was, such as when it was stale on another date
+            for(int i = 0; i < dayOrders.size(); i++) {
+                if(dayOrders.get(i).getOrderNumber() == orderNumber) {
+                    orderNumberIndex.put(orderNumber, orderDate, i);
+                    return dayOrders.get(i);
+                }
+            }
+            return null;
+        } catch(OrderNotFoundException e) {
+            return null;
+        } finally {
+            dateLock.unlock();
+        }
+    }
+
+    @Override
+    public Order editOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        return commitCoordinator.submit(
+                order.getOrderDate(),
+                new DayMutation(DayMutation.Kind.EDIT, order, order.getOrderDate(), order.getOrderNumber())
+        );
     }
 
     @Override
     public Order removeOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
-        read(orderDate);
+        return commitCoordinator.submit(
+                orderDate,
+                new DayMutation(DayMutation.Kind.REMOVE, null, orderDate, orderNumber)
+        );
+    }
 
-        Order removedOrder;
-        if(!orders.containsKey(orderNumber) || (removedOrder = orders.remove(orderNumber)) == null) {
-            throw new OrderNotFoundException(
-                    String.format(
-                            "Could not find order #%d to remove.",
-                            orderNumber
-                    ),
-                    orderDate,
-                    orderNumber
-            );
+    /**
+     * Commits mutations grouped by date, each date with a single commit.
+     * @return a result per mutation, in the order given.
+     */
+    private List<OrderResult> commitByDate(List<DayMutation> mutations) {
+        final Map<LocalDate, List<Integer>> indexesByDate = new LinkedHashMap<>();
+        for(int i = 0; i < mutations.size(); i++) {
+            indexesByDate.computeIfAbsent(mutations.get(i).orderDate, date -> new ArrayList<>()).add(i);
+        }
+
+        final OrderResult[] results = new OrderResult[mutations.size()];
+        for(Map.Entry<LocalDate, List<Integer>> dateIndexes : indexesByDate.entrySet()) {
+            final List<DayMutation> dayMutations = dateIndexes.getValue().stream()
+                    .map(mutations::get)
+                    .collect(Collectors.toList());
+            final List<OrderCommitCoordinator.Request<DayMutation, Order>> requests =
+                    commitCoordinator.submitAll(dateIndexes.getKey(), dayMutations);
+
+            for(int i = 0; i < requests.size(); i++) {
+                final OrderCommitCoordinator.Request<DayMutation, Order> request = requests.get(i);
+                final DayMutation mutation = request.getMutation();
+                results[dateIndexes.getValue().get(i)] = request.getFailure() == null
+                        ? OrderResult.success(request.getResult())
+                        : OrderResult.failure(mutation.order, request.getFailure());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public List<OrderResult> addOrders(Collection<Order> ordersToAdd) throws FlooringDataPersistenceException {
+        if(ordersToAdd.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        write(removedOrder.getOrderDate());
+        // one block of numbers for the whole call, handed out in the order given
+        ensureReady();
+        int nextOrderNumber = getNextOrderNumbers(ordersToAdd.size());
+
+        final List<DayMutation> mutations = new ArrayList<>(ordersToAdd.size());
+        for(Order order : ordersToAdd) {
+            mutations.add(new DayMutation(DayMutation.Kind.ADD, order, order.getOrderDate(), nextOrderNumber++));
+        }
+        return commitByDate(mutations);
+    }
 
-        return removedOrder;
+    @Override
+    public List<OrderResult> editOrders(Collection<Order> ordersToEdit) {
+        final List<DayMutation> mutations = new ArrayList<>(ordersToEdit.size());
+        for(Order order : ordersToEdit) {
+            mutations.add(new DayMutation(DayMutation.Kind.EDIT, order, order.getOrderDate(), order.getOrderNumber()));
+        }
+        return commitByDate(mutations);
+    }
+
+    @Override
+    public List<OrderResult> removeOrders(Collection<Order> ordersToRemove) {
+        final List<DayMutation> mutations = new ArrayList<>(ordersToRemove.size());
+        for(Order order : ordersToRemove) {
+            mutations.add(new DayMutation(DayMutation.Kind.REMOVE, order, order.getOrderDate(), order.getOrderNumber()));
+        }
+        return commitByDate(mutations);
     }
 }
@@ -0,0 +1,569 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.dao.exception.UncheckedFlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+import dev.kmfg.flooring.model.Product;
+import dev.kmfg.flooring.model.StateTax;
+import dev.kmfg.flooring.service.validator.OrderValidator;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Stores every order in a single paged data file, instead of a text file per date.
+ * Orders are held in a B+tree keyed by date and then order number, so a date or a range of dates is one walk
+ *  along the leaves, and a mutation only rewrites the pages it touches.
+ * A second B+tree maps each order number to its date, for lookups by number alone.
+ * Every method is synchronized, the buffer pool changes even on reads.
+ * Orders can be imported from, and exported to, the Orders_MMddyyyy.txt files of OrderDaoFileImpl.
+ */
+public class OrderDaoPagedImpl implements OrderDao {
+    // metadata slots of the page file
+    private static final int ORDERS_ROOT_SLOT = 0;
+    private static final int ORDER_DATES_ROOT_SLOT = 1;
+    private static final int ORDER_COUNT_SLOT = 2;
+    private static final int LAST_ORDER_NUMBER_SLOT = 3;
+
+    private static final int DEFAULT_BUFFER_POOL_PAGES = 256;
+    // every order number of a date sorts between these
+    private static final long DAY_KEY_MASK = 0xFFFFFFFFL;
+
+    private final Path dataPath;
+    private final int bufferPoolPages;
+
+    private PageFile pageFile;
+    // (date, order number) to order
+    private PageBTree orders;
+    // order number to date
+    private PageBTree orderDates;
+
+    public OrderDaoPagedImpl() {
+        this("Data/Orders.dat");
+    }
+
+    public OrderDaoPagedImpl(String dataPath) {
+        this(dataPath, DEFAULT_BUFFER_POOL_PAGES);
+    }
+
+    /**
+     * @param dataPath of the data file, created with its directories when first used
+     * @param bufferPoolPages most pages of the data file held in memory at once
+     */
+    public OrderDaoPagedImpl(String dataPath, int bufferPoolPages) {
+        this.dataPath = Paths.get(dataPath);
+        this.bufferPoolPages = bufferPoolPages;
+    }
+
+    private void open() throws FlooringDataPersistenceException {
+        if(pageFile != null) {
+            return;
+        }
+        pageFile = new PageFile(dataPath, bufferPoolPages);
+        orders = new PageBTree(pageFile, ORDERS_ROOT_SLOT);
+        orderDates = new PageBTree(pageFile, ORDER_DATES_ROOT_SLOT);
+    }
+
+    private static long keyOf(LocalDate orderDate, int orderNumber) {
+        return ((long) Math.toIntExact(orderDate.toEpochDay()) << 32) | (orderNumber & DAY_KEY_MASK);
+    }
+
+    /**
+     * @return the first key of the date, dates outside of the keys are clamped to the first or last date there can be.
+     */
+    private static long firstKeyOf(LocalDate orderDate) {
+        final long epochDay = Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, orderDate.toEpochDay()));
+        return epochDay << 32;
+    }
+
+    private static long lastKeyOf(LocalDate orderDate) {
+        return firstKeyOf(orderDate) | DAY_KEY_MASK;
+    }
+
+    private static LocalDate dateOf(long key) {
+        return LocalDate.ofEpochDay(key >> 32);
+    }
+
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        out.writeByte(value.scale());
+        out.writeLong(value.unscaledValue().longValueExact());
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        final int scale = in.readByte();
+        return new BigDecimal(BigInteger.valueOf(in.readLong()), scale);
+    }
+
+    /**
+     * Only the fields an order file keeps are stored, the date and number are in the key.
+     */
+    private static byte[] marshallOrder(Order order) throws FlooringDataPersistenceException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try(DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(order.getCustomerName());
+            out.writeUTF(order.getStateTax().getStateAbbreviation());
+            writeDecimal(out, order.getStateTax().getTaxRate().toBigDecimal());
+            out.writeUTF(order.getProduct().getProductType());
+            writeDecimal(out, order.getArea());
+            writeDecimal(out, order.getProduct().getCostPerSqft().toBigDecimal());
+            writeDecimal(out, order.getProduct().getLaborCostPerSqft().toBigDecimal());
+        } catch(IOException | ArithmeticException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not store order #%d.", order.getOrderNumber()), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Order unmarshallOrder(long key, byte[] record) throws FlooringDataPersistenceException {
+        try(DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            final String customerName = in.readUTF();
+            final StateTax stateTax = ModelFlyweights.stateTax(new StateTax(in.readUTF(), "Not Loaded", readDecimal(in)));
+            final String productType = in.readUTF();
+            final BigDecimal area = readDecimal(in);
+            final Product product = ModelFlyweights.product(new Product(productType, readDecimal(in), readDecimal(in)));
+
+            return new Order()
+                    .setOrderNumber((int) key)
+                    .setOrderDate(dateOf(key))
+                    .setCustomerName(customerName)
+                    .setArea(area)
+                    .setStateTax(stateTax)
+                    .setProduct(product);
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Malformed order record in the data file.", e);
+        }
+    }
+
+    private static byte[] marshallDate(LocalDate orderDate) {
+        return ByteBuffer.allocate(Integer.BYTES).putInt(Math.toIntExact(orderDate.toEpochDay())).array();
+    }
+
+    /**
+     * @return every order from one key to another, in key order.
+     */
+    private List<Order> scan(long fromKey, long toKey) throws FlooringDataPersistenceException {
+        final List<Order> found = new ArrayList<>();
+        orders.scan(fromKey, toKey, (key, record) -> found.add(unmarshallOrder(key, record)));
+        return found;
+    }
+
+    /**
+     * @return the first date with orders at or after the given date, or null if there is none.
+     */
+    private synchronized LocalDate nextOrderDate(LocalDate from) throws FlooringDataPersistenceException {
+        open();
+        final Long key = orders.ceilingKey(firstKeyOf(from));
+        return key == null ? null : dateOf(key);
+    }
+
+    private synchronized List<Order> readDay(LocalDate orderDate) throws FlooringDataPersistenceException {
+        open();
+        return scan(firstKeyOf(orderDate), lastKeyOf(orderDate));
+    }
+
+    /**
+     * Runs a change, then flushes it. A failed change is dropped from memory, so the file is read again.
+     */
+    private <T> T mutate(Mutation<T> mutation) throws FlooringDataPersistenceException, OrderNotFoundException {
+        open();
+        try {
+            final T result = mutation.apply();
+            pageFile.flush();
+            return result;
+        } catch(FlooringDataPersistenceException | OrderNotFoundException | RuntimeException e) {
+            pageFile.discard();
+            throw e;
+        }
+    }
+
+    private interface Mutation<T> {
+        T apply() throws FlooringDataPersistenceException, OrderNotFoundException;
+    }
+
+    /**
+     * Hands out a block of consecutive order numbers, stored with the rest of the change.
+     * @return the first number of the block.
+     */
+    private int nextOrderNumbers(int count) throws FlooringDataPersistenceException {
+        final int firstOrderNumber = Math.max(pageFile.getMetadata(LAST_ORDER_NUMBER_SLOT) + 1, OrderValidator.MIN_ORDER_NUMBER);
+        final int lastOrderNumber = firstOrderNumber + count - 1;
+        if(lastOrderNumber > OrderValidator.MAX_ORDER_NUMBER || lastOrderNumber < firstOrderNumber) {
+            throw new FlooringDataPersistenceException("Order numbers have been exhausted!");
+        }
+        pageFile.setMetadata(LAST_ORDER_NUMBER_SLOT, lastOrderNumber);
+        return firstOrderNumber;
+    }
+
+    private void changeOrderCount(int change) {
+        pageFile.setMetadata(ORDER_COUNT_SLOT, pageFile.getMetadata(ORDER_COUNT_SLOT) + change);
+    }
+
+    /**
+     * Stores a copy of the order under the number, the caller's order is left alone until the change is flushed.
+     * @return the stored copy.
+     */
+    private Order add(Order order, int orderNumber) throws FlooringDataPersistenceException {
+        final Order added = order.cloneOrder().setOrderNumber(orderNumber);
+        if(!orders.put(keyOf(added.getOrderDate(), orderNumber), marshallOrder(added))) {
+            throw new FlooringDataPersistenceException("Cannot add an order that already exists!");
+        }
+        orderDates.put(orderNumber, marshallDate(added.getOrderDate()));
+        changeOrderCount(1);
+        return added;
+    }
+
+    /**
+     * Only once the adds are flushed is each added order's number set on the caller's own order.
+     * @return the results, holding the caller's orders.
+     */
+    private static List<OrderResult> toCallerResults(Collection<Order> ordersAdded, List<OrderResult> results) {
+        final List<OrderResult> callerResults = new ArrayList<>(results.size());
+        int i = 0;
+        for(Order order : ordersAdded) {
+            final OrderResult result = results.get(i++);
+            callerResults.add(result.isSuccessful()
+                    ? OrderResult.success(order.setOrderNumber(result.getOrder().getOrderNumber()))
+                    : result);
+        }
+        return callerResults;
+    }
+
+    private Order edit(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final long key = keyOf(order.getOrderDate(), order.getOrderNumber());
+        if(orders.get(key) == null) {
+            throw new OrderNotFoundException(
+                    "Cannot edit an order that does not exist!",
+                    order.getOrderDate(),
+                    order.getOrderNumber()
+            );
+        }
+        orders.put(key, marshallOrder(order));
+        return order;
+    }
+
+    private Order remove(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final long key = keyOf(orderDate, orderNumber);
+        final byte[] removed = orders.remove(key);
+        if(removed == null) {
+            throw new OrderNotFoundException(
+                    String.format(
+                            "Could not find order #%d to remove.",
+                            orderNumber
+                    ),
+                    orderDate,
+                    orderNumber
+            );
+        }
+        orderDates.remove(orderNumber);
+        changeOrderCount(-1);
+        return unmarshallOrder(key, removed);
+    }
+
+    @Override
+    public void exportAll(String fileNameWithPath) throws FlooringDataPersistenceException {
+        if(getNumberOfOrders() == 0) {
+            throw new FlooringDataPersistenceException("Cannot export when you have no orders!");
+        }
+
+        final File file = new File(fileNameWithPath);
+        if(file.exists()) {
+            throw new FlooringDataPersistenceException(String.format("Cannot export to an existing file, %s", fileNameWithPath));
+        }
+        if(file.getParentFile() != null && !file.getParentFile().exists() && !file.getParentFile().mkdirs()) {
+            throw new FlooringDataPersistenceException(String.format("Unable to make directories for requested file %s", fileNameWithPath));
+        }
+
+        try(PrintWriter out = new PrintWriter(new BufferedWriter(new FileWriter(file)));
+            Stream<Order> allOrders = streamAllOrders()) {
+            out.println(OrderMarshaller.EXPORT_ALL_HEADER);
+            allOrders.forEach(order -> out.println(OrderMarshaller.exportMarshallOrder(order)));
+            if(out.checkError()) {
+                throw new IOException("The export could not be written.");
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Error writing to or open file %s.", fileNameWithPath), e);
+        } catch(UncheckedFlooringDataPersistenceException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public synchronized int getNumberOfOrders() throws FlooringDataPersistenceException {
+        open();
+        return pageFile.getMetadata(ORDER_COUNT_SLOT);
+    }
+
+    @Override
+    public synchronized List<Order> getAllOrders() throws FlooringDataPersistenceException {
+        open();
+        return scan(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads one date at a time, each with one walk along the leaves of the date.
+     */
+    @Override
+    public Stream<Order> streamAllOrders() throws FlooringDataPersistenceException {
+        return Stream.iterate(nextOrderDate(LocalDate.MIN), Objects::nonNull, orderDate -> {
+                    try {
+                        return nextOrderDate(orderDate.plusDays(1));
+                    } catch(FlooringDataPersistenceException e) {
+                        throw new UncheckedFlooringDataPersistenceException(e);
+                    }
+                })
+                .flatMap(orderDate -> {
+                    try {
+                        return readDay(orderDate).stream();
+                    } catch(FlooringDataPersistenceException e) {
+                        throw new UncheckedFlooringDataPersistenceException(e);
+                    }
+                });
+    }
+
+    @Override
+    public List<Order> getAllOrders(LocalDate orderDate) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final List<Order> dayOrders = readDay(orderDate);
+        if(dayOrders.isEmpty()) {
+            throw new OrderNotFoundException("No orders exist for given date!", orderDate, -1);
+        }
+        return dayOrders;
+    }
+
+    @Override
+    public synchronized List<Order> getOrders(LocalDate from, LocalDate to) throws FlooringDataPersistenceException {
+        open();
+        return from.isAfter(to) ? new ArrayList<>() : scan(firstKeyOf(from), lastKeyOf(to));
+    }
+
+    /**
+     * There is no customer index in the data file, so every order is checked.
+     */
+    @Override
+    public synchronized List<Order> getOrdersByCustomerName(String customerNamePrefix) throws FlooringDataPersistenceException {
+        open();
+        final String prefix = OrderCustomerIndex.normalize(customerNamePrefix);
+        final List<Order> customerOrders = new ArrayList<>();
+        orders.scan(Long.MIN_VALUE, Long.MAX_VALUE, (key, record) -> {
+            final Order order = unmarshallOrder(key, record);
+            if(OrderCustomerIndex.normalize(order.getCustomerName()).startsWith(prefix)) {
+                customerOrders.add(order);
+            }
+            return true;
+        });
+        return customerOrders;
+    }
+
+    @Override
+    public synchronized Order addOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final Order added = mutate(() -> add(order, nextOrderNumbers(1)));
+        return order.setOrderNumber(added.getOrderNumber());
+    }
+
+    @Override
+    public synchronized Order getOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        open();
+        final long key = keyOf(orderDate, orderNumber);
+        final byte[] record = orders.get(key);
+        if(record == null) {
+            throw new OrderNotFoundException(
+                    String.format(
+                            "No order found for %s with id %d",
+                            orderDate,
+                            orderNumber
+                    ),
+                    orderDate,
+                    orderNumber
+            );
+        }
+        return unmarshallOrder(key, record);
+    }
+
+    @Override
+    public synchronized Order getOrder(int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        open();
+        final byte[] orderDate = orderDates.get(orderNumber);
+        if(orderDate == null) {
+            throw new OrderNotFoundException(
+                    String.format(
+                            "No order found with id %d",
+                            orderNumber
+                    ),
+                    null,
+                    orderNumber
+            );
+        }
+        return getOrder(LocalDate.ofEpochDay(ByteBuffer.wrap(orderDate).getInt()), orderNumber);
+    }
+
+    @Override
+    public synchronized Order editOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException {
+        return mutate(() -> edit(order));
+    }
+
+    @Override
+    public synchronized Order removeOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        return mutate(() -> remove(orderDate, orderNumber));
+    }
+
+    private interface OrderMutation {
+        Order apply(Order order, int index) throws FlooringDataPersistenceException, OrderNotFoundException;
+    }
+
+    /**
+     * Applies a change to each order, with a single flush for all of them.
+     * An order that fails on its own is failed alone, a failure to flush fails every order.
+     */
+    private List<OrderResult> mutateEach(Collection<Order> batch, OrderMutation perOrder) throws FlooringDataPersistenceException {
+        open();
+        final List<OrderResult> results = new ArrayList<>(batch.size());
+        int index = 0;
+        for(Order order : batch) {
+            try {
+                results.add(OrderResult.success(perOrder.apply(order, index++)));
+            } catch(FlooringDataPersistenceException | OrderNotFoundException e) {
+                results.add(OrderResult.failure(order, e));
+            }
+        }
+
+        try {
+            pageFile.flush();
+        } catch(FlooringDataPersistenceException e) {
+            pageFile.discard();
+            results.clear();
+            for(Order order : batch) {
+                results.add(OrderResult.failure(order, e));
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public synchronized List<OrderResult> addOrders(Collection<Order> ordersToAdd) throws FlooringDataPersistenceException {
+        if(ordersToAdd.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        open();
+        // one block of numbers for the whole call, handed out in the order given
+        final int firstOrderNumber = nextOrderNumbers(ordersToAdd.size());
+        return toCallerResults(ordersToAdd, mutateEach(ordersToAdd, (order, index) -> add(order, firstOrderNumber + index)));
+    }
+
+    @Override
+    public synchronized List<OrderResult> editOrders(Collection<Order> ordersToEdit) throws FlooringDataPersistenceException {
+        return mutateEach(ordersToEdit, (order, index) -> edit(order));
+    }
+
+    @Override
+    public synchronized List<OrderResult> removeOrders(Collection<Order> ordersToRemove) throws FlooringDataPersistenceException {
+        return mutateEach(ordersToRemove, (order, index) -> remove(order.getOrderDate(), order.getOrderNumber()));
+    }
+
+    /**
+     * Imports every Orders_MMddyyyy.txt file of a directory, keeping the order numbers, so the data file can replace it.
+     * An order already in the data file with the same date and number is replaced.
+     * @param ordersPath directory holding the order files
+     * @return number of orders imported.
+     * @throws FlooringDataPersistenceException if a file cannot be read, or an order number is already used on another date.
+     */
+    public synchronized int importOrderFiles(String ordersPath) throws FlooringDataPersistenceException {
+        final NavigableMap<LocalDate, Path> orderFiles = new TreeMap<>();
+        try(DirectoryStream<Path> directory = Files.newDirectoryStream(Paths.get(ordersPath))) {
+            for(Path file : directory) {
+                final LocalDate orderDate = OrderCatalog.parseFileName(file.getFileName().toString());
+                if(orderDate != null) {
+                    orderFiles.put(orderDate, file);
+                }
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not list the order files in %s.", ordersPath), e);
+        }
+
+        final OrderFileReader orderFileReader = new OrderFileReaderScannerImpl();
+        try {
+            return mutate(() -> {
+                int imported = 0;
+                int lastOrderNumber = pageFile.getMetadata(LAST_ORDER_NUMBER_SLOT);
+                for(Map.Entry<LocalDate, Path> orderFile : orderFiles.entrySet()) {
+                    for(Order order : orderFileReader.read(orderFile.getValue(), orderFile.getKey(), new CRC32())) {
+                        importOrder(order);
+                        lastOrderNumber = Math.max(lastOrderNumber, order.getOrderNumber());
+                        imported++;
+                    }
+                }
+                pageFile.setMetadata(LAST_ORDER_NUMBER_SLOT, lastOrderNumber);
+                return imported;
+            });
+        } catch(OrderNotFoundException e) {
+            throw new FlooringDataPersistenceException("An order file was removed during the import.", e);
+        }
+    }
+
+    private void importOrder(Order order) throws FlooringDataPersistenceException {
+        final byte[] usedOn = orderDates.get(order.getOrderNumber());
+        if(usedOn != null && ByteBuffer.wrap(usedOn).getInt() != order.getOrderDate().toEpochDay()) {
+            throw new FlooringDataPersistenceException(String.format(
+                    "Order number %d is already used on %s.",
+                    order.getOrderNumber(),
+                    LocalDate.ofEpochDay(ByteBuffer.wrap(usedOn).getInt())
+            ));
+        }
+
+        if(orders.put(keyOf(order.getOrderDate(), order.getOrderNumber()), marshallOrder(order))) {
+            changeOrderCount(1);
+        }
+        orderDates.put(order.getOrderNumber(), marshallDate(order.getOrderDate()));
+    }
+
+    /**
+     * Writes every date as an Orders_MMddyyyy.txt file, the format OrderDaoFileImpl reads, replacing any such file.
+     * @param ordersPath directory to write the order files to, created if missing
+     * @return number of order files written.
+     * @throws FlooringDataPersistenceException if the orders cannot be read, or a file cannot be written.
+     */
+    public int exportOrderFiles(String ordersPath) throws FlooringDataPersistenceException {
+        try {
+            Files.createDirectories(Paths.get(ordersPath));
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not create orders directory", e);
+        }
+
+        final OrderFileWriter orderFileWriter = new OrderFileWriterAtomicImpl();
+        int written = 0;
+        for(LocalDate orderDate = nextOrderDate(LocalDate.MIN); orderDate != null; orderDate = nextOrderDate(orderDate.plusDays(1))) {
+            orderFileWriter.write(Paths.get(ordersPath, OrderCatalog.getFileName(orderDate)), readDay(orderDate));
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * Flushes and closes the data file, it is opened again on next use.
+     * @throws FlooringDataPersistenceException if the file cannot be written.
+     */
+    public synchronized void close() throws FlooringDataPersistenceException {
+        if(pageFile != null) {
+            pageFile.close();
+            pageFile = null;
+        }
+    }
+
+    /**
+     * @return the data file, for its page counts and buffer pool metrics.
+     * @throws FlooringDataPersistenceException if the data file cannot be opened.
+     */
+    public synchronized PageFile getPageFile() throws FlooringDataPersistenceException {
+        open();
+        return pageFile;
+    }
+}
@@ -0,0 +1,128 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Exports orders as a pipeline, one day per chunk.
+ * Worker threads read and marshal days into byte buffers in parallel, while the calling thread writes the finished
+ *  buffers to the export file strictly in date order, so the file is the same as exporting one order at a time.
+ * Only a few days per worker are in flight at once, so memory stays bounded however many days are exported.
+ */
+public class OrderExportPipeline {
+    // days marshalled ahead of the writer, per worker
+    private static final int CHUNKS_IN_FLIGHT_PER_WORKER = 2;
+    // the same line separator and charset as a PrintWriter over a FileWriter
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final int parallelism;
+
+    /**
+     * Reads the orders of a single day, it must be safe to call from many threads at once.
+     */
+    public interface DayReader {
+        /**
+         * @return orders of the date, in the order they should be exported.
+         * @throws FlooringDataPersistenceException if the day could not be read.
+         */
+        List<Order> read(LocalDate orderDate) throws FlooringDataPersistenceException;
+    }
+
+    /**
+     * @param parallelism most days read and marshalled at the same time
+     */
+    public OrderExportPipeline(int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Marshals every order of a day into one buffer, ready to be written.
+     */
+    private static ByteBuffer marshallDay(List<Order> dayOrders) {
+        final StringBuilder rows = new StringBuilder();
+        for(Order order : dayOrders) {
+            OrderMarshaller.appendExportRow(rows, order);
+            rows.append(LINE_SEPARATOR);
+        }
+        return CHARSET.encode(CharBuffer.wrap(rows));
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static ByteBuffer await(Future<ByteBuffer> chunk) throws FlooringDataPersistenceException {
+        try {
+            return chunk.get();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlooringDataPersistenceException("Export was interrupted.", e);
+        } catch(ExecutionException e) {
+            if(e.getCause() instanceof FlooringDataPersistenceException) {
+                throw (FlooringDataPersistenceException) e.getCause();
+            } else if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new FlooringDataPersistenceException("Could not marshal orders for export.", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the export header and then every order of the dates, replacing anything already in the file.
+     * @param exportFile to write to
+     * @param orderDates to export, in the order they should appear
+     * @param dayReader reads the orders of each date
+     * @throws FlooringDataPersistenceException if a day could not be read, or the file could not be written.
+     */
+    public void export(Path exportFile, List<LocalDate> orderDates, DayReader dayReader) throws FlooringDataPersistenceException {
+        final ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "order-export-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final int maxChunksInFlight = parallelism * CHUNKS_IN_FLIGHT_PER_WORKER;
+
+        try(FileChannel channel = FileChannel.open(exportFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, CHARSET.encode(OrderMarshaller.EXPORT_ALL_HEADER + LINE_SEPARATOR));
+
+            final ArrayDeque<Future<ByteBuffer>> chunksInFlight = new ArrayDeque<>();
+            int nextDate = 0;
+            while(nextDate < orderDates.size() || !chunksInFlight.isEmpty()) {
+                while(nextDate < orderDates.size() && chunksInFlight.size() < maxChunksInFlight) {
+                    final LocalDate orderDate = orderDates.get(nextDate++);
+                    chunksInFlight.add(workers.submit(() -> marshallDay(dayReader.read(orderDate))));
+                }
+                writeFully(channel, await(chunksInFlight.poll()));
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format("Error writing to or open file %s.", exportFile),
+                    e
+            );
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+}
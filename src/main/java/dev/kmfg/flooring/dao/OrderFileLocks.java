@@ -0,0 +1,283 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coordinates processes sharing one orders directory, through FileChannel locks on a single lock file.
+ * Each date, the order number sequence, the catalog and the customer index is one byte of that file,
+ *  so locking a date never blocks another date,
+ *  and order files can still be replaced atomically since they are never locked themselves.
+ * Readers take shared locks, writers exclusive ones. Threads of this process reading the same date share one lock.
+ * The operating system gives no way to wait for a lock with a timeout, so a busy lock is polled with a growing pause.
+ */
+public class OrderFileLocks {
+    private static final long SEQUENCE_POSITION = 0;
+    // every date has its own byte after the sequence, the earliest date possible at 1
+    private static final long FIRST_DATE_POSITION = 1;
+    // the catalog and the customer index each have a byte after the latest date possible
+    private static final long CATALOG_POSITION = positionOf(LocalDate.MAX) + 1;
+    private static final long CUSTOMER_INDEX_POSITION = CATALOG_POSITION + 1;
+    private static final long MIN_POLL_MILLIS = 1;
+    private static final long MAX_POLL_MILLIS = 32;
+
+    private final Path lockPath;
+    private final long timeoutMillis;
+
+    // held regions by position, guarded by this
+    private final Map<Long, Region> regions;
+    private FileChannel channel;
+
+    private long acquireCount;
+    private long contendedCount;
+    private long timeoutCount;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    /**
+     * A lock on a region of the lock file, held by one or more threads of this process.
+     */
+    private static class Region {
+        private final FileLock fileLock;
+        private int holders;
+
+        private Region(FileLock fileLock) {
+            this.fileLock = fileLock;
+            this.holders = 1;
+        }
+    }
+
+    /**
+     * A lock handed out to a caller, released exactly once.
+     */
+    public class Held {
+        private final long position;
+        private boolean released;
+
+        private Held(long position) {
+            this.position = position;
+        }
+
+        public void release() {
+            if(released) {
+                return;
+            }
+            released = true;
+            OrderFileLocks.this.release(position);
+        }
+    }
+
+    /**
+     * @param lockPath file to lock regions of, created if missing, it never holds any data
+     * @param timeoutMillis longest a lock is waited for
+     */
+    public OrderFileLocks(String lockPath, long timeoutMillis) {
+        if(timeoutMillis < 0) {
+            throw new IllegalArgumentException("Lock timeout cannot be negative.");
+        }
+        this.lockPath = Paths.get(lockPath);
+        this.timeoutMillis = timeoutMillis;
+        this.regions = new HashMap<>();
+    }
+
+    private static long positionOf(LocalDate orderDate) {
+        return FIRST_DATE_POSITION + (orderDate.toEpochDay() - LocalDate.MIN.toEpochDay());
+    }
+
+    /**
+     * @param exclusive true to rewrite the date's file, false to only read it
+     * @return the held lock.
+     * @throws FlooringDataPersistenceException if the lock could not be taken within the timeout.
+     */
+    public Held lockDate(LocalDate orderDate, boolean exclusive) throws FlooringDataPersistenceException {
+        return lock(positionOf(orderDate), !exclusive, orderDate.toString());
+    }
+
+    /**
+     * @return the exclusive lock on the order number sequence.
+     * @throws FlooringDataPersistenceException if the lock could not be taken within the timeout.
+     */
+    public Held lockSequence() throws FlooringDataPersistenceException {
+        return lock(SEQUENCE_POSITION, false, "the order number sequence");
+    }
+
+    /**
+     * @param exclusive true to change the catalog, false to only read it
+     * @return the held lock on the order catalog.
+     * @throws FlooringDataPersistenceException if the lock could not be taken within the timeout.
+     */
+    public Held lockCatalog(boolean exclusive) throws FlooringDataPersistenceException {
+        return lock(CATALOG_POSITION, !exclusive, "the order catalog");
+    }
+
+    /**
+     * @param exclusive true to change the customer index, false to only read it
+     * @return the held lock on the customer index.
+     * @throws FlooringDataPersistenceException if the lock could not be taken within the timeout.
+     */
+    public Held lockCustomerIndex(boolean exclusive) throws FlooringDataPersistenceException {
+        return lock(CUSTOMER_INDEX_POSITION, !exclusive, "the customer index");
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if(channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(lockPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * Tries once to take the lock on a region.
+     * @return true if it is now held.
+     */
+    private synchronized boolean tryLock(long position, boolean shared) throws IOException {
+        final Region region = regions.get(position);
+        if(region != null) {
+            if(shared && region.fileLock.isShared()) {
+                region.holders++;
+                return true;
+            }
+            // held by another thread of this process
+            return false;
+        }
+
+        final FileLock fileLock;
+        try {
+            fileLock = getChannel().tryLock(position, 1, shared);
+        } catch(OverlappingFileLockException e) {
+            // held through another channel in this process
+            return false;
+        }
+        if(fileLock == null) {
+            // held by another process
+            return false;
+        }
+        regions.put(position, new Region(fileLock));
+        return true;
+    }
+
+    private Held lock(long position, boolean shared, String lockName) throws FlooringDataPersistenceException {
+        final long start = System.nanoTime();
+        final long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long pauseMillis = MIN_POLL_MILLIS;
+        boolean contended = false;
+        try {
+            while(!tryLock(position, shared)) {
+                contended = true;
+                if(System.nanoTime() - deadline >= 0) {
+                    recordTimeout();
+                    throw new FlooringDataPersistenceException(String.format(
+                            "Timed out after %d ms waiting for the lock on %s.",
+                            timeoutMillis,
+                            lockName
+                    ));
+                }
+                TimeUnit.MILLISECONDS.sleep(pauseMillis);
+                pauseMillis = Math.min(pauseMillis * 2, MAX_POLL_MILLIS);
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not lock %s.", lockName), e);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FlooringDataPersistenceException(String.format("Interrupted waiting for the lock on %s.", lockName), e);
+        }
+
+        recordAcquire(System.nanoTime() - start, contended);
+        return new Held(position);
+    }
+
+    private synchronized void release(long position) {
+        final Region region = regions.get(position);
+        if(region == null || --region.holders > 0) {
+            return;
+        }
+
+        regions.remove(position);
+        try {
+            region.fileLock.release();
+        } catch(IOException e) {
+            // the lock goes with the channel, at the latest when this process exits
+        }
+    }
+
+    private synchronized void recordAcquire(long waitNanos, boolean contended) {
+        acquireCount++;
+        if(contended) {
+            contendedCount++;
+        }
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+    }
+
+    private synchronized void recordTimeout() {
+        timeoutCount++;
+    }
+
+    /**
+     * Closes the lock file, which releases every lock still held.
+     */
+    public synchronized void close() {
+        regions.clear();
+        if(channel != null) {
+            try {
+                channel.close();
+            } catch(IOException e) {
+                // the locks are released when the process exits
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * @return number of locks taken.
+     */
+    public synchronized long getAcquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * @return number of locks that were busy when first asked for, and had to be waited on.
+     */
+    public synchronized long getContendedCount() {
+        return contendedCount;
+    }
+
+    /**
+     * @return number of locks given up on after the timeout.
+     */
+    public synchronized long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    /**
+     * @return total time spent waiting for locks that were taken, in milliseconds.
+     */
+    public synchronized double getTotalWaitMillis() {
+        return totalWaitNanos / 1e6;
+    }
+
+    /**
+     * @return longest wait for a single lock that was taken, in milliseconds.
+     */
+    public synchronized double getMaxWaitMillis() {
+        return maxWaitNanos / 1e6;
+    }
+
+    /**
+     * @return mean wait for a lock that was taken, in milliseconds, 0 before the first lock.
+     */
+    public synchronized double getAverageWaitMillis() {
+        return acquireCount == 0 ? 0 : totalWaitNanos / 1e6 / acquireCount;
+    }
+}
@@ -0,0 +1,164 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.model.Order;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.CRC32;
+
+/**
+ * Parses many order files at once on a fork/join pool.
+ * Only the parsing is parallel, each file is parsed exactly as a single read would, and failures are kept per file,
+ *  so the caller can merge the results in date order and end up with the same orders as reading one file at a time.
+ */
+public class OrderFileParallelReader {
+    // files parsed by one task before it stops splitting
+    private static final int FILES_PER_TASK = 2;
+
+    private final OrderFileReader orderFileReader;
+    private final int parallelism;
+
+    private ForkJoinPool pool;
+
+    /**
+     * The outcome of parsing one order file.
+     */
+    public static class ParsedFile {
+        private final OrderPartitionCache.FileStamp stamp;
+        private final List<Order> orders;
+        private final long checksum;
+        private final Exception failure;
+
+        private ParsedFile(OrderPartitionCache.FileStamp stamp, List<Order> orders, long checksum, Exception failure) {
+            this.stamp = stamp;
+            this.orders = orders;
+            this.checksum = checksum;
+            this.failure = failure;
+        }
+
+        /**
+         * @return stamp of the file taken before it was parsed.
+         */
+        public OrderPartitionCache.FileStamp getStamp() {
+            return stamp;
+        }
+
+        /**
+         * @return every order in the file.
+         * @throws FlooringDataPersistenceException if the file could not be parsed.
+         * @throws OrderNotFoundException if the file did not exist.
+         */
+        public List<Order> getOrders() throws FlooringDataPersistenceException, OrderNotFoundException {
+            if(failure instanceof OrderNotFoundException) {
+                throw (OrderNotFoundException) failure;
+            } else if(failure instanceof FlooringDataPersistenceException) {
+                throw (FlooringDataPersistenceException) failure;
+            } else if(failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            return orders;
+        }
+
+        public long getChecksum() {
+            return checksum;
+        }
+    }
+
+    private class ParseTask extends RecursiveAction {
+        private final List<Map.Entry<LocalDate, Path>> files;
+        private final int from;
+        private final int to;
+        private final Map<LocalDate, ParsedFile> parsedFiles;
+
+        private ParseTask(List<Map.Entry<LocalDate, Path>> files, int from, int to, Map<LocalDate, ParsedFile> parsedFiles) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.parsedFiles = parsedFiles;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= FILES_PER_TASK) {
+                for(int i = from; i < to; i++) {
+                    final Map.Entry<LocalDate, Path> file = files.get(i);
+                    parsedFiles.put(file.getKey(), read(file.getKey(), file.getValue()));
+                }
+                return;
+            }
+
+            final int middle = (from + to) >>> 1;
+            invokeAll(
+                    new ParseTask(files, from, middle, parsedFiles),
+                    new ParseTask(files, middle, to, parsedFiles)
+            );
+        }
+    }
+
+    /**
+     * @param orderFileReader used to parse each file, it must be safe to call from many threads at once
+     * @param parallelism most files parsed at the same time, 1 parses on the calling thread only
+     */
+    public OrderFileParallelReader(OrderFileReader orderFileReader, int parallelism) {
+        if(parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+        this.orderFileReader = orderFileReader;
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Parses a single order file, keeping any failure rather than throwing it.
+     * @param orderDate the file holds orders for
+     * @param orderFile to parse
+     * @return the parsed file.
+     */
+    public ParsedFile read(LocalDate orderDate, Path orderFile) {
+        try {
+            // stamped before parsing, so a change made while parsing is seen as a change next time.
+            final OrderPartitionCache.FileStamp stamp = OrderPartitionCache.FileStamp.of(orderFile);
+            final CRC32 checksum = new CRC32();
+            final List<Order> orders = orderFileReader.read(orderFile, orderDate, checksum);
+            return new ParsedFile(stamp, orders, checksum.getValue(), null);
+        } catch(FlooringDataPersistenceException | OrderNotFoundException | RuntimeException e) {
+            return new ParsedFile(null, null, 0, e);
+        }
+    }
+
+    private synchronized ForkJoinPool getPool() {
+        if(pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Parses every file, in parallel when there is more than one and parallelism allows it.
+     * @param files to parse, by the date they hold orders for
+     * @return a thread safe index of the parsed files by date.
+     */
+    public Map<LocalDate, ParsedFile> readAll(Map<LocalDate, Path> files) {
+        final Map<LocalDate, ParsedFile> parsedFiles = new ConcurrentHashMap<>();
+        final List<Map.Entry<LocalDate, Path>> fileList = new ArrayList<>(files.entrySet());
+        if(parallelism == 1 || fileList.size() < 2) {
+            for(Map.Entry<LocalDate, Path> file : fileList) {
+                parsedFiles.put(file.getKey(), read(file.getKey(), file.getValue()));
+            }
+        } else {
+            getPool().invoke(new ParseTask(fileList, 0, fileList.size(), parsedFiles));
+        }
+        return parsedFiles;
+    }
+}
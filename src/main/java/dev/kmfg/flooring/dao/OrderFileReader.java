@@ -0,0 +1,24 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.model.Order;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.zip.Checksum;
+
+public interface OrderFileReader {
+    /**
+     * Reads every order in an Orders_MMddyyyy.txt file, skipping its header.
+     * Orders will be MISSING their StateTax State Name, same as the OrderDao.
+     * @param orderFile to read
+     * @param orderDate the file holds orders for
+     * @param checksum updated with every byte of the file
+     * @return the orders, in the order they appear in the file.
+     * @throws FlooringDataPersistenceException if the file cannot be read, or has a malformed row.
+     * @throws OrderNotFoundException if the file does not exist.
+     */
+    List<Order> read(Path orderFile, LocalDate orderDate, Checksum checksum) throws FlooringDataPersistenceException, OrderNotFoundException;
+}
@@ -0,0 +1,106 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.dao.parser.CsvTokenizer;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Checksum;
+
+/**
+ * Reads order files into a buffer, or maps them into memory, and scans the bytes directly.
+ * Line and field boundaries are found in the bytes, so no String is built for a whole line,
+ *  and only the text fields of each row are ever decoded, always as UTF-8, the charset the writers use.
+ * Each reading thread reuses one direct buffer, grown to fit the largest file it has read,
+ *  so reading a day allocates nothing but its orders. Only a file too large to buffer is mapped,
+ *  and that mapping is released whenever it is garbage collected.
+ */
+public class OrderFileReaderMappedImpl implements OrderFileReader {
+    private static final byte LINE_END = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    // above this a file is mapped instead, so no thread holds on to a buffer that large
+    private static final int MAX_BUFFERED_BYTES = 8 * 1024 * 1024;
+
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(INITIAL_BUFFER_BYTES));
+
+    @Override
+    public List<Order> read(Path orderFile, LocalDate orderDate, Checksum checksum) throws FlooringDataPersistenceException, OrderNotFoundException {
+        try(FileChannel channel = FileChannel.open(orderFile, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if(size > Integer.MAX_VALUE) {
+                throw new FlooringDataPersistenceException(
+                        String.format("%s is too large to be mapped into memory.", orderFile)
+                );
+            }
+
+            // the orders hold no reference to the bytes, so the buffer can be reused as soon as they are parsed
+            final ByteBuffer bytes = size <= MAX_BUFFERED_BYTES
+                    ? readFully(channel, (int) size)
+                    : channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            checksum.update(bytes.duplicate());
+            return parse(bytes, orderDate);
+        } catch(NoSuchFileException e) {
+            throw new OrderNotFoundException("No orders exist for given date!", orderDate, -1);
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format("Could not read %s into memory.", orderFile),
+                    e
+            );
+        }
+    }
+
+    private ByteBuffer readFully(FileChannel channel, int size) throws IOException {
+        ByteBuffer bytes = buffers.get();
+        if(bytes.capacity() < size) {
+            bytes = ByteBuffer.allocateDirect(Math.max(size, Math.min(MAX_BUFFERED_BYTES, bytes.capacity() * 2)));
+            buffers.set(bytes);
+        }
+        bytes.clear().limit(size);
+        while(bytes.hasRemaining() && channel.read(bytes) != -1) {
+            // keep reading until the buffer is full or the file ends early
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    private static int findLineEnd(ByteBuffer bytes, int from) {
+        final int limit = bytes.limit();
+        for(int i = from; i < limit; i++) {
+            if(bytes.get(i) == LINE_END) {
+                return i;
+            }
+        }
+        return limit;
+    }
+
+    private List<Order> parse(ByteBuffer bytes, LocalDate orderDate) throws FlooringDataPersistenceException {
+        final List<Order> dayOrders = new ArrayList<>();
+        final CsvTokenizer tokenizer = OrderUnmarshaller.createTokenizer();
+        final int limit = bytes.limit();
+
+        // consume the CSV header.
+        int lineStart = findLineEnd(bytes, 0) + 1;
+        while(lineStart < limit) {
+            final int lineEnd = findLineEnd(bytes, lineStart);
+            int contentEnd = lineEnd;
+            if(contentEnd > lineStart && bytes.get(contentEnd - 1) == CARRIAGE_RETURN) {
+                contentEnd--;
+            }
+
+            dayOrders.add(OrderUnmarshaller.unmarshallOrder(bytes, lineStart, contentEnd, tokenizer, orderDate));
+            lineStart = lineEnd + 1;
+        }
+
+        return dayOrders;
+    }
+}
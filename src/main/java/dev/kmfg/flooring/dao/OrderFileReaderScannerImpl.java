@@ -0,0 +1,52 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.dao.parser.CsvTokenizer;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Scanner;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Reads order files a line at a time with a Scanner, decoding them as UTF-8 like the writers encode them.
+ */
+public class OrderFileReaderScannerImpl implements OrderFileReader {
+    @Override
+    public List<Order> read(Path orderFile, LocalDate orderDate, Checksum checksum) throws FlooringDataPersistenceException, OrderNotFoundException {
+        final FileInputStream in;
+        try {
+            in = new FileInputStream(orderFile.toFile());
+        } catch(FileNotFoundException e) {
+            throw new OrderNotFoundException("No orders exist for given date!", orderDate, -1);
+        }
+
+        final List<Order> dayOrders = new ArrayList<>();
+        final CsvTokenizer tokenizer = OrderUnmarshaller.createTokenizer();
+        // closed even when a row is malformed
+        try(Scanner scanner = new Scanner(
+                new BufferedReader(
+                        new InputStreamReader(
+                                new CheckedInputStream(in, checksum),
+                                StandardCharsets.UTF_8
+                        )
+                )
+        )) {
+            if(scanner.hasNextLine()) {
+                scanner.nextLine(); // consume the CSV header.
+            }
+            while(scanner.hasNextLine()) {
+                dayOrders.add(OrderUnmarshaller.unmarshallOrder(scanner.nextLine(), tokenizer, orderDate));
+            }
+        }
+
+        return dayOrders;
+    }
+}
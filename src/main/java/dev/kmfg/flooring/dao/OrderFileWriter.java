@@ -0,0 +1,17 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public interface OrderFileWriter {
+    /**
+     * Replaces the content of an Orders_MMddyyyy.txt file with a header and a row per order.
+     * @param orderFile to write, it does not need to exist.
+     * @param orders every order of the file, in the order they should appear.
+     * @throws FlooringDataPersistenceException if the file cannot be written.
+     */
+    void write(Path orderFile, List<Order> orders) throws FlooringDataPersistenceException;
+}
@@ -0,0 +1,29 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Writes the new content to a sibling temp file, forces it to disk, then moves it over the order file.
+ * A crash at any point leaves either the old or the new day on disk, never a truncated one.
+ */
+public class OrderFileWriterAtomicImpl implements OrderFileWriter {
+    @Override
+    public void write(Path orderFile, List<Order> orders) throws FlooringDataPersistenceException {
+        try {
+            AtomicFiles.replace(orderFile, out -> OrderMarshaller.writeOrderFile(out, orders));
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format(
+                            "Could not atomically replace %s.",
+                            orderFile
+                    ),
+                    e
+            );
+        }
+    }
+}
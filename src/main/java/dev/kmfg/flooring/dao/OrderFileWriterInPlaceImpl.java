@@ -0,0 +1,32 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Truncates the order file and writes it again where it is.
+ * A crash part way through the write can leave the file empty or cut short, see OrderFileWriterAtomicImpl.
+ */
+public class OrderFileWriterInPlaceImpl implements OrderFileWriter {
+    @Override
+    public void write(Path orderFile, List<Order> orders) throws FlooringDataPersistenceException {
+        try(BufferedWriter out = Files.newBufferedWriter(orderFile, StandardCharsets.UTF_8)) {
+            OrderMarshaller.writeOrderFile(out, orders);
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format(
+                            "Error writing to or open file %s.",
+                            orderFile
+                    ),
+                    e
+            );
+        }
+    }
+}
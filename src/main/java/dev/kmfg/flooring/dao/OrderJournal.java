@@ -0,0 +1,268 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.parser.CsvTokenizer;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Append only log of order mutations that have not yet been folded into the order files.
+ * A mutation is acknowledged once its record is durable, so its cost is the size of the record, not the size of the day.
+ * The pending mutations are also kept in memory per date, to be laid over the order file when the date is read.
+ * Records are idempotent, so replaying a journal that was already partly compacted gives the same result.
+ * Every method is synchronized, so commits of different dates may append at the same time.
+ */
+public class OrderJournal {
+    private static final DateTimeFormatter INT_DATE_FORMATTER = DateTimeFormatter.ofPattern("MMddyyyy");
+    private static final String DELIMITER = ",";
+    private static final String PUT_RECORD = "P";
+    private static final String REMOVE_RECORD = "R";
+
+    private final ChecksummedLog log;
+
+    // a null order is a removed order
+    private TreeMap<LocalDate, LinkedHashMap<Integer, Order>> pending;
+    private int recordCount;
+    private int maxOrderNumber;
+
+    public OrderJournal(Path journalPath) {
+        this.log = new ChecksummedLog(journalPath);
+    }
+
+    private static String putRecord(Order order) {
+        return String.join(DELIMITER,
+                PUT_RECORD,
+                INT_DATE_FORMATTER.format(order.getOrderDate()),
+                OrderMarshaller.marshallOrder(order)
+        );
+    }
+
+    private static String removeRecord(LocalDate orderDate, int orderNumber) {
+        return String.join(DELIMITER,
+                REMOVE_RECORD,
+                INT_DATE_FORMATTER.format(orderDate),
+                Integer.toString(orderNumber)
+        );
+    }
+
+    private void applyPut(Order order) {
+        pending.computeIfAbsent(order.getOrderDate(), date -> new LinkedHashMap<>())
+                .put(order.getOrderNumber(), order.cloneOrder());
+        maxOrderNumber = Math.max(maxOrderNumber, order.getOrderNumber());
+        recordCount++;
+    }
+
+    private void applyRemove(LocalDate orderDate, int orderNumber) {
+        pending.computeIfAbsent(orderDate, date -> new LinkedHashMap<>())
+                .put(orderNumber, null);
+        maxOrderNumber = Math.max(maxOrderNumber, orderNumber);
+        recordCount++;
+    }
+
+    /**
+     * Applies a single journal record to the pending mutations.
+     * @throws FlooringDataPersistenceException if the record is malformed.
+     */
+    private void applyRecord(String record, CsvTokenizer tokenizer) throws FlooringDataPersistenceException {
+        final int typeEnd = record.indexOf(DELIMITER);
+        final int dateEnd = typeEnd < 0 ? -1 : record.indexOf(DELIMITER, typeEnd + 1);
+        if(dateEnd < 0) {
+            throw new FlooringDataPersistenceException(
+                    String.format("Malformed order journal record %s.", record)
+            );
+        }
+
+        try {
+            final String type = record.substring(0, typeEnd);
+            final LocalDate orderDate = LocalDate.parse(record.substring(typeEnd + 1, dateEnd), INT_DATE_FORMATTER);
+            final String body = record.substring(dateEnd + 1);
+            if(type.equals(PUT_RECORD)) {
+                applyPut(OrderUnmarshaller.unmarshallOrder(body, tokenizer, orderDate));
+            } else if(type.equals(REMOVE_RECORD)) {
+                applyRemove(orderDate, Integer.parseInt(body));
+            } else {
+                throw new FlooringDataPersistenceException(
+                        String.format("Unknown order journal record %s.", record)
+                );
+            }
+        } catch(NumberFormatException | DateTimeParseException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format("Malformed order journal record %s.", record),
+                    e
+            );
+        }
+    }
+
+    /**
+     * Loads the pending mutations from the journal on disk.
+     * A torn record at the end, left by a crash mid append, was never acknowledged, so it is cut off.
+     * @throws FlooringDataPersistenceException if the journal cannot be read, or holds a malformed record.
+     */
+    public synchronized void replay() throws FlooringDataPersistenceException {
+        final ChecksummedLog.Contents contents;
+        try {
+            contents = log.read();
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not read the order journal.", e);
+        }
+
+        pending = new TreeMap<>();
+        recordCount = 0;
+        maxOrderNumber = 0;
+        final CsvTokenizer tokenizer = OrderUnmarshaller.createTokenizer();
+        for(String record : contents.getRecords()) {
+            applyRecord(record, tokenizer);
+        }
+
+        if(!contents.isIntact()) {
+            try {
+                log.rewrite(contents.getRecords());
+            } catch(IOException e) {
+                throw new FlooringDataPersistenceException("Could not cut the torn end off the order journal.", e);
+            }
+        }
+    }
+
+    private void ensureReplayed() throws FlooringDataPersistenceException {
+        if(pending == null) {
+            replay();
+        }
+    }
+
+    /**
+     * Mutations gathered to be appended to the journal together.
+     */
+    public static class Batch {
+        private final List<String> records = new ArrayList<>();
+        // in record order, a null order is a removed order
+        private final List<LocalDate> orderDates = new ArrayList<>();
+        private final List<Integer> orderNumbers = new ArrayList<>();
+        private final List<Order> orders = new ArrayList<>();
+
+        /**
+         * @param order added or edited, as it should now be stored
+         */
+        public void put(Order order) {
+            records.add(putRecord(order));
+            orderDates.add(order.getOrderDate());
+            orderNumbers.add(order.getOrderNumber());
+            orders.add(order.cloneOrder());
+        }
+
+        public void remove(LocalDate orderDate, int orderNumber) {
+            records.add(removeRecord(orderDate, orderNumber));
+            orderDates.add(orderDate);
+            orderNumbers.add(orderNumber);
+            orders.add(null);
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+
+    /**
+     * Durably records every mutation of the batch, with one write and one fsync.
+     * @param batch to append
+     * @throws FlooringDataPersistenceException if the records could not be made durable.
+     */
+    public synchronized void append(Batch batch) throws FlooringDataPersistenceException {
+        ensureReplayed();
+        try {
+            log.append(batch.records);
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not append to the order journal.", e);
+        }
+
+        for(int i = 0; i < batch.orders.size(); i++) {
+            if(batch.orders.get(i) == null) {
+                applyRemove(batch.orderDates.get(i), batch.orderNumbers.get(i));
+            } else {
+                applyPut(batch.orders.get(i));
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the dates with mutations not yet folded into their order file, ascending.
+     */
+    public synchronized NavigableSet<LocalDate> getPendingDates() throws FlooringDataPersistenceException {
+        ensureReplayed();
+        return new TreeSet<>(pending.navigableKeySet());
+    }
+
+    public synchronized boolean hasPending(LocalDate orderDate) throws FlooringDataPersistenceException {
+        ensureReplayed();
+        return pending.containsKey(orderDate);
+    }
+
+    /**
+     * Lays the pending mutations of a date over the orders in its file.
+     * @param orderDate of the orders
+     * @param fileOrders every order in the date's file, empty if there is no file
+     * @return the orders of the date as of the last acknowledged mutation.
+     */
+    public synchronized List<Order> apply(LocalDate orderDate, List<Order> fileOrders) throws FlooringDataPersistenceException {
+        ensureReplayed();
+        final Map<Integer, Order> dayMutations = pending.get(orderDate);
+        if(dayMutations == null) {
+            return fileOrders;
+        }
+
+        final LinkedHashMap<Integer, Order> dayOrders = new LinkedHashMap<>();
+        for(Order order : fileOrders) {
+            dayOrders.put(order.getOrderNumber(), order);
+        }
+        for(Map.Entry<Integer, Order> mutation : dayMutations.entrySet()) {
+            if(mutation.getValue() == null) {
+                dayOrders.remove(mutation.getKey());
+            } else {
+                dayOrders.put(mutation.getKey(), mutation.getValue().cloneOrder());
+            }
+        }
+        return new ArrayList<>(dayOrders.values());
+    }
+
+    /**
+     * @return number of records in the journal.
+     */
+    public synchronized int getRecordCount() throws FlooringDataPersistenceException {
+        ensureReplayed();
+        return recordCount;
+    }
+
+    /**
+     * @return highest order number in any record, 0 if there are none.
+     */
+    public synchronized int getMaxOrderNumber() throws FlooringDataPersistenceException {
+        ensureReplayed();
+        return maxOrderNumber;
+    }
+
+    /**
+     * Drops every record, once all of them are folded into the order files.
+     * @throws FlooringDataPersistenceException if the journal could not be removed.
+     */
+    public synchronized void clear() throws FlooringDataPersistenceException {
+        try {
+            log.delete();
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not clear the order journal.", e);
+        }
+        pending = new TreeMap<>();
+        recordCount = 0;
+        maxOrderNumber = 0;
+    }
+}
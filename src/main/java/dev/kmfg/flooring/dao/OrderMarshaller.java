@@ -0,0 +1,92 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.model.Order;
+import dev.kmfg.flooring.service.validator.GenericValidator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Turns orders into rows of an order file or of an export, the reverse of OrderUnmarshaller.
+ */
+public class OrderMarshaller {
+    public static final String ORDERS_FILE_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total";
+    public static final String EXPORT_ALL_HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,Date";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * Writes the header and a row per order, with no flushing in between.
+     * @param out to write to, left open
+     * @param orders every order of the file, in the order they should appear.
+     * @throws IOException if writing fails.
+     */
+    public static void writeOrderFile(Writer out, List<Order> orders) throws IOException {
+        out.write(ORDERS_FILE_HEADER);
+        out.write(LINE_SEPARATOR);
+        for(Order order : orders) {
+            out.write(marshallOrder(order));
+            out.write(LINE_SEPARATOR);
+        }
+    }
+
+    /**
+     * Does not null check any fields on order. May produce NPE if not validated.
+     * @param order the order to stringify
+     * @return the stringified order
+     */
+    public static String marshallOrder(Order order) {
+        return Stream.of(
+                        order.getOrderNumber(),
+                        order.getCustomerName().replace(',', '#'),
+                        order.getStateTax().getStateAbbreviation(),
+                        order.getStateTax().getTaxRate(),
+                        order.getProduct().getProductType(),
+                        order.getArea(),
+                        order.getProduct().getCostPerSqft(),
+                        order.getProduct().getLaborCostPerSqft(),
+                        order.getMaterialCost(),
+                        order.getLaborCost(),
+                        order.getTax(),
+                        order.getTotal()
+                )
+                .map(Object::toString)
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Unlike the regular marshall, this includes the date, and does not convert commas to pound.
+     * Does not null check any fields on order. May produce NPE if not validated.
+     * @param order the order to stringify
+     * @return the stringified order
+     */
+    public static String exportMarshallOrder(Order order) {
+        final StringBuilder row = new StringBuilder();
+        appendExportRow(row, order);
+        return row.toString();
+    }
+
+    /**
+     * Appends the same row as the export marshall, without building a string per field.
+     * Does not null check any fields on order. May produce NPE if not validated.
+     * @param row to append to
+     * @param order the order to stringify
+     */
+    public static void appendExportRow(StringBuilder row, Order order) {
+        row.append(order.getOrderNumber()).append(',')
+                .append('"').append(order.getCustomerName()).append('"').append(',') // csv does this so were gonna do it too.
+                .append(order.getStateTax().getStateAbbreviation()).append(',')
+                .append(order.getStateTax().getTaxRate()).append(',')
+                .append(order.getProduct().getProductType()).append(',')
+                .append(order.getArea()).append(',')
+                .append(order.getProduct().getCostPerSqft()).append(',')
+                .append(order.getProduct().getLaborCostPerSqft()).append(',')
+                .append(order.getMaterialCost()).append(',')
+                .append(order.getLaborCost()).append(',')
+                .append(order.getTax()).append(',')
+                .append(order.getTotal()).append(',');
+        GenericValidator.EXPORT_DATE_FORMATTER.formatTo(order.getOrderDate(), row);
+    }
+}
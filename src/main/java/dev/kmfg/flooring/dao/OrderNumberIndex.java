@@ -0,0 +1,107 @@
+package dev.kmfg.flooring.dao;
+
+import java.time.LocalDate;
+
+/**
+ * Maps order numbers to the date of their order file, and their row in it, without boxing.
+ * Order numbers are unique across every date, so one lookup finds the only file an order can be in.
+ * An IntKeyTable of order numbers, with the dates and rows in parallel int arrays.
+ */
+public class OrderNumberIndex extends IntKeyTable {
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] epochDays;
+    private int[] rows;
+
+    public OrderNumberIndex() {
+        super(MIN_CAPACITY);
+        allocate(MIN_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        epochDays = new int[capacity];
+        rows = new int[capacity];
+    }
+
+    @Override
+    protected void moveValue(int fromSlot, int toSlot) {
+        epochDays[toSlot] = epochDays[fromSlot];
+        rows[toSlot] = rows[fromSlot];
+    }
+
+    @Override
+    protected void clearValue(int slot) {
+        // a slot's values are only read while its key is there
+    }
+
+    @Override
+    protected void resizeValues(int[] newSlots, int capacity) {
+        final int[] oldEpochDays = epochDays;
+        final int[] oldRows = rows;
+        allocate(capacity);
+        for(int i = 0; i < newSlots.length; i++) {
+            if(newSlots[i] >= 0) {
+                epochDays[newSlots[i]] = oldEpochDays[i];
+                rows[newSlots[i]] = oldRows[i];
+            }
+        }
+    }
+
+    /**
+     * @param orderNumber of the order, at least 1
+     * @param orderDate of the file the order is in
+     * @param row of the order among the orders of its date, as they are read, from 0
+     */
+    public synchronized void put(int orderNumber, LocalDate orderDate, int row) {
+        if(orderNumber == EMPTY) {
+            throw new IllegalArgumentException("Order number 0 cannot be indexed.");
+        }
+
+        final int slot = insert(orderNumber);
+        epochDays[slot] = (int) orderDate.toEpochDay();
+        rows[slot] = row;
+    }
+
+    /**
+     * @return date of the file the order is in, or null if the order number is not indexed.
+     */
+    public synchronized LocalDate getOrderDate(int orderNumber) {
+        final int slot = slotOf(orderNumber);
+        return isUsed(slot) ? LocalDate.ofEpochDay(epochDays[slot]) : null;
+    }
+
+    /**
+     * @return row of the order among the orders of its date, or -1 if the order number is not indexed.
+     */
+    public synchronized int getRow(int orderNumber) {
+        final int slot = slotOf(orderNumber);
+        return isUsed(slot) ? rows[slot] : -1;
+    }
+
+    /**
+     * Removes an order number.
+     */
+    public synchronized void remove(int orderNumber) {
+        delete(orderNumber);
+    }
+
+    /**
+     * Indexes every order of a date, replacing whatever was indexed for their numbers.
+     * @param orderDate of the file
+     * @param orderNumbers of every order of the date, in the order they are read
+     */
+    public synchronized void putDay(LocalDate orderDate, int[] orderNumbers) {
+        for(int row = 0; row < orderNumbers.length; row++) {
+            put(orderNumbers[row], orderDate, row);
+        }
+    }
+
+    public synchronized int size() {
+        return count();
+    }
+
+    public synchronized void clear() {
+        reset(MIN_CAPACITY);
+        allocate(MIN_CAPACITY);
+    }
+}
@@ -0,0 +1,238 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.service.validator.OrderValidator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Durable high-water-mark of handed out order numbers.
+ * The value is kept in memory once loaded, so allocating a number never depends on how many orders exist.
+ * The file is only rebuilt from the orders themselves when it is missing or corrupt.
+ * Numbers are claimed with a compare and set, so threads allocating at once never block each other,
+ *  only writing the high-water-mark to disk is serialised, and a write that is already covered by a higher one is skipped.
+ * When other processes share the file, every block is instead claimed under its exclusive lock,
+ *  from the high-water-mark reread from disk.
+ */
+public class OrderNumberSequence {
+    private static final String DELIMITER = ",";
+    private static final int REQUIRED_PARTS = 2;
+    private static final int NOT_LOADED = -1;
+
+    private final Path sequencePath;
+    // null if no other process uses the sequence
+    private final OrderFileLocks processLocks;
+
+    // highest number handed out in memory
+    private final AtomicInteger highWaterMark;
+    // highest number known to be on disk, guarded by this
+    private int durableHighWaterMark;
+
+    /**
+     * Supplies the largest order number currently persisted. Only used to rebuild the sequence.
+     */
+    public interface MaxOrderNumberSupplier {
+        int getMaxOrderNumber() throws FlooringDataPersistenceException;
+    }
+
+    public OrderNumberSequence(Path sequencePath) {
+        this(sequencePath, null);
+    }
+
+    /**
+     * @param sequencePath file holding the high-water-mark
+     * @param processLocks locks shared with the other processes using the file, null if there are none
+     */
+    public OrderNumberSequence(Path sequencePath, OrderFileLocks processLocks) {
+        this.sequencePath = sequencePath;
+        this.processLocks = processLocks;
+        this.highWaterMark = new AtomicInteger(NOT_LOADED);
+    }
+
+    private static long checksum(String value) {
+        final CRC32 crc = new CRC32();
+        crc.update(value.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    /**
+     * Reads the stored high-water-mark.
+     * @return the stored value, or -1 if the file is missing or corrupt.
+     * @throws FlooringDataPersistenceException if the file exists but cannot be read.
+     */
+    private int readStored() throws FlooringDataPersistenceException {
+        final String content;
+        try {
+            content = Files.readString(sequencePath, StandardCharsets.UTF_8).trim();
+        } catch(NoSuchFileException e) {
+            return -1;
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not read the order number sequence.", e);
+        }
+
+        final String[] parts = content.split(DELIMITER);
+        if(parts.length != REQUIRED_PARTS) {
+            return -1;
+        }
+
+        try {
+            final int storedValue = Integer.parseInt(parts[0]);
+            final long storedChecksum = Long.parseLong(parts[1], 16);
+            if(storedValue < 0 || storedChecksum != checksum(parts[0])) {
+                return -1;
+            }
+            return storedValue;
+        } catch(NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void store(int value) throws FlooringDataPersistenceException {
+        final String valueStr = Integer.toString(value);
+        final String content = valueStr + DELIMITER + Long.toHexString(checksum(valueStr)) + System.lineSeparator();
+
+        try {
+            AtomicFiles.replace(sequencePath, ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not persist the order number sequence.", e);
+        }
+    }
+
+    private synchronized void load(MaxOrderNumberSupplier rebuildFrom) throws FlooringDataPersistenceException {
+        if(highWaterMark.get() != NOT_LOADED) {
+            return;
+        }
+
+        int storedValue = readStored();
+        if(storedValue < 0) {
+            storedValue = rebuildFrom.getMaxOrderNumber();
+            store(storedValue);
+        }
+        durableHighWaterMark = storedValue;
+        highWaterMark.set(storedValue);
+    }
+
+    /**
+     * Makes sure the high-water-mark on disk is at least the given value.
+     */
+    private synchronized void makeDurable(int value) throws FlooringDataPersistenceException {
+        if(value > durableHighWaterMark) {
+            store(value);
+            durableHighWaterMark = value;
+        }
+    }
+
+    /**
+     * @return the last number of a block starting at the first number.
+     * @throws FlooringDataPersistenceException if there are not enough numbers left.
+     */
+    private static int lastOfBlock(int firstOrderNumber, int count) throws FlooringDataPersistenceException {
+        final int lastOrderNumber = firstOrderNumber + count - 1;
+        if(count < 1 || lastOrderNumber > OrderValidator.MAX_ORDER_NUMBER || lastOrderNumber < firstOrderNumber) {
+            throw new FlooringDataPersistenceException("Order numbers have been exhausted!");
+        }
+        return lastOrderNumber;
+    }
+
+    /**
+     * Hands out a block while other processes may hand out numbers from the same file.
+     * The high-water-mark on disk is reread under the exclusive sequence lock, and replaced before the lock is released.
+     */
+    private synchronized int nextSharedBlock(int count, MaxOrderNumberSupplier rebuildFrom) throws FlooringDataPersistenceException {
+        final OrderFileLocks.Held sequenceLock = processLocks.lockSequence();
+        try {
+            int storedValue = readStored();
+            if(storedValue < 0) {
+                storedValue = rebuildFrom.getMaxOrderNumber();
+            }
+
+            final int firstOrderNumber = Math.max(Math.max(storedValue, highWaterMark.get()) + 1, OrderValidator.MIN_ORDER_NUMBER);
+            final int lastOrderNumber = lastOfBlock(firstOrderNumber, count);
+            store(lastOrderNumber);
+            durableHighWaterMark = lastOrderNumber;
+            highWaterMark.set(lastOrderNumber);
+            return firstOrderNumber;
+        } finally {
+            sequenceLock.release();
+        }
+    }
+
+    /**
+     * Hands out the next order number. The new high-water-mark is durable before the number is returned,
+     *  so a crash can leave a gap but never hand out the same number twice.
+     * @param rebuildFrom used only if the sequence file is missing or corrupt.
+     * @return the next unused order number.
+     * @throws FlooringDataPersistenceException if the sequence cannot be read, rebuilt, or persisted.
+     */
+    public int next(MaxOrderNumberSupplier rebuildFrom) throws FlooringDataPersistenceException {
+        return nextBlock(1, rebuildFrom);
+    }
+
+    /**
+     * Hands out a block of consecutive order numbers, with a single write of the high-water-mark.
+     * @param count of numbers needed, at least 1
+     * @param rebuildFrom used only if the sequence file is missing or corrupt.
+     * @return the first number of the block, the rest follow it.
+     * @throws FlooringDataPersistenceException if the sequence cannot be read, rebuilt, or persisted,
+     *  or there are not enough numbers left.
+     */
+    public int nextBlock(int count, MaxOrderNumberSupplier rebuildFrom) throws FlooringDataPersistenceException {
+        if(processLocks != null) {
+            return nextSharedBlock(count, rebuildFrom);
+        }
+        if(highWaterMark.get() == NOT_LOADED) {
+            load(rebuildFrom);
+        }
+
+        while(true) {
+            final int currentHighWaterMark = highWaterMark.get();
+            final int firstOrderNumber = Math.max(currentHighWaterMark + 1, OrderValidator.MIN_ORDER_NUMBER);
+            final int lastOrderNumber = lastOfBlock(firstOrderNumber, count);
+            if(highWaterMark.compareAndSet(currentHighWaterMark, lastOrderNumber)) {
+                // the block is ours alone, it is only handed back once it is durable
+                makeDurable(lastOrderNumber);
+                return firstOrderNumber;
+            }
+        }
+    }
+
+    /**
+     * Raises the high-water-mark to at least an order number that was not handed out here, such as an imported order's,
+     *  so it is never handed out again.
+     * @param orderNumber in use
+     * @param rebuildFrom used only if the sequence file is missing or corrupt.
+     * @throws FlooringDataPersistenceException if the sequence cannot be read, rebuilt, or persisted.
+     */
+    public synchronized void advanceTo(int orderNumber, MaxOrderNumberSupplier rebuildFrom) throws FlooringDataPersistenceException {
+        if(processLocks != null) {
+            final OrderFileLocks.Held sequenceLock = processLocks.lockSequence();
+            try {
+                int storedValue = readStored();
+                if(storedValue < 0) {
+                    storedValue = rebuildFrom.getMaxOrderNumber();
+                }
+                if(orderNumber > storedValue) {
+                    store(orderNumber);
+                }
+                durableHighWaterMark = Math.max(storedValue, orderNumber);
+                highWaterMark.accumulateAndGet(durableHighWaterMark, Math::max);
+            } finally {
+                sequenceLock.release();
+            }
+            return;
+        }
+
+        if(highWaterMark.get() == NOT_LOADED) {
+            load(rebuildFrom);
+        }
+        highWaterMark.accumulateAndGet(orderNumber, Math::max);
+        makeDurable(orderNumber);
+    }
+}
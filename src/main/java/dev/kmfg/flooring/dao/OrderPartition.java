@@ -0,0 +1,115 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.model.Order;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The orders of a single date held in memory, keyed by order number without boxing.
+ * An IntKeyTable of order numbers, with the orders in a parallel array.
+ * One of these per date lets the dao replace or drop a whole date in time proportional to that date alone.
+ */
+public class OrderPartition extends IntKeyTable {
+    private static final int MIN_CAPACITY = 8;
+
+    private Order[] orders;
+
+    public OrderPartition() {
+        super(MIN_CAPACITY);
+        orders = new Order[MIN_CAPACITY];
+    }
+
+    /**
+     * @param dayOrders every order of one date
+     * @return a partition holding the orders.
+     */
+    public static OrderPartition of(Collection<Order> dayOrders) {
+        final OrderPartition partition = new OrderPartition();
+        for(Order order : dayOrders) {
+            partition.put(order);
+        }
+        return partition;
+    }
+
+    @Override
+    protected void moveValue(int fromSlot, int toSlot) {
+        orders[toSlot] = orders[fromSlot];
+    }
+
+    @Override
+    protected void clearValue(int slot) {
+        orders[slot] = null;
+    }
+
+    @Override
+    protected void resizeValues(int[] newSlots, int capacity) {
+        final Order[] oldOrders = orders;
+        orders = new Order[capacity];
+        for(int i = 0; i < newSlots.length; i++) {
+            if(newSlots[i] >= 0) {
+                orders[newSlots[i]] = oldOrders[i];
+            }
+        }
+    }
+
+    /**
+     * @return the order, or null if the date has no order with the number.
+     */
+    public Order get(int orderNumber) {
+        return orders[slotOf(orderNumber)];
+    }
+
+    public boolean containsKey(int orderNumber) {
+        return isUsed(slotOf(orderNumber));
+    }
+
+    /**
+     * Adds or replaces an order by its number.
+     * @param order with an order number of at least 1
+     * @return the order it replaced, null if there was none.
+     */
+    public Order put(Order order) {
+        if(order.getOrderNumber() == EMPTY) {
+            throw new IllegalArgumentException("An order without an order number cannot be stored.");
+        }
+
+        final int slot = insert(order.getOrderNumber());
+        final Order replaced = orders[slot];
+        orders[slot] = order;
+        return replaced;
+    }
+
+    /**
+     * Removes an order.
+     * @return the removed order, null if there was none.
+     */
+    public Order remove(int orderNumber) {
+        final Order removed = orders[slotOf(orderNumber)];
+        return delete(orderNumber) ? removed : null;
+    }
+
+    public int size() {
+        return count();
+    }
+
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /**
+     * @return every order of the date, by ascending order number.
+     */
+    public List<Order> values() {
+        final List<Order> values = new ArrayList<>(count());
+        for(Order order : orders) {
+            if(order != null) {
+                values.add(order);
+            }
+        }
+        values.sort(Comparator.comparingInt(Order::getOrderNumber));
+        return values;
+    }
+}
@@ -0,0 +1,201 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.model.Order;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps the parsed orders of recently used order dates, so repeated lookups on a date do not reparse its file.
+ * A cached date is only used while its file has the same last modified time and size as when it was cached.
+ * When the file was modified too close to being cached for its timestamp to be trusted, the content hash is checked too.
+ * The least recently used date is evicted once the cache is full.
+ * Cached orders are handed out shared, in an unmodifiable list, so a hit allocates nothing.
+ *  They must never be changed, the dao clones an order before giving it to a caller.
+ */
+public class OrderPartitionCache {
+    // file systems may only keep modification times to the second or worse,
+    //  so a change this close to caching could keep the same timestamp and size.
+    private static final long RACY_WINDOW_MILLIS = 2000;
+    private static final int HASH_BUFFER_SIZE = 8192;
+
+    private final LinkedHashMap<LocalDate, Partition> partitions;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Last modified time and size of an order file at a point in time.
+     */
+    public static class FileStamp {
+        private final long lastModifiedMillis;
+        private final long size;
+        private final long stampedAtMillis;
+
+        private FileStamp(long lastModifiedMillis, long size, long stampedAtMillis) {
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.size = size;
+            this.stampedAtMillis = stampedAtMillis;
+        }
+
+        /**
+         * @param file to stamp
+         * @return the stamp, or null if the file does not exist.
+         * @throws FlooringDataPersistenceException if the file attributes cannot be read.
+         */
+        public static FileStamp of(Path file) throws FlooringDataPersistenceException {
+            final long now = System.currentTimeMillis();
+            try {
+                final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileStamp(attributes.lastModifiedTime().toMillis(), attributes.size(), now);
+            } catch(NoSuchFileException e) {
+                return null;
+            } catch(IOException e) {
+                throw new FlooringDataPersistenceException(
+                        String.format("Could not read the attributes of %s.", file),
+                        e
+                );
+            }
+        }
+
+        private boolean matches(FileStamp other) {
+            return lastModifiedMillis == other.lastModifiedMillis && size == other.size;
+        }
+
+        private boolean isRacy() {
+            return stampedAtMillis - lastModifiedMillis < RACY_WINDOW_MILLIS;
+        }
+    }
+
+    private static class Partition {
+        private final List<Order> orders;
+        private final long checksum;
+        private FileStamp stamp;
+
+        private Partition(List<Order> orders, FileStamp stamp, long checksum) {
+            this.orders = orders;
+            this.stamp = stamp;
+            this.checksum = checksum;
+        }
+    }
+
+    /**
+     * @param maxPartitions number of dates to keep before evicting the least recently used.
+     */
+    public OrderPartitionCache(int maxPartitions) {
+        final float defaultLoadFactor = 0.75f;
+        final boolean accessOrder = true;
+        this.partitions = new LinkedHashMap<>(16, defaultLoadFactor, accessOrder) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<LocalDate, Partition> eldest) {
+                return size() > maxPartitions;
+            }
+        };
+    }
+
+    /**
+     * @param file to hash
+     * @return CRC32 of the file content.
+     * @throws FlooringDataPersistenceException if the file cannot be read.
+     */
+    private static long hash(Path file) throws FlooringDataPersistenceException {
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+        try(InputStream in = Files.newInputStream(file)) {
+            int read;
+            while((read = in.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format("Could not hash %s.", file),
+                    e
+            );
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Gets the cached orders for a date, if its file has not changed since they were cached.
+     * @param orderDate of the orders
+     * @param file holding the orders for the date
+     * @return the shared, unmodifiable cached orders, or null if they are not cached or are out of date.
+     * @throws FlooringDataPersistenceException if the file cannot be checked.
+     */
+    public synchronized List<Order> get(LocalDate orderDate, Path file) throws FlooringDataPersistenceException {
+        final Partition partition = partitions.get(orderDate);
+        if(partition == null) {
+            missCount++;
+            return null;
+        }
+
+        final FileStamp currentStamp = FileStamp.of(file);
+        if(currentStamp == null || !currentStamp.matches(partition.stamp)) {
+            partitions.remove(orderDate);
+            missCount++;
+            return null;
+        }
+
+        if(partition.stamp.isRacy()) {
+            if(hash(file) != partition.checksum) {
+                partitions.remove(orderDate);
+                missCount++;
+                return null;
+            }
+            // the content is confirmed as of now, so later checks may be able to trust the timestamp alone.
+            partition.stamp = currentStamp;
+        }
+
+        hitCount++;
+        return partition.orders;
+    }
+
+    /**
+     * Caches the orders of a date.
+     * @param orderDate of the orders
+     * @param stamp of the file, taken BEFORE it was read, or AFTER it was written.
+     * @param orders every order in the file, which must not be changed once cached
+     * @param checksum CRC32 of the file content
+     * @return the orders as cached, the same list later hits return, or the given orders if they could not be cached.
+     */
+    public synchronized List<Order> put(LocalDate orderDate, FileStamp stamp, List<Order> orders, long checksum) {
+        if(stamp == null) {
+            partitions.remove(orderDate);
+            return orders;
+        }
+        final List<Order> cached = Collections.unmodifiableList(new ArrayList<>(orders));
+        partitions.put(orderDate, new Partition(cached, stamp, checksum));
+        return cached;
+    }
+
+    /**
+     * @return true if the date has cached orders, without checking if they are out of date, or counting a hit or miss.
+     */
+    public synchronized boolean contains(LocalDate orderDate) {
+        return partitions.containsKey(orderDate);
+    }
+
+    public synchronized void evict(LocalDate orderDate) {
+        partitions.remove(orderDate);
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
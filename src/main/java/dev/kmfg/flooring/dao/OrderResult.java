@@ -0,0 +1,46 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.model.Order;
+
+/**
+ * Outcome of one order in a batch, so a bad order does not fail the orders around it.
+ */
+public class OrderResult {
+    private final Order order;
+    private final Exception failure;
+
+    private OrderResult(Order order, Exception failure) {
+        this.order = order;
+        this.failure = failure;
+    }
+
+    /**
+     * @param order as it was persisted
+     */
+    public static OrderResult success(Order order) {
+        return new OrderResult(order, null);
+    }
+
+    /**
+     * @param order that could not be persisted, as it was given
+     * @param failure why it could not be persisted
+     */
+    public static OrderResult failure(Order order, Exception failure) {
+        return new OrderResult(order, failure);
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * @return why the order could not be persisted, null if it was.
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+}
@@ -0,0 +1,138 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.parser.CsvTokenizer;
+import dev.kmfg.flooring.dao.parser.FixedPointDecimal;
+import dev.kmfg.flooring.model.Order;
+import dev.kmfg.flooring.model.Product;
+import dev.kmfg.flooring.model.StateTax;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+
+/**
+ * Turns rows of an order file back into orders, shared by every OrderFileReader.
+ * Rows are tokenized in place and number fields are parsed straight into scaled longs,
+ *  so the only objects made per row are the ones the order keeps.
+ * Products and state taxes are shared through ModelFlyweights, so rows with the same values point at one instance.
+ */
+public class OrderUnmarshaller {
+    public static final char DELIMITER = ',';
+    public static final int REQUIRED_PARTS = 12;
+    private static final int DECIMAL_SCALE = 2;
+
+    // field positions, MaterialCost, LaborCost, Tax, Total are ignored as these are calculated values
+    private static final int ORDER_NUMBER = 0;
+    private static final int CUSTOMER_NAME = 1;
+    private static final int STATE = 2;
+    private static final int TAX_RATE = 3;
+    private static final int PRODUCT_TYPE = 4;
+    private static final int AREA = 5;
+    private static final int COST_PER_SQFT = 6;
+    private static final int LABOR_COST_PER_SQFT = 7;
+
+    /**
+     * @return a tokenizer for order rows, reuse it for every row of a file.
+     */
+    public static CsvTokenizer createTokenizer() {
+        return new CsvTokenizer(DELIMITER, REQUIRED_PARTS);
+    }
+
+    private static void checkFieldCount(int fieldCount) throws FlooringDataPersistenceException {
+        if(fieldCount != REQUIRED_PARTS) {
+            throw new FlooringDataPersistenceException(
+                    String.format(
+                            "Malformed data while unmarshalling order. Required %d parts, but received %d.",
+                            REQUIRED_PARTS,
+                            fieldCount
+                    )
+            );
+        }
+    }
+
+    private static Order createOrder(
+            LocalDate orderDate,
+            int orderNumber,
+            String customerName,
+            String stateAbbreviation,
+            long taxRate,
+            String productType,
+            long area,
+            long costPerSqft,
+            long laborCostPerSqft
+    ) {
+        // parsed at a scale of 2, which is cents and hundredths of a percent
+        final StateTax stateTax = ModelFlyweights.stateTax(stateAbbreviation, "Not Loaded", taxRate);
+        final Product product = ModelFlyweights.product(productType, costPerSqft, laborCostPerSqft);
+
+        return new Order()
+                .setCustomerName(customerName.replace('#', ','))
+                .setOrderNumber(orderNumber)
+                .setOrderDate(orderDate)
+                .setArea(FixedPointDecimal.toBigDecimal(area, DECIMAL_SCALE))
+                .setStateTax(stateTax)
+                .setProduct(product);
+    }
+
+    /**
+     * @param orderStr a row of an order file, without its line ending.
+     * @param tokenizer from createTokenizer
+     * @param orderDate the file holds orders for
+     * @return the order
+     * @throws FlooringDataPersistenceException if the row is malformed.
+     */
+    public static Order unmarshallOrder(String orderStr, CsvTokenizer tokenizer, LocalDate orderDate) throws FlooringDataPersistenceException {
+        checkFieldCount(tokenizer.tokenize(orderStr, 0, orderStr.length()));
+
+        try {
+            return createOrder(
+                    orderDate,
+                    FixedPointDecimal.parseInt(orderStr, tokenizer.getStart(ORDER_NUMBER), tokenizer.getEnd(ORDER_NUMBER)),
+                    tokenizer.getString(orderStr, CUSTOMER_NAME),
+                    tokenizer.getString(orderStr, STATE),
+                    FixedPointDecimal.parse(orderStr, tokenizer.getStart(TAX_RATE), tokenizer.getEnd(TAX_RATE), DECIMAL_SCALE),
+                    tokenizer.getString(orderStr, PRODUCT_TYPE),
+                    FixedPointDecimal.parse(orderStr, tokenizer.getStart(AREA), tokenizer.getEnd(AREA), DECIMAL_SCALE),
+                    FixedPointDecimal.parse(orderStr, tokenizer.getStart(COST_PER_SQFT), tokenizer.getEnd(COST_PER_SQFT), DECIMAL_SCALE),
+                    FixedPointDecimal.parse(orderStr, tokenizer.getStart(LABOR_COST_PER_SQFT), tokenizer.getEnd(LABOR_COST_PER_SQFT), DECIMAL_SCALE)
+            );
+        } catch (NumberFormatException e) {
+            throw new FlooringDataPersistenceException(
+                    "Malformed data while unmarshalling order.",
+                    e
+            );
+        }
+    }
+
+    /**
+     * @param bytes holding a row of an order file, read with absolute gets.
+     * @param start of the row, inclusive
+     * @param end of the row, exclusive, without its line ending.
+     * @param tokenizer from createTokenizer
+     * @param orderDate the file holds orders for
+     * @return the order
+     * @throws FlooringDataPersistenceException if the row is malformed.
+     */
+    public static Order unmarshallOrder(ByteBuffer bytes, int start, int end, CsvTokenizer tokenizer, LocalDate orderDate) throws FlooringDataPersistenceException {
+        checkFieldCount(tokenizer.tokenize(bytes, start, end));
+
+        try {
+            return createOrder(
+                    orderDate,
+                    FixedPointDecimal.parseInt(bytes, tokenizer.getStart(ORDER_NUMBER), tokenizer.getEnd(ORDER_NUMBER)),
+                    tokenizer.getString(bytes, CUSTOMER_NAME),
+                    tokenizer.getString(bytes, STATE),
+                    FixedPointDecimal.parse(bytes, tokenizer.getStart(TAX_RATE), tokenizer.getEnd(TAX_RATE), DECIMAL_SCALE),
+                    tokenizer.getString(bytes, PRODUCT_TYPE),
+                    FixedPointDecimal.parse(bytes, tokenizer.getStart(AREA), tokenizer.getEnd(AREA), DECIMAL_SCALE),
+                    FixedPointDecimal.parse(bytes, tokenizer.getStart(COST_PER_SQFT), tokenizer.getEnd(COST_PER_SQFT), DECIMAL_SCALE),
+                    FixedPointDecimal.parse(bytes, tokenizer.getStart(LABOR_COST_PER_SQFT), tokenizer.getEnd(LABOR_COST_PER_SQFT), DECIMAL_SCALE)
+            );
+        } catch (NumberFormatException e) {
+            throw new FlooringDataPersistenceException(
+                    "Malformed data while unmarshalling order.",
+                    e
+            );
+        }
+    }
+}
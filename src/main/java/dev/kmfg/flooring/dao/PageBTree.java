@@ -0,0 +1,464 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A B+tree in a PageFile, from long keys to short byte values, one node per page.
+ * Values are only kept in the leaves, and the leaves are linked in key order, so a range is read leaf after leaf.
+ * Nodes are split when their page overflows. They are not merged when they shrink, but a node left empty is
+ *  unlinked and its page freed, and a root left with a single child is replaced by that child.
+ * The root page is kept in a metadata slot of the file, so several trees can share one file.
+ */
+public class PageBTree {
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+
+    // type, entry count, next leaf, previous leaf
+    private static final int NODE_HEADER_SIZE = 1 + Short.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int LEAF_ENTRY_OVERHEAD = Long.BYTES + Short.BYTES;
+    private static final int INTERNAL_ENTRY_SIZE = Long.BYTES + Integer.BYTES;
+    // at least four values fit in a leaf, so both halves of a split leaf always fit
+    public static final int MAX_VALUE_SIZE = (PageFile.PAGE_SIZE - NODE_HEADER_SIZE) / 4 - LEAF_ENTRY_OVERHEAD;
+
+    private final PageFile pageFile;
+    private final int rootSlot;
+
+    /**
+     * Reads entries of a range of keys, in key order.
+     */
+    public interface EntryVisitor {
+        /**
+         * @return false to stop reading.
+         */
+        boolean visit(long key, byte[] value) throws FlooringDataPersistenceException;
+    }
+
+    /**
+     * A node decoded from its page. Leaves use values, internal nodes use children, one more than keys.
+     */
+    private static class Node {
+        private final boolean leaf;
+        private int size;
+        private int next;
+        private int prev;
+        private long[] keys;
+        private byte[][] values;
+        private int[] children;
+
+        private Node(boolean leaf, int capacity) {
+            this.leaf = leaf;
+            this.keys = new long[capacity];
+            if(leaf) {
+                this.values = new byte[capacity][];
+            } else {
+                this.children = new int[capacity + 1];
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if(capacity <= keys.length) {
+                return;
+            }
+            final int grown = Math.max(capacity, keys.length * 2);
+            keys = Arrays.copyOf(keys, grown);
+            if(leaf) {
+                values = Arrays.copyOf(values, grown);
+            } else {
+                children = Arrays.copyOf(children, grown + 1);
+            }
+        }
+
+        /**
+         * @return index of the key, or -(insertion point) - 1 if it is not in the node.
+         */
+        private int search(long key) {
+            return Arrays.binarySearch(keys, 0, size, key);
+        }
+
+        /**
+         * @return index of the child that holds the key, separators are the smallest key of the child to their right.
+         */
+        private int childIndex(long key) {
+            final int index = search(key);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+
+        private int byteSize() {
+            if(!leaf) {
+                return NODE_HEADER_SIZE + Integer.BYTES + size * INTERNAL_ENTRY_SIZE;
+            }
+            int byteSize = NODE_HEADER_SIZE;
+            for(int i = 0; i < size; i++) {
+                byteSize += LEAF_ENTRY_OVERHEAD + values[i].length;
+            }
+            return byteSize;
+        }
+
+        private void insertEntry(int index, long key, byte[] value) {
+            ensureCapacity(size + 1);
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(values, index, values, index + 1, size - index);
+            keys[index] = key;
+            values[index] = value;
+            size++;
+        }
+
+        private void removeEntry(int index) {
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            values[size] = null;
+        }
+
+        /**
+         * Adds a separator, with the child right of it.
+         */
+        private void insertChild(int keyIndex, long key, int rightChild) {
+            ensureCapacity(size + 1);
+            System.arraycopy(keys, keyIndex, keys, keyIndex + 1, size - keyIndex);
+            System.arraycopy(children, keyIndex + 1, children, keyIndex + 2, size - keyIndex);
+            keys[keyIndex] = key;
+            children[keyIndex + 1] = rightChild;
+            size++;
+        }
+
+        /**
+         * Drops a child, with the separator next to it.
+         */
+        private void removeChild(int childIndex) {
+            final int keyIndex = childIndex == 0 ? 0 : childIndex - 1;
+            System.arraycopy(keys, keyIndex + 1, keys, keyIndex, size - keyIndex - 1);
+            System.arraycopy(children, childIndex + 1, children, childIndex, size - childIndex);
+            size--;
+        }
+    }
+
+    /**
+     * A node split in two, the separator and new right node go to the parent.
+     */
+    private static class Split {
+        private final long separator;
+        private final int rightPage;
+
+        private Split(long separator, int rightPage) {
+            this.separator = separator;
+            this.rightPage = rightPage;
+        }
+    }
+
+    /**
+     * @param pageFile to keep the nodes in
+     * @param rootSlot metadata slot of the file holding the root page, NO_PAGE while the tree is empty
+     */
+    public PageBTree(PageFile pageFile, int rootSlot) {
+        this.pageFile = pageFile;
+        this.rootSlot = rootSlot;
+    }
+
+    private int getRoot() {
+        return pageFile.getMetadata(rootSlot);
+    }
+
+    private void setRoot(int pageId) {
+        pageFile.setMetadata(rootSlot, pageId);
+    }
+
+    private Node readNode(int pageId) throws FlooringDataPersistenceException {
+        final ByteBuffer page = pageFile.read(pageId);
+        final byte type = page.get();
+        if(type != LEAF && type != INTERNAL) {
+            throw new FlooringDataPersistenceException(String.format("Page %d is not a tree node, the data file is damaged.", pageId));
+        }
+
+        final int size = Short.toUnsignedInt(page.getShort());
+        final Node node = new Node(type == LEAF, size + 1);
+        node.size = size;
+        node.next = page.getInt();
+        node.prev = page.getInt();
+        if(node.leaf) {
+            for(int i = 0; i < size; i++) {
+                node.keys[i] = page.getLong();
+                node.values[i] = new byte[Short.toUnsignedInt(page.getShort())];
+                page.get(node.values[i]);
+            }
+        } else {
+            node.children[0] = page.getInt();
+            for(int i = 0; i < size; i++) {
+                node.keys[i] = page.getLong();
+                node.children[i + 1] = page.getInt();
+            }
+        }
+        return node;
+    }
+
+    private void writeNode(int pageId, Node node) throws FlooringDataPersistenceException {
+        final ByteBuffer page = ByteBuffer.allocate(node.byteSize());
+        page.put(node.leaf ? LEAF : INTERNAL)
+                .putShort((short) node.size)
+                .putInt(node.next)
+                .putInt(node.prev);
+        if(node.leaf) {
+            for(int i = 0; i < node.size; i++) {
+                page.putLong(node.keys[i])
+                        .putShort((short) node.values[i].length)
+                        .put(node.values[i]);
+            }
+        } else {
+            page.putInt(node.children[0]);
+            for(int i = 0; i < node.size; i++) {
+                page.putLong(node.keys[i]).putInt(node.children[i + 1]);
+            }
+        }
+        page.flip();
+        pageFile.write(pageId, page);
+    }
+
+    /**
+     * @return the leaf that holds the key, or would hold it.
+     */
+    private int findLeaf(long key) throws FlooringDataPersistenceException {
+        int pageId = getRoot();
+        Node node = readNode(pageId);
+        while(!node.leaf) {
+            pageId = node.children[node.childIndex(key)];
+            node = readNode(pageId);
+        }
+        return pageId;
+    }
+
+    /**
+     * @return the value of the key, or null if the tree does not hold it.
+     */
+    public byte[] get(long key) throws FlooringDataPersistenceException {
+        if(getRoot() == PageFile.NO_PAGE) {
+            return null;
+        }
+        final Node leaf = readNode(findLeaf(key));
+        final int index = leaf.search(key);
+        return index >= 0 ? leaf.values[index] : null;
+    }
+
+    /**
+     * Reads every entry from one key to another, in key order.
+     * @param fromKey first key, inclusive
+     * @param toKey last key, inclusive
+     */
+    public void scan(long fromKey, long toKey, EntryVisitor visitor) throws FlooringDataPersistenceException {
+        if(getRoot() == PageFile.NO_PAGE || fromKey > toKey) {
+            return;
+        }
+
+        int pageId = findLeaf(fromKey);
+        while(pageId != PageFile.NO_PAGE) {
+            final Node leaf = readNode(pageId);
+            final int start = leaf.search(fromKey);
+            for(int i = start >= 0 ? start : -start - 1; i < leaf.size; i++) {
+                if(leaf.keys[i] > toKey || !visitor.visit(leaf.keys[i], leaf.values[i])) {
+                    return;
+                }
+            }
+            pageId = leaf.next;
+        }
+    }
+
+    /**
+     * @return the smallest key at or after the given key, or null if there is none.
+     */
+    public Long ceilingKey(long key) throws FlooringDataPersistenceException {
+        final Long[] found = new Long[1];
+        scan(key, Long.MAX_VALUE, (entryKey, value) -> {
+            found[0] = entryKey;
+            return false;
+        });
+        return found[0];
+    }
+
+    /**
+     * Adds a value, or replaces the value already held for the key.
+     * @param value at most MAX_VALUE_SIZE bytes
+     * @return true if the key is new to the tree.
+     * @throws FlooringDataPersistenceException if the value is too long, or a page cannot be read or written.
+     */
+    public boolean put(long key, byte[] value) throws FlooringDataPersistenceException {
+        if(value.length > MAX_VALUE_SIZE) {
+            throw new FlooringDataPersistenceException(String.format(
+                    "A value of %d bytes is longer than the %d bytes a page can hold.",
+                    value.length,
+                    MAX_VALUE_SIZE
+            ));
+        }
+
+        if(getRoot() == PageFile.NO_PAGE) {
+            final int rootPage = pageFile.allocate();
+            writeNode(rootPage, new Node(true, 1));
+            setRoot(rootPage);
+        }
+
+        final boolean[] added = new boolean[1];
+        final Split split = put(getRoot(), key, value, added);
+        if(split != null) {
+            final Node root = new Node(false, 1);
+            root.children[0] = getRoot();
+            root.insertChild(0, split.separator, split.rightPage);
+            final int rootPage = pageFile.allocate();
+            writeNode(rootPage, root);
+            setRoot(rootPage);
+        }
+        return added[0];
+    }
+
+    private Split put(int pageId, long key, byte[] value, boolean[] added) throws FlooringDataPersistenceException {
+        final Node node = readNode(pageId);
+        if(node.leaf) {
+            final int index = node.search(key);
+            if(index >= 0) {
+                node.values[index] = value;
+            } else {
+                node.insertEntry(-index - 1, key, value);
+                added[0] = true;
+            }
+            return node.byteSize() > PageFile.PAGE_SIZE ? splitLeaf(pageId, node) : write(pageId, node);
+        }
+
+        final int childIndex = node.childIndex(key);
+        final Split childSplit = put(node.children[childIndex], key, value, added);
+        if(childSplit == null) {
+            return null;
+        }
+        node.insertChild(childIndex, childSplit.separator, childSplit.rightPage);
+        return node.byteSize() > PageFile.PAGE_SIZE ? splitInternal(pageId, node) : write(pageId, node);
+    }
+
+    private Split write(int pageId, Node node) throws FlooringDataPersistenceException {
+        writeNode(pageId, node);
+        return null;
+    }
+
+    /**
+     * Moves the upper half of a leaf, by bytes, into a new leaf linked after it.
+     */
+    private Split splitLeaf(int pageId, Node node) throws FlooringDataPersistenceException {
+        final int halfBytes = node.byteSize() / 2;
+        int leftSize = 0;
+        int leftBytes = NODE_HEADER_SIZE;
+        while(leftBytes + LEAF_ENTRY_OVERHEAD + node.values[leftSize].length <= halfBytes) {
+            leftBytes += LEAF_ENTRY_OVERHEAD + node.values[leftSize].length;
+            leftSize++;
+        }
+        leftSize = Math.max(leftSize, 1);
+
+        final Node right = new Node(true, node.size - leftSize);
+        right.size = node.size - leftSize;
+        System.arraycopy(node.keys, leftSize, right.keys, 0, right.size);
+        System.arraycopy(node.values, leftSize, right.values, 0, right.size);
+        Arrays.fill(node.values, leftSize, node.size, null);
+        node.size = leftSize;
+
+        final int rightPage = pageFile.allocate();
+        right.next = node.next;
+        right.prev = pageId;
+        node.next = rightPage;
+        if(right.next != PageFile.NO_PAGE) {
+            final Node following = readNode(right.next);
+            following.prev = rightPage;
+            writeNode(right.next, following);
+        }
+        writeNode(pageId, node);
+        writeNode(rightPage, right);
+        return new Split(right.keys[0], rightPage);
+    }
+
+    /**
+     * Moves the upper half of an internal node into a new node, the middle separator moves up to the parent.
+     */
+    private Split splitInternal(int pageId, Node node) throws FlooringDataPersistenceException {
+        final int middle = node.size / 2;
+        final Node right = new Node(false, node.size - middle - 1);
+        right.size = node.size - middle - 1;
+        System.arraycopy(node.keys, middle + 1, right.keys, 0, right.size);
+        System.arraycopy(node.children, middle + 1, right.children, 0, right.size + 1);
+        final long separator = node.keys[middle];
+        node.size = middle;
+
+        final int rightPage = pageFile.allocate();
+        writeNode(pageId, node);
+        writeNode(rightPage, right);
+        return new Split(separator, rightPage);
+    }
+
+    /**
+     * Removes a key, freeing any node left empty.
+     * @return the value the key held, or null if the tree did not hold it.
+     */
+    public byte[] remove(long key) throws FlooringDataPersistenceException {
+        if(getRoot() == PageFile.NO_PAGE) {
+            return null;
+        }
+
+        final byte[][] removed = new byte[1][];
+        if(remove(getRoot(), key, removed)) {
+            setRoot(PageFile.NO_PAGE);
+        }
+
+        // a root with a single child is replaced by it, so the tree gets shorter as it empties
+        Node root = getRoot() == PageFile.NO_PAGE ? null : readNode(getRoot());
+        while(root != null && !root.leaf && root.size == 0) {
+            final int onlyChild = root.children[0];
+            pageFile.free(getRoot());
+            setRoot(onlyChild);
+            root = readNode(onlyChild);
+        }
+        return removed[0];
+    }
+
+    /**
+     * @return true if the node is now empty and its page was freed.
+     */
+    private boolean remove(int pageId, long key, byte[][] removed) throws FlooringDataPersistenceException {
+        final Node node = readNode(pageId);
+        if(node.leaf) {
+            final int index = node.search(key);
+            if(index < 0) {
+                return false;
+            }
+            removed[0] = node.values[index];
+            node.removeEntry(index);
+            if(node.size > 0) {
+                writeNode(pageId, node);
+                return false;
+            }
+            unlinkLeaf(node);
+            pageFile.free(pageId);
+            return true;
+        }
+
+        final int childIndex = node.childIndex(key);
+        if(!remove(node.children[childIndex], key, removed)) {
+            return false;
+        }
+        if(node.size == 0) {
+            // its only child is gone
+            pageFile.free(pageId);
+            return true;
+        }
+        node.removeChild(childIndex);
+        writeNode(pageId, node);
+        return false;
+    }
+
+    private void unlinkLeaf(Node leaf) throws FlooringDataPersistenceException {
+        if(leaf.prev != PageFile.NO_PAGE) {
+            final Node previous = readNode(leaf.prev);
+            previous.next = leaf.next;
+            writeNode(leaf.prev, previous);
+        }
+        if(leaf.next != PageFile.NO_PAGE) {
+            final Node following = readNode(leaf.next);
+            following.prev = leaf.prev;
+            writeNode(leaf.next, following);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package dev.kmfg.flooring.dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps a fixed number of pages of a PageFile in memory, evicting the least recently used unchanged page once full.
+ * Changed pages are pinned until they are flushed, never evicted, so the file only ever holds flushed changes,
+ *  and a change that is discarded leaves no trace in it. While a change has more pages than the pool holds,
+ *  the pool grows, and shrinks back once they are flushed.
+ * Callers never keep a page buffer, they decode what they read at once and hand back whole pages to write.
+ */
+public class PageBufferPool {
+    private static final int MIN_CAPACITY = 8;
+
+    private final FileChannel channel;
+    private final int pageSize;
+    private final int capacity;
+    // unchanged pages, iterates least recently used first
+    private final LinkedHashMap<Integer, Frame> frames;
+    // changed pages, pinned until flushed
+    private final Map<Integer, Frame> dirtyFrames;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * A page held in memory.
+     */
+    private static class Frame {
+        private final ByteBuffer page;
+        private boolean dirty;
+
+        private Frame(ByteBuffer page) {
+            this.page = page;
+        }
+    }
+
+    /**
+     * @param channel of the file the pages are in, left open
+     * @param pageSize bytes per page
+     * @param capacity most pages held at once
+     */
+    public PageBufferPool(FileChannel channel, int pageSize, int capacity) {
+        if(capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException(String.format("A buffer pool needs at least %d pages.", MIN_CAPACITY));
+        }
+        this.channel = channel;
+        this.pageSize = pageSize;
+        this.capacity = capacity;
+        this.frames = new LinkedHashMap<>(capacity * 2, 0.75f, true);
+        this.dirtyFrames = new HashMap<>();
+    }
+
+    private long positionOf(int pageId) {
+        return (long) pageId * pageSize;
+    }
+
+    private void writeFrame(int pageId, Frame frame) throws IOException {
+        final ByteBuffer page = frame.page.duplicate();
+        page.clear();
+        long position = positionOf(pageId);
+        while(page.hasRemaining()) {
+            position += channel.write(page, position);
+        }
+        frame.dirty = false;
+    }
+
+    /**
+     * @return the frame of the page, read from the file if it is not held. A page past the end of the file reads as zeros.
+     */
+    private Frame fetch(int pageId) throws IOException {
+        Frame frame = dirtyFrames.get(pageId);
+        if(frame == null) {
+            frame = frames.get(pageId);
+        }
+        if(frame != null) {
+            hitCount++;
+            return frame;
+        }
+
+        missCount++;
+        final ByteBuffer page = ByteBuffer.allocate(pageSize);
+        long position = positionOf(pageId);
+        while(page.hasRemaining()) {
+            final int read = channel.read(page, position);
+            if(read < 0) {
+                break;
+            }
+            position += read;
+        }
+
+        frame = new Frame(page);
+        frames.put(pageId, frame);
+        evictIfFull();
+        return frame;
+    }
+
+    /**
+     * Evicts unchanged pages until the pool is back to its capacity, or only changed pages are left.
+     */
+    private void evictIfFull() {
+        final Iterator<Map.Entry<Integer, Frame>> leastRecentlyUsed = frames.entrySet().iterator();
+        while(frames.size() + dirtyFrames.size() > capacity && leastRecentlyUsed.hasNext()) {
+            leastRecentlyUsed.next();
+            leastRecentlyUsed.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * @return a read only view of the page, positioned at its start. Decode it before the pool is used again.
+     * @throws IOException if the page cannot be read.
+     */
+    public ByteBuffer read(int pageId) throws IOException {
+        final ByteBuffer page = fetch(pageId).page.asReadOnlyBuffer();
+        page.clear();
+        return page;
+    }
+
+    /**
+     * Replaces the content of a page, it is pinned in memory until it is flushed.
+     * @param content from its position to its limit, the rest of the page is zeroed
+     * @throws IOException if the page cannot be read first.
+     */
+    public void write(int pageId, ByteBuffer content) throws IOException {
+        final Frame frame = fetch(pageId);
+        if(!frame.dirty) {
+            frames.remove(pageId);
+            dirtyFrames.put(pageId, frame);
+        }
+        final ByteBuffer page = frame.page;
+        page.clear();
+        page.put(content.duplicate());
+        while(page.hasRemaining()) {
+            page.put((byte) 0);
+        }
+        frame.dirty = true;
+    }
+
+    /**
+     * Writes every changed page, then forces the file to disk.
+     * @throws IOException if a page cannot be written.
+     */
+    public void flush() throws IOException {
+        // in page order, so the writes run along the file
+        final Map<Integer, Frame> written = new TreeMap<>(dirtyFrames);
+        for(Map.Entry<Integer, Frame> frame : written.entrySet()) {
+            writeFrame(frame.getKey(), frame.getValue());
+        }
+        channel.force(false);
+
+        // the pages are unchanged again, so they may be evicted
+        dirtyFrames.clear();
+        frames.putAll(written);
+        evictIfFull();
+    }
+
+    /**
+     * Forgets every changed page without writing it, used after a failed change.
+     * No changed page was ever written, so the file still holds exactly what was last flushed.
+     */
+    public void discard() {
+        dirtyFrames.clear();
+    }
+
+    /**
+     * @return number of changed pages waiting for a flush.
+     */
+    public int getDirtyPageCount() {
+        return dirtyFrames.size();
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+}
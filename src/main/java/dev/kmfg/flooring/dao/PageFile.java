@@ -0,0 +1,226 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A single data file split into fixed size pages, read and written through a PageBufferPool.
+ * Page 0 is the header: the page count, the head of the free page list, and a few metadata slots,
+ *  such as the root page of each tree kept in the file.
+ * Freed pages are linked into the free list through their first bytes, and handed out again before the file grows.
+ * Changed pages stay in the buffer pool until the change is flushed, so a change that fails part way is discarded
+ *  whole. Pages are then written in place without a write-ahead log, so the text export is the format to back up.
+ */
+public class PageFile {
+    public static final int PAGE_SIZE = 4096;
+    public static final int METADATA_SLOTS = 8;
+    // page 0 is the header, so it can mark the end of the free list
+    public static final int NO_PAGE = 0;
+
+    private static final int MAGIC = 0x464C5047;
+    private static final int VERSION = 1;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int PAGE_SIZE_OFFSET = 8;
+    private static final int PAGE_COUNT_OFFSET = 12;
+    private static final int FREE_LIST_HEAD_OFFSET = 16;
+    private static final int FREE_PAGE_COUNT_OFFSET = 20;
+    private static final int METADATA_OFFSET = 24;
+    // a free page starts with a zero type byte, then the next free page
+    private static final int FREE_PAGE_NEXT_OFFSET = 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final PageBufferPool bufferPool;
+
+    private int pageCount;
+    private int freeListHead;
+    private int freePageCount;
+    private final int[] metadata;
+
+    /**
+     * Opens the file, creating it with an empty header if it is missing or empty.
+     * @param path of the data file
+     * @param bufferPoolPages most pages held in memory at once
+     * @throws FlooringDataPersistenceException if the file cannot be opened, or is not a page file.
+     */
+    public PageFile(Path path, int bufferPoolPages) throws FlooringDataPersistenceException {
+        this.path = path;
+        this.metadata = new int[METADATA_SLOTS];
+        try {
+            if(path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.bufferPool = new PageBufferPool(channel, PAGE_SIZE, bufferPoolPages);
+            if(channel.size() == 0) {
+                pageCount = 1;
+                freeListHead = NO_PAGE;
+                writeHeader();
+                bufferPool.flush();
+            } else {
+                readHeader();
+            }
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not open the data file %s.", path), e);
+        }
+    }
+
+    private void readHeader() throws IOException, FlooringDataPersistenceException {
+        final ByteBuffer header = bufferPool.read(0);
+        if(header.getInt(MAGIC_OFFSET) != MAGIC
+                || header.getInt(VERSION_OFFSET) != VERSION
+                || header.getInt(PAGE_SIZE_OFFSET) != PAGE_SIZE) {
+            throw new FlooringDataPersistenceException(String.format("%s is not an order data file.", path));
+        }
+
+        pageCount = header.getInt(PAGE_COUNT_OFFSET);
+        freeListHead = header.getInt(FREE_LIST_HEAD_OFFSET);
+        freePageCount = header.getInt(FREE_PAGE_COUNT_OFFSET);
+        for(int slot = 0; slot < METADATA_SLOTS; slot++) {
+            metadata[slot] = header.getInt(METADATA_OFFSET + slot * Integer.BYTES);
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(METADATA_OFFSET + METADATA_SLOTS * Integer.BYTES);
+        header.putInt(MAGIC_OFFSET, MAGIC)
+                .putInt(VERSION_OFFSET, VERSION)
+                .putInt(PAGE_SIZE_OFFSET, PAGE_SIZE)
+                .putInt(PAGE_COUNT_OFFSET, pageCount)
+                .putInt(FREE_LIST_HEAD_OFFSET, freeListHead)
+                .putInt(FREE_PAGE_COUNT_OFFSET, freePageCount);
+        for(int slot = 0; slot < METADATA_SLOTS; slot++) {
+            header.putInt(METADATA_OFFSET + slot * Integer.BYTES, metadata[slot]);
+        }
+        bufferPool.write(0, header);
+    }
+
+    private FlooringDataPersistenceException pageError(int pageId, IOException e) {
+        return new FlooringDataPersistenceException(String.format("Could not access page %d of %s.", pageId, path), e);
+    }
+
+    private void checkPage(int pageId) throws FlooringDataPersistenceException {
+        if(pageId <= NO_PAGE || pageId >= pageCount) {
+            throw new FlooringDataPersistenceException(String.format("Page %d is outside of %s, the file is damaged.", pageId, path));
+        }
+    }
+
+    /**
+     * @return a read only view of the page, decode it before the file is used again.
+     * @throws FlooringDataPersistenceException if the page cannot be read.
+     */
+    public ByteBuffer read(int pageId) throws FlooringDataPersistenceException {
+        checkPage(pageId);
+        try {
+            return bufferPool.read(pageId);
+        } catch(IOException e) {
+            throw pageError(pageId, e);
+        }
+    }
+
+    /**
+     * @param content of the page, at most a page long
+     * @throws FlooringDataPersistenceException if the page cannot be buffered.
+     */
+    public void write(int pageId, ByteBuffer content) throws FlooringDataPersistenceException {
+        checkPage(pageId);
+        try {
+            bufferPool.write(pageId, content);
+        } catch(IOException e) {
+            throw pageError(pageId, e);
+        }
+    }
+
+    /**
+     * @return a page that is not in use, from the free list if there is one.
+     * @throws FlooringDataPersistenceException if the free list cannot be read.
+     */
+    public int allocate() throws FlooringDataPersistenceException {
+        if(freeListHead == NO_PAGE) {
+            return pageCount++;
+        }
+
+        final int pageId = freeListHead;
+        freeListHead = read(pageId).getInt(FREE_PAGE_NEXT_OFFSET);
+        freePageCount--;
+        return pageId;
+    }
+
+    /**
+     * Adds a page that is no longer used to the free list.
+     * @throws FlooringDataPersistenceException if the page cannot be buffered.
+     */
+    public void free(int pageId) throws FlooringDataPersistenceException {
+        final ByteBuffer freePage = ByteBuffer.allocate(FREE_PAGE_NEXT_OFFSET + Integer.BYTES);
+        freePage.putInt(FREE_PAGE_NEXT_OFFSET, freeListHead);
+        write(pageId, freePage);
+        freeListHead = pageId;
+        freePageCount++;
+    }
+
+    public int getMetadata(int slot) {
+        return metadata[slot];
+    }
+
+    public void setMetadata(int slot, int value) {
+        metadata[slot] = value;
+    }
+
+    /**
+     * Writes the header and every changed page, then forces the file to disk.
+     * @throws FlooringDataPersistenceException if the file cannot be written.
+     */
+    public void flush() throws FlooringDataPersistenceException {
+        try {
+            writeHeader();
+            bufferPool.flush();
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not write the data file %s.", path), e);
+        }
+    }
+
+    /**
+     * Drops every change that was not flushed, and rereads the header.
+     * Changed pages are never written before a flush, so the file is left exactly as it was last flushed.
+     * @throws FlooringDataPersistenceException if the header cannot be reread.
+     */
+    public void discard() throws FlooringDataPersistenceException {
+        bufferPool.discard();
+        try {
+            readHeader();
+        } catch(IOException e) {
+            throw pageError(0, e);
+        }
+    }
+
+    public void close() throws FlooringDataPersistenceException {
+        flush();
+        try {
+            channel.close();
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException(String.format("Could not close the data file %s.", path), e);
+        }
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public int getFreePageCount() {
+        return freePageCount;
+    }
+
+    /**
+     * @return the buffer pool, for its hit, miss and eviction counts.
+     */
+    public PageBufferPool getBufferPool() {
+        return bufferPool;
+    }
+}
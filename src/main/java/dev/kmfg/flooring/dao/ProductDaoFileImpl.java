@@ -2,51 +2,55 @@ package dev.kmfg.flooring.dao;
 
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.ProductNotFoundException;
+import dev.kmfg.flooring.dao.parser.CsvTokenizer;
+import dev.kmfg.flooring.dao.parser.FixedPointDecimal;
 import dev.kmfg.flooring.model.Product;
-import dev.kmfg.flooring.service.validator.GenericValidator;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class ProductDaoFileImpl implements ProductDao {
-    private static final String DELIMITER = ",";
+    private static final char DELIMITER = ',';
     private static final int REQUIRED_PARTS = 3;
+    private static final int DECIMAL_SCALE = 2;
 
-    private String fileName = "Data/Products.txt";
-    private HashMap<String, Product> products;
+    private final String fileName;
+    private final ReferenceFileSnapshot<Product> products;
 
     public ProductDaoFileImpl(String fileName) {
         this.fileName = fileName;
-        this.products = new HashMap<>();
+        this.products = new ReferenceFileSnapshot<>(Paths.get(fileName), "product-file-watcher", this::read);
     }
 
     public ProductDaoFileImpl() {
-        this.products = new HashMap<>();
+        this("Data/Products.txt");
     }
 
-    private Product unmarshallProduct(String productStr) throws FlooringDataPersistenceException {
-        final String[] productParts = productStr.split(DELIMITER);
-        if(productParts.length != REQUIRED_PARTS) {
+    private Product unmarshallProduct(String productStr, CsvTokenizer tokenizer) throws FlooringDataPersistenceException {
+        final int productParts = tokenizer.tokenize(productStr, 0, productStr.length());
+        if(productParts != REQUIRED_PARTS) {
             throw new FlooringDataPersistenceException(
                     String.format(
                             "Malformed data while unmarshalling product. Required %d parts, but received %d.",
                             REQUIRED_PARTS,
-                            productParts.length
+                            productParts
                     )
             );
         }
 
-        final String productType = productParts[0];
-        final BigDecimal costPerSqft = GenericValidator.createBigDecimal(productParts[1]);
-        final BigDecimal laborCostPerSqft = GenericValidator.createBigDecimal(productParts[2]);
+        final String productType = tokenizer.getString(productStr, 0);
+        // parsed at a scale of 2, which is cents
+        final long costPerSqft = FixedPointDecimal.parse(productStr, tokenizer.getStart(1), tokenizer.getEnd(1), DECIMAL_SCALE);
+        final long laborCostPerSqft = FixedPointDecimal.parse(productStr, tokenizer.getStart(2), tokenizer.getEnd(2), DECIMAL_SCALE);
 
-        return new Product(productType, costPerSqft, laborCostPerSqft);
+        // shared with the orders of the same product, so validating an order's product is usually an identity check
+        return ModelFlyweights.product(productType, costPerSqft, laborCostPerSqft);
     }
 
-    private void read() throws FlooringDataPersistenceException {
+    private Map<String, Product> read() throws FlooringDataPersistenceException {
         Scanner scanner;
 
         try {
@@ -58,28 +62,39 @@ public class ProductDaoFileImpl implements ProductDao {
                     "Could not load product data into memory.", e);
         }
 
-        products = new HashMap<>();
+        final Map<String, Product> read = new HashMap<>();
 
+        final CsvTokenizer tokenizer = new CsvTokenizer(DELIMITER, REQUIRED_PARTS);
         String currentLine;
         Product product;
-        if(scanner.hasNextLine()) {
-            scanner.nextLine(); // consume the CSV header.
-        }
-        while (scanner.hasNextLine()) {
-            currentLine = scanner.nextLine();
-            product = unmarshallProduct(currentLine);
-            products.put(product.getProductType(), product);
+        // closed even when a line is malformed, which a reload of a half written file can run into
+        try {
+            if(scanner.hasNextLine()) {
+                scanner.nextLine(); // consume the CSV header.
+            }
+            while (scanner.hasNextLine()) {
+                currentLine = scanner.nextLine();
+                product = unmarshallProduct(currentLine, tokenizer);
+                read.put(product.getProductType(), product);
+            }
+        } finally {
+            scanner.close();
         }
+        return Collections.unmodifiableMap(read);
+    }
 
-        scanner.close();
+    /**
+     * Stops watching the product file, lookups keep the last snapshot.
+     */
+    public void close() {
+        products.close();
     }
 
     @Override
     public Product getProduct(String productType) throws FlooringDataPersistenceException, ProductNotFoundException {
-        read();
-
-        if(products.containsKey(productType)) {
-            return products.get(productType);
+        final Product product = products.get().get(productType);
+        if(product != null) {
+            return product;
         } else {
             throw new ProductNotFoundException(String.format("No product was found for the type %s", productType));
         }
@@ -87,8 +102,6 @@ public class ProductDaoFileImpl implements ProductDao {
 
     @Override
     public List<Product> getAllProducts() throws FlooringDataPersistenceException {
-        read();
-
-        return new ArrayList<>(products.values());
+        return new ArrayList<>(products.get().values());
     }
 }
@@ -0,0 +1,110 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rows of a reference file, such as the products file, by key, read on first use.
+ * From then on the file is watched by a ReferenceFileWatcher, and a fresh snapshot is swapped in when it changes.
+ * A reload only publishes a complete file. One that cannot be read, or has no rows, keeps the last good snapshot,
+ *  and one with fewer rows than the last is read again after a pause, and only published if it has not changed,
+ *  so a file caught part way through being written never replaces a whole one.
+ * @param <V> the rows of the file
+ */
+public class ReferenceFileSnapshot<V> {
+    private static final long SHRINK_CONFIRM_MILLIS = 200;
+
+    /**
+     * Reads the whole file.
+     */
+    public interface Reader<V> {
+        /**
+         * @return every row by its key, never changed afterwards.
+         * @throws FlooringDataPersistenceException if the file is missing or malformed.
+         */
+        Map<String, V> read() throws FlooringDataPersistenceException;
+    }
+
+    private final Path file;
+    private final String threadName;
+    private final Reader<V> reader;
+
+    // replaced whole, never changed, so lookups read it without locking, null until the first lookup
+    private volatile Map<String, V> snapshot;
+    private ReferenceFileWatcher watcher;
+
+    /**
+     * @param file to read and watch
+     * @param threadName for the watching thread
+     * @param reader of the whole file
+     */
+    public ReferenceFileSnapshot(Path file, String threadName, Reader<V> reader) {
+        this.file = file;
+        this.threadName = threadName;
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the file on the first call, and from then on watches it.
+     * @return the current snapshot of the rows.
+     * @throws FlooringDataPersistenceException if the first read fails, it is tried again on the next call.
+     */
+    public Map<String, V> get() throws FlooringDataPersistenceException {
+        final Map<String, V> current = snapshot;
+        if(current != null) {
+            return current;
+        }
+
+        synchronized(this) {
+            if(snapshot == null) {
+                // watched before the first read, so a change made during it is not missed
+                watcher = new ReferenceFileWatcher(file, threadName, this::reload);
+                try {
+                    snapshot = reader.read();
+                } catch(FlooringDataPersistenceException | RuntimeException e) {
+                    watcher.close();
+                    watcher = null;
+                    throw e;
+                }
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Run by the watcher after the file changes.
+     * Synchronized with the first read, so an older read can never replace a newer one.
+     */
+    private synchronized void reload() {
+        try {
+            final Map<String, V> read = reader.read();
+            if(read.isEmpty()) {
+                return;
+            }
+            if(read.size() < snapshot.size()) {
+                TimeUnit.MILLISECONDS.sleep(SHRINK_CONFIRM_MILLIS);
+                if(!read.equals(reader.read())) {
+                    return; // still being written, the watcher reloads again once it is
+                }
+            }
+            snapshot = read;
+        } catch(FlooringDataPersistenceException | RuntimeException e) {
+            // a missing or half written file keeps the last good snapshot, it is read again on its next change
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops watching the file, lookups keep the last snapshot.
+     */
+    public synchronized void close() {
+        if(watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+}
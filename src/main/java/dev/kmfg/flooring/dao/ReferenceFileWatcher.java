@@ -0,0 +1,114 @@
+package dev.kmfg.flooring.dao;
+
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches one reference file, such as the products file, and runs a reload on a daemon thread whenever it changes.
+ * A WatchService can only watch directories, so the file's directory is watched and the events of other files ignored.
+ * Editors and copies often write a file in several steps, so a reload waits until the directory has been quiet
+ *  for a short settle time, and runs once for the whole burst.
+ */
+public class ReferenceFileWatcher {
+    private static final long SETTLE_MILLIS = 50;
+
+    private final Path fileName;
+    private final Runnable reload;
+    private final WatchService watchService;
+
+    /**
+     * Starts watching the file.
+     * @param file to watch, which does not need to exist yet, but its directory does.
+     * @param threadName for the watching thread
+     * @param reload run on the watching thread after each change to the file, it should not throw.
+     * @throws FlooringDataPersistenceException if the directory of the file cannot be watched.
+     */
+    public ReferenceFileWatcher(Path file, String threadName, Runnable reload) throws FlooringDataPersistenceException {
+        final Path absoluteFile = file.toAbsolutePath();
+        this.fileName = absoluteFile.getFileName();
+        this.reload = reload;
+
+        try {
+            this.watchService = absoluteFile.getFileSystem().newWatchService();
+        } catch(IOException e) {
+            throw new FlooringDataPersistenceException("Could not watch " + file + " for changes.", e);
+        }
+        try {
+            absoluteFile.getParent().register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE
+            );
+        } catch(IOException e) {
+            closeWatchService();
+            throw new FlooringDataPersistenceException("Could not watch " + file + " for changes.", e);
+        }
+
+        final Thread thread = new Thread(this::watch, threadName);
+        // only reads the file, so an exit mid reload loses nothing
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Takes the events of a signalled key and re-arms it.
+     * @return true if any of them may be a change to the watched file.
+     */
+    private boolean takeChanges(WatchKey key) {
+        boolean changed = false;
+        for(WatchEvent<?> event : key.pollEvents()) {
+            // an overflow means events were dropped, and the file may have been among them
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void watch() {
+        try {
+            while(true) {
+                final WatchKey key = watchService.take();
+                if(!takeChanges(key)) {
+                    if(!key.isValid()) {
+                        return; // the directory is gone, so there is nothing left to watch
+                    }
+                    continue;
+                }
+
+                WatchKey next;
+                while((next = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    takeChanges(next);
+                }
+                reload.run();
+            }
+        } catch(ClosedWatchServiceException | InterruptedException e) {
+            // closed, stop watching
+        }
+    }
+
+    private void closeWatchService() {
+        try {
+            watchService.close();
+        } catch(IOException e) {
+            // nothing is being watched any more either way
+        }
+    }
+
+    /**
+     * Stops watching, a reload that is already running is allowed to finish.
+     */
+    public void close() {
+        closeWatchService();
+    }
+}
@@ -2,54 +2,60 @@ package dev.kmfg.flooring.dao;
 
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.StateTaxNotFoundException;
+import dev.kmfg.flooring.dao.parser.CsvTokenizer;
+import dev.kmfg.flooring.dao.parser.FixedPointDecimal;
 import dev.kmfg.flooring.model.StateTax;
-import dev.kmfg.flooring.service.validator.GenericValidator;
 
 import java.io.BufferedReader;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 
 public class StateTaxDaoFileImpl implements StateTaxDao {
-    private static final String DELIMITER = ",";
+    private static final char DELIMITER = ',';
     private static final int REQUIRED_PARTS = 3;
+    private static final int DECIMAL_SCALE = 2;
 
-    private String fileName = "Data/Taxes.txt";
-    private HashMap<String, StateTax> stateTaxes;
+    private final String fileName;
+    private final ReferenceFileSnapshot<StateTax> stateTaxes;
 
     public StateTaxDaoFileImpl(String fileName) {
         this.fileName = fileName;
-        this.stateTaxes = new HashMap<>();
+        this.stateTaxes = new ReferenceFileSnapshot<>(Paths.get(fileName), "state-tax-file-watcher", this::read);
     }
 
     public StateTaxDaoFileImpl() {
-        this.stateTaxes = new HashMap<>();
+        this("Data/Taxes.txt");
     }
 
-    private StateTax unmarshallStateTax(String productStr) throws FlooringDataPersistenceException {
-        final String[] productParts = productStr.split(DELIMITER);
-        if(productParts.length != REQUIRED_PARTS) {
+    private StateTax unmarshallStateTax(String productStr, CsvTokenizer tokenizer) throws FlooringDataPersistenceException {
+        final int productParts = tokenizer.tokenize(productStr, 0, productStr.length());
+        if(productParts != REQUIRED_PARTS) {
             throw new FlooringDataPersistenceException(
                     String.format(
                             "Malformed data while unmarshalling product. Required %d parts, but received %d.",
                             REQUIRED_PARTS,
-                            productParts.length
+                            productParts
                     )
             );
         }
 
-        final String stateAbbreviation = productParts[0];
-        final String stateName = productParts[1];
-        final BigDecimal taxRate = GenericValidator.createBigDecimal(productParts[2]);
+        final String stateAbbreviation = tokenizer.getString(productStr, 0);
+        final String stateName = tokenizer.getString(productStr, 1);
+        // parsed at a scale of 2, which is hundredths of a percent
+        final long taxRate = FixedPointDecimal.parse(productStr, tokenizer.getStart(2), tokenizer.getEnd(2), DECIMAL_SCALE);
 
-        return new StateTax(stateAbbreviation, stateName, taxRate);
+        // shared, so every order given this state by the service points at the one instance
+        return ModelFlyweights.stateTax(stateAbbreviation, stateName, taxRate);
     }
 
-    private void read() throws FlooringDataPersistenceException {
+    private Map<String, StateTax> read() throws FlooringDataPersistenceException {
         Scanner scanner;
 
         try {
@@ -61,29 +67,39 @@ public class StateTaxDaoFileImpl implements StateTaxDao {
                     "Could not load state tax data into memory.", e);
         }
 
-        stateTaxes = new HashMap<>();
+        final Map<String, StateTax> read = new HashMap<>();
 
+        final CsvTokenizer tokenizer = new CsvTokenizer(DELIMITER, REQUIRED_PARTS);
         String currentLine;
         StateTax stateTax;
-        if(scanner.hasNextLine()) {
-            scanner.nextLine(); // consume the CSV header.
-        }
-        while (scanner.hasNextLine()) {
-            currentLine = scanner.nextLine();
-            stateTax = unmarshallStateTax(currentLine);
-            stateTaxes.put(stateTax.getStateAbbreviation(), stateTax);
+        // closed even when a line is malformed, which a reload of a half written file can run into
+        try {
+            if(scanner.hasNextLine()) {
+                scanner.nextLine(); // consume the CSV header.
+            }
+            while (scanner.hasNextLine()) {
+                currentLine = scanner.nextLine();
+                stateTax = unmarshallStateTax(currentLine, tokenizer);
+                read.put(stateTax.getStateAbbreviation(), stateTax);
+            }
+        } finally {
+            scanner.close();
         }
-
-        scanner.close();
+        return Collections.unmodifiableMap(read);
     }
 
+    /**
+     * Stops watching the state tax file, lookups keep the last snapshot.
+     */
+    public void close() {
+        stateTaxes.close();
+    }
 
     @Override
     public StateTax getStateTax(String stateAbbreviation) throws FlooringDataPersistenceException, StateTaxNotFoundException {
-        read();
-
-        if(stateTaxes.containsKey(stateAbbreviation)) {
-            return stateTaxes.get(stateAbbreviation);
+        final StateTax stateTax = stateTaxes.get().get(stateAbbreviation);
+        if(stateTax != null) {
+            return stateTax;
         } else {
             throw new StateTaxNotFoundException(String.format("No state was found for the abbreviation %s", stateAbbreviation));
         }
@@ -91,8 +107,6 @@ public class StateTaxDaoFileImpl implements StateTaxDao {
 
     @Override
     public List<StateTax> getAllStateTaxes() throws FlooringDataPersistenceException {
-        read();
-
-        return new ArrayList<>(stateTaxes.values());
+        return new ArrayList<>(stateTaxes.get().values());
     }
 }
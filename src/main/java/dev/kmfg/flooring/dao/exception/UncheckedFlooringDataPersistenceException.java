@@ -0,0 +1,15 @@
+package dev.kmfg.flooring.dao.exception;
+
+/**
+ * Carries a FlooringDataPersistenceException out of a lazily evaluated Stream, which cannot throw checked exceptions.
+ */
+public class UncheckedFlooringDataPersistenceException extends RuntimeException {
+    public UncheckedFlooringDataPersistenceException(FlooringDataPersistenceException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized FlooringDataPersistenceException getCause() {
+        return (FlooringDataPersistenceException) super.getCause();
+    }
+}
@@ -0,0 +1,147 @@
+package dev.kmfg.flooring.dao.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Finds the field boundaries of a delimited row without building a String per field.
+ * One tokenizer is reused for every row of a file, so tokenizing a row allocates nothing.
+ * Like String.split, trailing empty fields are dropped, and a row with no delimiters is one field.
+ * A tokenizer is not thread safe.
+ */
+public class CsvTokenizer {
+    private final char delimiter;
+    // only the first starts.length fields are recorded, the rest are only counted
+    private final int[] starts;
+    private final int[] ends;
+
+    private int fieldCount;
+    private byte[] scratch;
+
+    /**
+     * @param delimiter between fields
+     * @param maxFields number of fields to record offsets for, rows may have more.
+     */
+    public CsvTokenizer(char delimiter, int maxFields) {
+        this.delimiter = delimiter;
+        this.starts = new int[maxFields];
+        this.ends = new int[maxFields];
+        this.scratch = new byte[64];
+    }
+
+    private void addField(int start, int end) {
+        if(fieldCount < starts.length) {
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+        }
+        fieldCount++;
+    }
+
+    /**
+     * @param row to tokenize
+     * @param start inclusive
+     * @param end exclusive, should not include the line ending.
+     * @return the number of fields in the row.
+     */
+    public int tokenize(CharSequence row, int start, int end) {
+        fieldCount = 0;
+
+        int fieldsEnd = end;
+        while(fieldsEnd > start && row.charAt(fieldsEnd - 1) == delimiter) {
+            fieldsEnd--;
+        }
+        // a row of only delimiters has no fields at all
+        if(fieldsEnd == start && end > start) {
+            return fieldCount;
+        }
+
+        int fieldStart = start;
+        for(int i = start; i < fieldsEnd; i++) {
+            if(row.charAt(i) == delimiter) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, fieldsEnd);
+
+        return fieldCount;
+    }
+
+    /**
+     * Tokenizes bytes using absolute reads, so the buffer's position is untouched.
+     * @param row to tokenize
+     * @param start inclusive
+     * @param end exclusive, should not include the line ending.
+     * @return the number of fields in the row.
+     */
+    public int tokenize(ByteBuffer row, int start, int end) {
+        fieldCount = 0;
+
+        int fieldsEnd = end;
+        while(fieldsEnd > start && row.get(fieldsEnd - 1) == delimiter) {
+            fieldsEnd--;
+        }
+        // a row of only delimiters has no fields at all
+        if(fieldsEnd == start && end > start) {
+            return fieldCount;
+        }
+
+        int fieldStart = start;
+        for(int i = start; i < fieldsEnd; i++) {
+            if(row.get(i) == delimiter) {
+                addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        addField(fieldStart, fieldsEnd);
+
+        return fieldCount;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * @param field index, less than the maxFields given to the constructor.
+     * @return offset of the first char or byte of the field.
+     */
+    public int getStart(int field) {
+        return starts[field];
+    }
+
+    /**
+     * @param field index, less than the maxFields given to the constructor.
+     * @return offset after the last char or byte of the field.
+     */
+    public int getEnd(int field) {
+        return ends[field];
+    }
+
+    /**
+     * Only for fields that are kept as text, numbers should go through FixedPointDecimal.
+     * @param row that was tokenized
+     * @param field index
+     * @return the field as a String
+     */
+    public String getString(CharSequence row, int field) {
+        return row.subSequence(starts[field], ends[field]).toString();
+    }
+
+    /**
+     * Only for fields that are kept as text, numbers should go through FixedPointDecimal.
+     * @param row that was tokenized, decoded as UTF-8.
+     * @param field index
+     * @return the field as a String
+     */
+    public String getString(ByteBuffer row, int field) {
+        final int length = ends[field] - starts[field];
+        if(length > scratch.length) {
+            scratch = new byte[length];
+        }
+        for(int i = 0; i < length; i++) {
+            scratch[i] = row.get(starts[field] + i);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,210 @@
+package dev.kmfg.flooring.dao.parser;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+/**
+ * Parses plain decimal text such as "871.50" straight into a long scaled by 10^scale, so "871.50" at scale 2 is 87150.
+ * Digits past the scale are rounded half up, the same as GenericValidator.createBigDecimal.
+ * Only an optional sign, digits, and an optional decimal point are accepted, exponents are not.
+ */
+public class FixedPointDecimal {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L
+    };
+
+    private static NumberFormatException malformed(CharSequence text, int start, int end) {
+        return new NumberFormatException(
+                String.format("\"%s\" is not a plain decimal number.", text.subSequence(start, end))
+        );
+    }
+
+    private static NumberFormatException malformed(ByteBuffer bytes, int start, int end) {
+        final StringBuilder text = new StringBuilder(end - start);
+        for(int i = start; i < end; i++) {
+            text.append((char) bytes.get(i));
+        }
+        return malformed(text, 0, text.length());
+    }
+
+    /**
+     * Scales an already parsed value, used once the digits are read.
+     * @return the scaled value, rounded half up on the first dropped digit.
+     */
+    private static long scale(long digits, int fractionDigits, int scale, int firstDroppedDigit, boolean negative) {
+        long value = Math.multiplyExact(digits, POWERS_OF_TEN[scale - fractionDigits]);
+        if(firstDroppedDigit >= 5) {
+            value = Math.addExact(value, 1);
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * @param text holding the number
+     * @param start inclusive
+     * @param end exclusive
+     * @param scale number of fraction digits to keep, at most 9.
+     * @return the number scaled by 10^scale
+     * @throws NumberFormatException if the text is not a plain decimal number, or does not fit in a long.
+     */
+    public static long parse(CharSequence text, int start, int end, int scale) {
+        int i = start;
+        boolean negative = false;
+        if(i < end && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        int firstDroppedDigit = 0;
+        for(; i < end; i++) {
+            final char c = text.charAt(i);
+            if(c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if(c >= '0' && c <= '9') {
+                digitCount++;
+                if(fractionDigits < scale) {
+                    try {
+                        digits = Math.addExact(Math.multiplyExact(digits, 10), c - '0');
+                    } catch(ArithmeticException e) {
+                        throw malformed(text, start, end);
+                    }
+                    if(fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if(fractionDigits == scale) {
+                    firstDroppedDigit = c - '0';
+                    fractionDigits++;
+                }
+            } else {
+                throw malformed(text, start, end);
+            }
+        }
+
+        if(digitCount == 0) {
+            throw malformed(text, start, end);
+        }
+
+        try {
+            return scale(digits, Math.max(0, Math.min(fractionDigits, scale)), scale, firstDroppedDigit, negative);
+        } catch(ArithmeticException e) {
+            throw malformed(text, start, end);
+        }
+    }
+
+    /**
+     * Parses bytes using absolute reads, so the buffer's position is untouched.
+     * @param bytes holding the number as ASCII
+     * @param start inclusive
+     * @param end exclusive
+     * @param scale number of fraction digits to keep, at most 9.
+     * @return the number scaled by 10^scale
+     * @throws NumberFormatException if the bytes are not a plain decimal number, or do not fit in a long.
+     */
+    public static long parse(ByteBuffer bytes, int start, int end, int scale) {
+        int i = start;
+        boolean negative = false;
+        if(i < end && (bytes.get(i) == '-' || bytes.get(i) == '+')) {
+            negative = bytes.get(i) == '-';
+            i++;
+        }
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        int firstDroppedDigit = 0;
+        for(; i < end; i++) {
+            final byte b = bytes.get(i);
+            if(b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if(b >= '0' && b <= '9') {
+                digitCount++;
+                if(fractionDigits < scale) {
+                    try {
+                        digits = Math.addExact(Math.multiplyExact(digits, 10), b - '0');
+                    } catch(ArithmeticException e) {
+                        throw malformed(bytes, start, end);
+                    }
+                    if(fractionDigits >= 0) {
+                        fractionDigits++;
+                    }
+                } else if(fractionDigits == scale) {
+                    firstDroppedDigit = b - '0';
+                    fractionDigits++;
+                }
+            } else {
+                throw malformed(bytes, start, end);
+            }
+        }
+
+        if(digitCount == 0) {
+            throw malformed(bytes, start, end);
+        }
+
+        try {
+            return scale(digits, Math.max(0, Math.min(fractionDigits, scale)), scale, firstDroppedDigit, negative);
+        } catch(ArithmeticException e) {
+            throw malformed(bytes, start, end);
+        }
+    }
+
+    /**
+     * @param text holding a whole number
+     * @param start inclusive
+     * @param end exclusive
+     * @return the number
+     * @throws NumberFormatException if the text is not a whole number, or does not fit in an int.
+     */
+    public static int parseInt(CharSequence text, int start, int end) {
+        final long value = parse(text, start, end, 0);
+        if(value != (int) value || hasDecimalPoint(text, start, end)) {
+            throw malformed(text, start, end);
+        }
+        return (int) value;
+    }
+
+    /**
+     * @param bytes holding a whole number as ASCII
+     * @param start inclusive
+     * @param end exclusive
+     * @return the number
+     * @throws NumberFormatException if the bytes are not a whole number, or do not fit in an int.
+     */
+    public static int parseInt(ByteBuffer bytes, int start, int end) {
+        final long value = parse(bytes, start, end, 0);
+        if(value != (int) value || hasDecimalPoint(bytes, start, end)) {
+            throw malformed(bytes, start, end);
+        }
+        return (int) value;
+    }
+
+    private static boolean hasDecimalPoint(CharSequence text, int start, int end) {
+        for(int i = start; i < end; i++) {
+            if(text.charAt(i) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasDecimalPoint(ByteBuffer bytes, int start, int end) {
+        for(int i = start; i < end; i++) {
+            if(bytes.get(i) == '.') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Only build a BigDecimal where one is actually needed.
+     * @param scaled value from parse
+     * @param scale the value was parsed with
+     * @return the value as a BigDecimal with the given scale
+     */
+    public static BigDecimal toBigDecimal(long scaled, int scale) {
+        return BigDecimal.valueOf(scaled, scale);
+    }
+}
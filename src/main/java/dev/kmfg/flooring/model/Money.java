@@ -0,0 +1,109 @@
+package dev.kmfg.flooring.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money as a whole number of cents.
+ * Prices are worked out on the cents alone, so pricing an order makes no objects until a Money is asked for.
+ * Rounding, always half up, away from zero on a tie, the same as RoundingMode.HALF_UP:
+ *  a BigDecimal is rounded to the cent when it becomes a Money,
+ *  a cost per sqft times an area in hundredths of a sqft is rounded to the cent once, after multiplying,
+ *  and a Rate applied to an amount is rounded to the cent once, after multiplying.
+ * Amounts are only ever added after rounding, so a total is the exact sum of its rounded parts.
+ * A result that does not fit in a long throws an ArithmeticException instead of wrapping.
+ */
+public final class Money implements Comparable<Money> {
+    public static final int SCALE = 2;
+    public static final Money ZERO = new Money(0);
+
+    private static final long CENTS_PER_DOLLAR = 100;
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * @param amount in dollars, rounded half up to the cent
+     * @return the amount, or null if it is null.
+     * @throws ArithmeticException if the amount does not fit in a long of cents.
+     */
+    public static Money of(BigDecimal amount) {
+        if(amount == null) {
+            return null;
+        }
+        return ofCents(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * @return the dividend divided by the divisor, rounded half up, away from zero on a tie.
+     */
+    static long divideHalfUp(long dividend, long divisor) {
+        final long quotient = dividend / divisor;
+        final long remainder = dividend % divisor;
+        if(Math.abs(remainder) * 2 >= divisor) {
+            return dividend < 0 ? quotient - 1 : quotient + 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * @param centsPerUnit price of one unit, such as a sqft
+     * @param hundredthsOfUnits how many units, in hundredths, such as an area of 249.00 sqft as 24900
+     * @return the price of that many units, rounded half up to the cent.
+     * @throws ArithmeticException if the product does not fit in a long.
+     */
+    public static long times(long centsPerUnit, long hundredthsOfUnits) {
+        return divideHalfUp(Math.multiplyExact(centsPerUnit, hundredthsOfUnits), CENTS_PER_DOLLAR);
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public boolean isNegative() {
+        return cents < 0;
+    }
+
+    /**
+     * @return the amount in dollars, with a scale of 2.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if(other == this) return true;
+        if(!(other instanceof Money)) return false;
+        return ((Money) other).cents == cents;
+    }
+
+    /**
+     * @return the amount in dollars with two decimal places, such as 871.50, the way order files hold it.
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -7,15 +7,46 @@ import java.math.RoundingMode;
 import java.time.LocalDate;
 
 public class Order {
-    private static final BigDecimal ONE_HUNDRED = new BigDecimal(100).setScale(0, RoundingMode.UNNECESSARY);
+    private static final int AREA_SCALE = 2;
 
     private int orderNumber;
     private LocalDate orderDate;
     private String customerName;
     private BigDecimal area;
+    // the area in hundredths of a sqft, so pricing never touches the BigDecimal
+    private long areaHundredths;
     private StateTax stateTax;
     private Product product;
 
+    // the price breakdown, worked out on first use and forgotten when the area, product or state tax changes.
+    // orders are read by many threads at once, so it is published whole, never field by field
+    private volatile PriceBreakdown prices;
+
+    /**
+     * Every price of an order, worked out together and never changed.
+     */
+    private static final class PriceBreakdown {
+        private final long materialCostCents;
+        private final long laborCostCents;
+        // only priced when there is a state tax with a rate, so the costs can still be read without one
+        private final boolean taxed;
+        private final long taxCents;
+
+        private PriceBreakdown(Product product, long areaHundredths, StateTax stateTax) {
+            materialCostCents = Money.times(product.getCostPerSqft().getCents(), areaHundredths);
+            laborCostCents = Money.times(product.getLaborCostPerSqft().getCents(), areaHundredths);
+            taxed = stateTax != null && stateTax.getTaxRate() != null;
+            taxCents = taxed ? stateTax.getTaxRate().applyTo(Math.addExact(materialCostCents, laborCostCents)) : 0;
+        }
+
+        private long getTaxCents() {
+            if(!taxed) {
+                throw new NullPointerException("The order has no state tax rate to price its tax with.");
+            }
+            return taxCents;
+        }
+    }
+
     /**
      * Create an empty order.
      */
@@ -40,19 +71,39 @@ public class Order {
 
     public Order setStateTax(StateTax stateTax) {
         this.stateTax = stateTax;
+        prices = null;
         return this;
     }
 
     public Order setProduct(Product product) {
         this.product = product;
+        prices = null;
         return this;
     }
 
+    /**
+     * @param area in sqft, priced rounded half up to a hundredth of a sqft
+     * @throws ArithmeticException if the area is too large to price.
+     */
     public Order setArea(BigDecimal area) {
+        this.areaHundredths = area == null ? 0 : area.setScale(AREA_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
         this.area = area;
+        prices = null;
         return this;
     }
 
+    /**
+     * @return the prices, worked out into a local and published once if they are not known yet.
+     */
+    private PriceBreakdown price() {
+        PriceBreakdown breakdown = prices;
+        if(breakdown == null) {
+            breakdown = new PriceBreakdown(product, areaHundredths, stateTax);
+            prices = breakdown;
+        }
+        return breakdown;
+    }
+
     public String getCustomerName() {
         return customerName;
     }
@@ -78,37 +129,65 @@ public class Order {
     }
 
     /**
-     * Calculated from the area, and cost per sqft.
-     * @return material cost, with a scale of 2, rounding half up.
+     * Calculated from the area, and cost per sqft, once until the area or product changes.
+     * @return material cost in cents, rounding half up.
      */
-    public BigDecimal getMaterialCost() {
-        return area.multiply(product.getCostPerSqft()).setScale(2, RoundingMode.HALF_UP);
+    public long getMaterialCostCents() {
+        return price().materialCostCents;
     }
 
     /**
-     * Calculated from the area, and labor cost per sqft.
-     * @return labor cost, with a scale of 2, rounding half up.
+     * Calculated from the area, and labor cost per sqft, once until the area or product changes.
+     * @return labor cost in cents, rounding half up.
      */
-    public BigDecimal getLaborCost() {
-        return area.multiply(product.getLaborCostPerSqft()).setScale(2, RoundingMode.HALF_UP);
+    public long getLaborCostCents() {
+        return price().laborCostCents;
     }
 
     /**
-     * Calculated from the material cost, and labor cost.
-     * @return tax, with a scale of 2, rounding half up.
+     * Calculated from the material cost, labor cost, and every digit of the tax rate,
+     *  once until the area, product or state tax changes.
+     * @return tax in cents, rounding half up.
      */
-    public BigDecimal getTax() {
-        final BigDecimal materialPlusLabor = getMaterialCost().add(getLaborCost());
-        final BigDecimal taxRateAsFraction = stateTax.getTaxRate().divide(ONE_HUNDRED, RoundingMode.HALF_UP);
-        return materialPlusLabor.multiply(taxRateAsFraction).setScale(2, RoundingMode.HALF_UP);
+    public long getTaxCents() {
+        return price().getTaxCents();
     }
 
     /**
      * Calculated from the material cost, labor cost, and tax.
-     * @return total including tax, with a scale of 2, rounding half up.
+     * @return total including tax in cents.
+     */
+    public long getTotalCents() {
+        final PriceBreakdown breakdown = price();
+        return Math.addExact(Math.addExact(breakdown.materialCostCents, breakdown.laborCostCents), breakdown.getTaxCents());
+    }
+
+    /**
+     * @return material cost, see getMaterialCostCents.
+     */
+    public Money getMaterialCost() {
+        return Money.ofCents(getMaterialCostCents());
+    }
+
+    /**
+     * @return labor cost, see getLaborCostCents.
+     */
+    public Money getLaborCost() {
+        return Money.ofCents(getLaborCostCents());
+    }
+
+    /**
+     * @return tax, see getTaxCents.
+     */
+    public Money getTax() {
+        return Money.ofCents(getTaxCents());
+    }
+
+    /**
+     * @return total including tax, see getTotalCents.
      */
-    public BigDecimal getTotal() {
-        return getMaterialCost().add(getLaborCost()).add(getTax()).setScale(2, RoundingMode.HALF_UP);
+    public Money getTotal() {
+        return Money.ofCents(getTotalCents());
     }
 
     /**
@@ -143,10 +222,10 @@ public class Order {
                 area != null ? area.toString() : "N/A",
                 stateTax != null ? stateTax.toString() : "N/A",
                 product != null ? product.toString() : "N/A",
-                haveAreaAndProduct ? GenericValidator.NICE_NUMBER_FORMATTER.format(getMaterialCost()) : "N/A",
-                haveAreaAndProduct ? GenericValidator.NICE_NUMBER_FORMATTER.format(getLaborCost()) : "N/A",
-                haveAreaProductStateTax ? GenericValidator.NICE_NUMBER_FORMATTER.format(getTax()) : "N/A",
-                haveAreaProductStateTax ? GenericValidator.NICE_NUMBER_FORMATTER.format(getTotal()) : "N/A"
+                haveAreaAndProduct ? GenericValidator.NICE_NUMBER_FORMATTER.format(getMaterialCost().toBigDecimal()) : "N/A",
+                haveAreaAndProduct ? GenericValidator.NICE_NUMBER_FORMATTER.format(getLaborCost().toBigDecimal()) : "N/A",
+                haveAreaProductStateTax ? GenericValidator.NICE_NUMBER_FORMATTER.format(getTax().toBigDecimal()) : "N/A",
+                haveAreaProductStateTax ? GenericValidator.NICE_NUMBER_FORMATTER.format(getTotal().toBigDecimal()) : "N/A"
         );
     }
 
@@ -6,19 +6,26 @@ import java.math.BigDecimal;
 
 public class Product {
     private final String productType;
-    private final BigDecimal costPerSqft, laborCostPerSqft;
+    private final Money costPerSqft, laborCostPerSqft;
 
-    public Product(String productType, BigDecimal costPerSqft, BigDecimal laborCostPerSqft) {
+    public Product(String productType, Money costPerSqft, Money laborCostPerSqft) {
         this.productType = productType;
         this.costPerSqft = costPerSqft;
         this.laborCostPerSqft = laborCostPerSqft;
     }
 
-    public BigDecimal getCostPerSqft() {
+    /**
+     * Costs are rounded half up to the cent.
+     */
+    public Product(String productType, BigDecimal costPerSqft, BigDecimal laborCostPerSqft) {
+        this(productType, Money.of(costPerSqft), Money.of(laborCostPerSqft));
+    }
+
+    public Money getCostPerSqft() {
         return costPerSqft;
     }
 
-    public BigDecimal getLaborCostPerSqft() {
+    public Money getLaborCostPerSqft() {
         return laborCostPerSqft;
     }
 
@@ -55,14 +62,14 @@ public class Product {
             if(otherProduct.costPerSqft != null) {
                 return false;
             }
-        } else if(otherProduct.costPerSqft.compareTo(costPerSqft) != 0) {
+        } else if(!costPerSqft.equals(otherProduct.costPerSqft)) {
             return false;
         }
 
         if(laborCostPerSqft == null) {
             return otherProduct.laborCostPerSqft == null;
         }
-        return otherProduct.laborCostPerSqft.compareTo(laborCostPerSqft) == 0;
+        return laborCostPerSqft.equals(otherProduct.laborCostPerSqft);
     }
 
 
@@ -70,8 +77,8 @@ public class Product {
     public String toString() {
         return String.format("%s ($%s/sqft material, $%s/sqft labor)",
                 productType,
-                GenericValidator.NICE_NUMBER_FORMATTER.format(costPerSqft),
-                GenericValidator.NICE_NUMBER_FORMATTER.format(laborCostPerSqft)
+                GenericValidator.NICE_NUMBER_FORMATTER.format(costPerSqft.toBigDecimal()),
+                GenericValidator.NICE_NUMBER_FORMATTER.format(laborCostPerSqft.toBigDecimal())
         );
     }
 }
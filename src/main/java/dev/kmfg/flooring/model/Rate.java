@@ -0,0 +1,87 @@
+package dev.kmfg.flooring.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * A percentage as a whole number of hundredths of a percent, so 4.45% is 445.
+ * Every digit of the rate is applied, it is never rounded to a coarser fraction first.
+ * See Money for the rounding rules.
+ */
+public final class Rate implements Comparable<Rate> {
+    public static final int SCALE = 2;
+
+    // hundredths of a percent in a whole
+    private static final long PER_WHOLE = 10_000;
+
+    private final long hundredthsOfPercent;
+
+    private Rate(long hundredthsOfPercent) {
+        this.hundredthsOfPercent = hundredthsOfPercent;
+    }
+
+    public static Rate ofHundredthsOfPercent(long hundredthsOfPercent) {
+        return new Rate(hundredthsOfPercent);
+    }
+
+    /**
+     * @param percent such as 4.45 for 4.45%, rounded half up to a hundredth of a percent
+     * @return the rate, or null if it is null.
+     * @throws ArithmeticException if the rate does not fit in a long.
+     */
+    public static Rate of(BigDecimal percent) {
+        if(percent == null) {
+            return null;
+        }
+        return new Rate(percent.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * @param cents to take the rate of
+     * @return the rate of the amount, rounded half up to the cent.
+     * @throws ArithmeticException if the product does not fit in a long.
+     */
+    public long applyTo(long cents) {
+        return Money.divideHalfUp(Math.multiplyExact(cents, hundredthsOfPercent), PER_WHOLE);
+    }
+
+    public long getHundredthsOfPercent() {
+        return hundredthsOfPercent;
+    }
+
+    public boolean isNegative() {
+        return hundredthsOfPercent < 0;
+    }
+
+    /**
+     * @return the rate as a percentage, with a scale of 2.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(hundredthsOfPercent, SCALE);
+    }
+
+    @Override
+    public int compareTo(Rate other) {
+        return Long.compare(hundredthsOfPercent, other.hundredthsOfPercent);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hundredthsOfPercent);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if(other == this) return true;
+        if(!(other instanceof Rate)) return false;
+        return ((Rate) other).hundredthsOfPercent == hundredthsOfPercent;
+    }
+
+    /**
+     * @return the percentage with two decimal places, such as 4.45, the way order files hold it.
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -6,15 +6,22 @@ import java.math.BigDecimal;
 
 public class StateTax {
     private final String stateName, stateAbbreviation;
-    private final BigDecimal taxRate;
+    private final Rate taxRate;
 
-    public StateTax(String stateAbbreviation, String stateName, BigDecimal taxRate) {
+    public StateTax(String stateAbbreviation, String stateName, Rate taxRate) {
         this.stateAbbreviation = stateAbbreviation;
         this.stateName = stateName;
         this.taxRate = taxRate;
     }
 
-    public BigDecimal getTaxRate() {
+    /**
+     * @param taxRate as a percentage, rounded half up to a hundredth of a percent
+     */
+    public StateTax(String stateAbbreviation, String stateName, BigDecimal taxRate) {
+        this(stateAbbreviation, stateName, Rate.of(taxRate));
+    }
+
+    public Rate getTaxRate() {
         return taxRate;
     }
 
@@ -62,7 +69,7 @@ public class StateTax {
         if(taxRate == null) {
             return otherStateTax.taxRate == null;
         }
-        return otherStateTax.taxRate.compareTo(taxRate) == 0;
+        return taxRate.equals(otherStateTax.taxRate);
     }
 
 
@@ -71,7 +78,7 @@ public class StateTax {
         return String.format("%s (%s) - %s%%",
                 stateName,
                 stateAbbreviation,
-                GenericValidator.NICE_NUMBER_FORMATTER.format(taxRate)
+                GenericValidator.NICE_NUMBER_FORMATTER.format(taxRate.toBigDecimal())
         );
     }
 }
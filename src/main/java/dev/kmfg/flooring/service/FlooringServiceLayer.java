@@ -1,5 +1,6 @@
 package dev.kmfg.flooring.service;
 
+import dev.kmfg.flooring.dao.OrderResult;
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
 import dev.kmfg.flooring.dao.exception.StateTaxNotFoundException;
@@ -9,7 +10,9 @@ import dev.kmfg.flooring.model.StateTax;
 import dev.kmfg.flooring.service.exception.OrderDataValidationException;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface FlooringServiceLayer {
     /**
@@ -34,6 +37,14 @@ public interface FlooringServiceLayer {
      */
     List<Order> getAllOrders() throws FlooringDataPersistenceException, StateTaxNotFoundException, OrderNotFoundException;
 
+    /**
+     * Streams every order, in date order and then order number order, reading one day at a time.
+     * Orders will have fully populated StateTaxes.
+     * @return a stream of every order, a failure while it is consumed is thrown as UncheckedFlooringDataPersistenceException.
+     * @throws FlooringDataPersistenceException if the orders or state taxes cannot be fetched.
+     */
+    Stream<Order> streamAllOrders() throws FlooringDataPersistenceException;
+
     /**
      * Gets all orders for specified date.
      * Orders will have fully populated StateTaxes.
@@ -43,6 +54,25 @@ public interface FlooringServiceLayer {
      */
     List<Order> getAllOrders(LocalDate orderDate) throws FlooringDataPersistenceException, OrderNotFoundException;
 
+    /**
+     * Gets all orders in a date range.
+     * Orders will have fully populated StateTaxes.
+     * @param from first date to look for orders, inclusive
+     * @param to last date to look for orders, inclusive
+     * @return all orders in the range by date and then order number.
+     * @throws FlooringDataPersistenceException if the orders cannot be fetched.
+     */
+    List<Order> getOrders(LocalDate from, LocalDate to) throws FlooringDataPersistenceException;
+
+    /**
+     * Gets the orders of every customer whose name starts with the given prefix, ignoring case.
+     * Orders will have fully populated StateTaxes.
+     * @param customerNamePrefix whole or partial customer name
+     * @return the matching orders by date and then order number.
+     * @throws FlooringDataPersistenceException if the orders cannot be fetched.
+     */
+    List<Order> getOrdersByCustomerName(String customerNamePrefix) throws FlooringDataPersistenceException;
+
     /**
      * Adds an order, if it does not already exist.
      * @param order the order to add
@@ -52,6 +82,15 @@ public interface FlooringServiceLayer {
      */
     Order addOrder(Order order) throws FlooringDataPersistenceException, OrderDataValidationException, OrderNotFoundException;
 
+    /**
+     * Adds many orders. Every order is validated up front, and each order date is written once.
+     * An invalid order, or one that cannot be added, does not stop the rest.
+     * @param orders to add
+     * @return a result per order, in the order given.
+     * @throws FlooringDataPersistenceException if no order could be attempted.
+     */
+    List<OrderResult> addOrders(Collection<Order> orders) throws FlooringDataPersistenceException;
+
     /**
      * Gets an order, with its fully populated StateTax.
      * @param orderDate for the order
@@ -63,6 +102,15 @@ public interface FlooringServiceLayer {
      */
     Order getOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException, StateTaxNotFoundException;
 
+    /**
+     * Gets an order by its number alone, with its fully populated StateTax.
+     * @param orderNumber for the order
+     * @return order fully populated, if it exists.
+     * @throws FlooringDataPersistenceException if there is an issue fetching the order.
+     * @throws OrderNotFoundException if it does not exist.
+     */
+    Order getOrder(int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException;
+
     /**
      * Edits an order, if it already exists.
      * @param order the order to edit
@@ -73,6 +121,15 @@ public interface FlooringServiceLayer {
      */
     Order editOrder(Order order) throws FlooringDataPersistenceException, OrderNotFoundException, OrderDataValidationException;
 
+    /**
+     * Edits many orders. Every order is validated up front, and each order date is written once.
+     * An invalid order, or one that does not exist, does not stop the rest.
+     * @param orders to edit
+     * @return a result per order, in the order given.
+     * @throws FlooringDataPersistenceException if no order could be attempted.
+     */
+    List<OrderResult> editOrders(Collection<Order> orders) throws FlooringDataPersistenceException;
+
     /**
      * Removes an order.
      * @param orderDate for the order
@@ -83,6 +140,15 @@ public interface FlooringServiceLayer {
      */
     Order removeOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException;
 
+    /**
+     * Removes many orders, each order date is written once.
+     * An order that does not exist does not stop the rest.
+     * @param orders to remove, only their date and order number are used
+     * @return a result per order, in the order given.
+     * @throws FlooringDataPersistenceException if no order could be attempted.
+     */
+    List<OrderResult> removeOrders(Collection<Order> orders) throws FlooringDataPersistenceException;
+
     /**
      * Ensures the given order has all the required fields to allow for data persistence.
      * @param order to validate
@@ -1,23 +1,29 @@
 package dev.kmfg.flooring.service;
 
 import dev.kmfg.flooring.dao.OrderDao;
+import dev.kmfg.flooring.dao.OrderResult;
 import dev.kmfg.flooring.dao.ProductDao;
 import dev.kmfg.flooring.dao.StateTaxDao;
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
 import dev.kmfg.flooring.dao.exception.ProductNotFoundException;
 import dev.kmfg.flooring.dao.exception.StateTaxNotFoundException;
+import dev.kmfg.flooring.dao.exception.UncheckedFlooringDataPersistenceException;
 import dev.kmfg.flooring.model.Order;
 import dev.kmfg.flooring.model.Product;
 import dev.kmfg.flooring.model.StateTax;
 import dev.kmfg.flooring.service.exception.OrderDataValidationException;
 import dev.kmfg.flooring.service.validator.OrderValidator;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class FlooringServiceLayerImpl implements FlooringServiceLayer {
     private final OrderDao orderDao;
@@ -30,33 +36,58 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
         this.stateTaxDao = stateTaxDao;
     }
 
-    private List<Order> collectOrderStates(List<Order> orders) throws FlooringDataPersistenceException {
-        final Map<String, StateTax> stateTaxMap = stateTaxDao.getAllStateTaxes().stream()
+    private Map<String, StateTax> getStateTaxesByAbbreviation() throws FlooringDataPersistenceException {
+        return stateTaxDao.getAllStateTaxes().stream()
                 .collect(Collectors.toMap(
                         StateTax::getStateAbbreviation,
                         stateTax -> stateTax
                 ));
+    }
 
+    private Order collectOrderState(Order foundOrder) throws FlooringDataPersistenceException {
+        // The order file does not save the state name, only abbreviation, so we need to get the state to populate the field in order.
         StateTax foundStateTax;
-        for(Order order: orders) {
-            foundStateTax = stateTaxMap.get(order.getStateTax().getStateAbbreviation());
-
-            if(foundStateTax == null) {
-                throw new FlooringDataPersistenceException(
-                        String.format(
-                                "Order has a state tax \"%s\" which no longer exists!",
-                                order.getStateTax().getStateAbbreviation()
-                        )
-                );
-            }
+        try {
+            foundStateTax = stateTaxDao.getStateTax(foundOrder.getStateTax().getStateAbbreviation());
+        } catch (StateTaxNotFoundException e) {
+            throw new FlooringDataPersistenceException(
+                    String.format(
+                            "Order has a state tax \"%s\" which no longer exists!",
+                            foundOrder.getStateTax().getStateAbbreviation()
+                    ),
+                    e
+            );
+        }
+
+        return foundOrder.setStateTax(foundStateTax);
+    }
+
+    private Order collectOrderState(Order order, Map<String, StateTax> stateTaxMap) throws FlooringDataPersistenceException {
+        final StateTax foundStateTax = stateTaxMap.get(order.getStateTax().getStateAbbreviation());
+
+        if(foundStateTax == null) {
+            throw new FlooringDataPersistenceException(
+                    String.format(
+                            "Order has a state tax \"%s\" which no longer exists!",
+                            order.getStateTax().getStateAbbreviation()
+                    )
+            );
+        }
+
+        return order.setStateTax(foundStateTax);
+    }
+
+    private List<Order> collectOrderStates(List<Order> orders) throws FlooringDataPersistenceException {
+        final Map<String, StateTax> stateTaxMap = getStateTaxesByAbbreviation();
 
-            order.setStateTax(foundStateTax);
+        for(Order order: orders) {
+            collectOrderState(order, stateTaxMap);
         }
 
         return orders;
     }
 
-    private void validateProduct(Product product) throws OrderDataValidationException {
+    private void validateProductFields(Product product) throws OrderDataValidationException {
         if(product == null) {
             throw new OrderDataValidationException("Validation failed for order has a null product.");
         } else if(product.getProductType() == null) {
@@ -67,7 +98,7 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
             throw new OrderDataValidationException(
                     "Validation failed for order because its product has a null cost per sqft."
             );
-        } else if(BigDecimal.ZERO.compareTo(product.getCostPerSqft()) > 0) {
+        } else if(product.getCostPerSqft().isNegative()) {
             throw new OrderDataValidationException(
                     String.format(
                             "Validation failed for order because its product has a cost per sqft of %s.",
@@ -76,9 +107,13 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
             );
         } else if(product.getLaborCostPerSqft() == null) {
             throw new OrderDataValidationException("Validation failed for order because its product has a null labor cost per sqft.");
-        } else if(BigDecimal.ZERO.compareTo(product.getLaborCostPerSqft()) > 0) {
+        } else if(product.getLaborCostPerSqft().isNegative()) {
             throw new OrderDataValidationException("Validation failed for order because its product has a labor cost per sqft of 0 or less.");
         }
+    }
+
+    private void validateProduct(Product product) throws OrderDataValidationException {
+        validateProductFields(product);
 
         try {
             if(!productDao.getProduct(product.getProductType())
@@ -92,7 +127,7 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
         }
     }
 
-    private void validateStateTax(StateTax stateTax) throws OrderDataValidationException {
+    private void validateStateTaxFields(StateTax stateTax) throws OrderDataValidationException {
         if(stateTax == null) {
             throw new OrderDataValidationException("Validation failed for order has a null state tax.");
         } else if(stateTax.getStateName() == null || stateTax.getStateName().isBlank()) {
@@ -101,9 +136,13 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
             throw new OrderDataValidationException("Validation failed for order because its state tax does not have a state abbreviation.");
         } else if(stateTax.getTaxRate() == null) {
             throw new OrderDataValidationException("Validation failed for order because its state tax has a null tax rate.");
-        } else if(BigDecimal.ZERO.compareTo(stateTax.getTaxRate()) > 0) {
+        } else if(stateTax.getTaxRate().isNegative()) {
             throw new OrderDataValidationException("Validation failed for order because its state tax has a tax rate of 0 or less.");
         }
+    }
+
+    private void validateStateTax(StateTax stateTax) throws OrderDataValidationException {
+        validateStateTaxFields(stateTax);
 
         try {
             if(!stateTaxDao.getStateTax(stateTax.getStateAbbreviation())
@@ -137,6 +176,71 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
         }
     }
 
+    /**
+     * Same checks as validateEntireOrder, against products and state taxes fetched once for a whole batch.
+     */
+    private void validateEntireOrder(
+            Order order,
+            Map<String, Product> productsByType,
+            Map<String, StateTax> stateTaxesByAbbreviation
+    ) throws OrderDataValidationException {
+        validateOrderFields(order);
+
+        validateProductFields(order.getProduct());
+        final Product knownProduct = productsByType.get(order.getProduct().getProductType());
+        if(knownProduct == null) {
+            throw new OrderDataValidationException("Validation failed for order because its product does not exist via the dao.");
+        } else if(!knownProduct.equals(order.getProduct())) {
+            throw new OrderDataValidationException("Validation failed because the product exists, but the data does not match the dao.");
+        }
+
+        validateStateTaxFields(order.getStateTax());
+        final StateTax knownStateTax = stateTaxesByAbbreviation.get(order.getStateTax().getStateAbbreviation());
+        if(knownStateTax == null) {
+            throw new OrderDataValidationException("Validation failed for order because its state tax does not exist via the dao.");
+        } else if(!knownStateTax.equals(order.getStateTax())) {
+            throw new OrderDataValidationException("Validation failed because the state tax exists, but the data does not match the dao.");
+        }
+    }
+
+    /**
+     * Validates a batch of orders, fetching the products and state taxes only once.
+     * @param orders to validate
+     * @param results gets a failure, at the order's position, for each invalid order
+     * @return the valid orders.
+     */
+    private List<Order> validateOrders(Collection<Order> orders, OrderResult[] results) throws FlooringDataPersistenceException {
+        final Map<String, Product> productsByType = productDao.getAllProducts().stream()
+                .collect(Collectors.toMap(Product::getProductType, product -> product));
+        final Map<String, StateTax> stateTaxesByAbbreviation = getStateTaxesByAbbreviation();
+
+        final List<Order> validOrders = new ArrayList<>();
+        int i = 0;
+        for(Order order : orders) {
+            try {
+                validateEntireOrder(order, productsByType, stateTaxesByAbbreviation);
+                validOrders.add(order);
+            } catch(OrderDataValidationException e) {
+                results[i] = OrderResult.failure(order, e);
+            }
+            i++;
+        }
+        return validOrders;
+    }
+
+    /**
+     * Fills the positions left empty by validation with the results of the dao, in order.
+     */
+    private static List<OrderResult> mergeResults(OrderResult[] results, List<OrderResult> daoResults) {
+        final Iterator<OrderResult> daoResultIterator = daoResults.iterator();
+        for(int i = 0; i < results.length; i++) {
+            if(results[i] == null) {
+                results[i] = daoResultIterator.next();
+            }
+        }
+        return Arrays.asList(results);
+    }
+
     @Override
     public Order validateEntireOrder(Order order) throws OrderDataValidationException {
         validateOrderFields(order);
@@ -147,7 +251,7 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
 
     @Override
     public int getNumberOfOrders() throws FlooringDataPersistenceException, OrderNotFoundException {
-        return orderDao.getAllOrders().size();
+        return orderDao.getNumberOfOrders();
     }
 
     @Override
@@ -172,6 +276,20 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
         return collectOrderStates(foundOrders);
     }
 
+    @Override
+    public Stream<Order> streamAllOrders() throws FlooringDataPersistenceException {
+        final Map<String, StateTax> stateTaxMap = getStateTaxesByAbbreviation();
+
+        return orderDao.streamAllOrders()
+                .map(order -> {
+                    try {
+                        return collectOrderState(order, stateTaxMap);
+                    } catch(FlooringDataPersistenceException e) {
+                        throw new UncheckedFlooringDataPersistenceException(e);
+                    }
+                });
+    }
+
     @Override
     public List<Order> getAllOrders(LocalDate orderDate) throws FlooringDataPersistenceException, OrderNotFoundException {
         final List<Order> foundOrders = orderDao.getAllOrders(orderDate);
@@ -179,31 +297,40 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
         return collectOrderStates(foundOrders);
     }
 
+    @Override
+    public List<Order> getOrders(LocalDate from, LocalDate to) throws FlooringDataPersistenceException {
+        final List<Order> foundOrders = orderDao.getOrders(from, to);
+
+        return collectOrderStates(foundOrders);
+    }
+
+    @Override
+    public List<Order> getOrdersByCustomerName(String customerNamePrefix) throws FlooringDataPersistenceException {
+        final List<Order> foundOrders = orderDao.getOrdersByCustomerName(customerNamePrefix);
+
+        return collectOrderStates(foundOrders);
+    }
+
     @Override
     public Order addOrder(Order order) throws FlooringDataPersistenceException, OrderDataValidationException, OrderNotFoundException {
         return orderDao.addOrder(validateEntireOrder(order));
     }
 
     @Override
-    public Order getOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
-        final Order foundOrder = orderDao.getOrder(orderDate, orderNumber);
+    public List<OrderResult> addOrders(Collection<Order> orders) throws FlooringDataPersistenceException {
+        final OrderResult[] results = new OrderResult[orders.size()];
+        final List<Order> validOrders = validateOrders(orders, results);
+        return mergeResults(results, orderDao.addOrders(validOrders));
+    }
 
-        // The order file does not save the state name, only abbreviation, so we need to get the state to populate the field in order.
-        StateTax foundStateTax;
-        try {
-            foundStateTax = stateTaxDao.getStateTax(foundOrder.getStateTax().getStateAbbreviation());
-        } catch (StateTaxNotFoundException e) {
-            throw new FlooringDataPersistenceException(
-                    String.format(
-                            "Order has a state tax \"%s\" which no longer exists!",
-                            foundOrder.getStateTax().getStateAbbreviation()
-                    ),
-                    e
-            );
-        }
+    @Override
+    public Order getOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        return collectOrderState(orderDao.getOrder(orderDate, orderNumber));
+    }
 
-        foundOrder.setStateTax(foundStateTax);
-        return foundOrder;
+    @Override
+    public Order getOrder(int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
+        return collectOrderState(orderDao.getOrder(orderNumber));
     }
 
     @Override
@@ -211,8 +338,20 @@ public class FlooringServiceLayerImpl implements FlooringServiceLayer {
         return orderDao.editOrder(validateEntireOrder(order));
     }
 
+    @Override
+    public List<OrderResult> editOrders(Collection<Order> orders) throws FlooringDataPersistenceException {
+        final OrderResult[] results = new OrderResult[orders.size()];
+        final List<Order> validOrders = validateOrders(orders, results);
+        return mergeResults(results, orderDao.editOrders(validOrders));
+    }
+
     @Override
     public Order removeOrder(LocalDate orderDate, int orderNumber) throws FlooringDataPersistenceException, OrderNotFoundException {
         return orderDao.removeOrder(orderDate, orderNumber);
     }
+
+    @Override
+    public List<OrderResult> removeOrders(Collection<Order> orders) throws FlooringDataPersistenceException {
+        return orderDao.removeOrders(orders);
+    }
 }
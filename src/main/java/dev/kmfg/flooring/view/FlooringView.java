@@ -151,11 +151,12 @@ public class FlooringView {
         return promptOrderDate();
     }
 
-    public Order displayFindOrder() {
+    /**
+     * @return the order number to find, order numbers are unique so no date is needed.
+     */
+    public int displayFindOrder() {
         displayHeader("Find Specific Order");
-        return new Order()
-                .setOrderDate(promptOrderDate())
-                .setOrderNumber(promptOrderNumber());
+        return promptOrderNumber();
     }
 
     /**
@@ -183,6 +184,44 @@ public class FlooringView {
         }
     }
 
+    /**
+     * @return whole or partial customer name to look for, never blank.
+     */
+    public String displayFindCustomerOrders() {
+        displayHeader("Find Customer Orders");
+        String customerName = "";
+        while(customerName.isBlank()) {
+            customerName = io.readString("Enter the customer name, or the start of it. Case does not matter.");
+        }
+        return customerName;
+    }
+
+    /**
+     * Displays the orders found for a customer.
+     * Will inform the user if the list is empty or null.
+     * @param foundOrders to display.
+     * @param customerName that was searched for.
+     */
+    public void displayFoundCustomerOrders(List<Order> foundOrders, String customerName) {
+        if(foundOrders == null || foundOrders.isEmpty()) {
+            io.print(
+                    String.format(
+                            "No orders found for customers starting with %s.",
+                            customerName
+                    )
+            );
+        } else {
+            io.print(
+                    String.format(
+                            "%d orders found for customers starting with %s.",
+                            foundOrders.size(),
+                            customerName
+                    )
+            );
+            foundOrders.forEach(order -> io.print(order.toString()));
+        }
+    }
+
     /**
      * Sets up an order to be placed.
      * If the user does not confirm the placement, an empty optional will be returned.
@@ -383,6 +422,16 @@ public class FlooringView {
         );
     }
 
+    public void displayOrderNotFound(int orderNumber) {
+        displayHeader("Order Not Found");
+        io.print(
+                String.format(
+                        "No order found for order #%d.",
+                        orderNumber
+                )
+        );
+    }
+
     /**
      * Prompts the user for a file and file path to export orders to.
      * User must confirm their decision, otherwise an empty optional will be returned.
@@ -10,7 +10,8 @@ public enum MenuSelection {
     ADD_ORDER(3),
     EDIT_ORDER(4),
     REMOVE_ORDER(5),
-    EXPORT_ALL_ORDERS(6)
+    EXPORT_ALL_ORDERS(6),
+    FIND_CUSTOMER_ORDERS(7)
     ;
 
     private final int value;
@@ -0,0 +1,60 @@
+package dev.kmfg.flooring.test;
+
+import dev.kmfg.flooring.dao.parser.CsvTokenizer;
+import dev.kmfg.flooring.dao.parser.FixedPointDecimal;
+import dev.kmfg.flooring.service.validator.GenericValidator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+public class CsvParserTest {
+    @Test
+    public void testTokenizerMatchesSplit() {
+        final CsvTokenizer tokenizer = new CsvTokenizer(',', 12);
+        Stream.of(
+                "1,Ada Lovelace,CA,25.00",
+                "a,,b",
+                // split drops trailing empty fields
+                "a,b,,",
+                "",
+                "single"
+        ).forEach(line -> {
+            final String[] expected = line.split(",");
+            final int fieldCount = tokenizer.tokenize(line, 0, line.length());
+            assertEquals(expected.length, fieldCount, line);
+            for(int i = 0; i < fieldCount; i++) {
+                assertEquals(expected[i], tokenizer.getString(line, i));
+            }
+
+            final ByteBuffer bytes = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            assertEquals(expected.length, tokenizer.tokenize(bytes, 0, bytes.limit()), line);
+            for(int i = 0; i < fieldCount; i++) {
+                assertEquals(expected[i], tokenizer.getString(bytes, i));
+            }
+        });
+    }
+
+    @Test
+    public void testFixedPointMatchesBigDecimal() {
+        final int scale = 2;
+        Stream.of("0", "1", "25.00", "4.45", "2.255", "2.254", "-3.5", "1000000.99", ".5")
+                .forEach(number -> {
+                    final BigDecimal expected = GenericValidator.createBigDecimal(number);
+                    final BigDecimal parsed = FixedPointDecimal.toBigDecimal(
+                            FixedPointDecimal.parse(number, 0, number.length(), scale),
+                            scale
+                    );
+                    assertEquals(expected, parsed, number);
+                });
+
+        assertThrows(NumberFormatException.class, () -> FixedPointDecimal.parse("12a", 0, 3, scale));
+        assertThrows(NumberFormatException.class, () -> FixedPointDecimal.parse("", 0, 0, scale));
+        assertThrows(NumberFormatException.class, () -> FixedPointDecimal.parseInt("1.5", 0, 3));
+        assertEquals(42, FixedPointDecimal.parseInt("42", 0, 2));
+    }
+}
@@ -175,4 +175,27 @@ public class FlooringServiceLayerImplTest {
 
         assertDoesNotThrow(() -> service.addOrder(testOrder));
     }
+
+    @Test
+    public void testBatchAddReportsEachOrder() throws FlooringDataPersistenceException {
+        final Order secondOrder = testOrder.cloneOrder().setCustomerName("Jane Smith");
+        final Order invalidOrder = testOrder.cloneOrder().setArea(GenericValidator.createBigDecimal("99.99"));
+        final Order nextDayOrder = testOrder.cloneOrder().setOrderDate(testOrder.getOrderDate().plusDays(1));
+
+        final List<OrderResult> results = service.addOrders(List.of(testOrder, invalidOrder, secondOrder, nextDayOrder));
+
+        assertEquals(4, results.size(), "Every order should get a result!");
+        assertTrue(results.get(0).isSuccessful());
+        assertInstanceOf(OrderDataValidationException.class, results.get(1).getFailure(), "Invalid order was not rejected on its own!");
+        assertTrue(results.get(2).isSuccessful());
+        assertTrue(results.get(3).isSuccessful());
+        // numbers come from one block, in the order given
+        assertEquals(testOrder.getOrderNumber() + 1, secondOrder.getOrderNumber());
+        assertEquals(testOrder.getOrderNumber() + 2, nextDayOrder.getOrderNumber());
+
+        final List<OrderResult> removeResults = service.removeOrders(List.of(testOrder, secondOrder, secondOrder));
+        assertTrue(removeResults.get(0).isSuccessful());
+        assertTrue(removeResults.get(1).isSuccessful());
+        assertInstanceOf(OrderNotFoundException.class, removeResults.get(2).getFailure(), "Removing twice should fail on its own!");
+    }
 }
@@ -0,0 +1,218 @@
+package dev.kmfg.flooring.test;
+
+import dev.kmfg.flooring.dao.OrderDaoColumnarImpl;
+import dev.kmfg.flooring.dao.OrderDaoFileImpl;
+import dev.kmfg.flooring.dao.OrderFileReader;
+import dev.kmfg.flooring.dao.OrderFileReaderScannerImpl;
+import dev.kmfg.flooring.dao.OrderFileWriter;
+import dev.kmfg.flooring.dao.OrderResult;
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.model.Order;
+import dev.kmfg.flooring.model.Product;
+import dev.kmfg.flooring.model.StateTax;
+import dev.kmfg.flooring.service.validator.GenericValidator;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+public class OrderDaoColumnarImplTest {
+    private static final String testRestoreOrdersPath = "TestData/Restore/Orders";
+    private static final String testColumnarPath = "TestData/Columnar";
+    private static final String testOrdersPath = testColumnarPath + "/Orders";
+
+    private OrderDaoColumnarImpl testDao;
+    private Order testOrder;
+
+    /**
+     * Starts from a copy of the restore orders, so the order files of the other tests are never rewritten.
+     *
+     * @throws IOException if the order files cannot be copied.
+     */
+    @BeforeEach
+    public void setUp() throws IOException {
+        Files.createDirectories(Paths.get(testOrdersPath));
+        try(Stream<Path> files = Files.list(Paths.get(testRestoreOrdersPath))) {
+            for(Path file : files.collect(Collectors.toList())) {
+                Files.copy(file, Paths.get(testOrdersPath).resolve(file.getFileName()));
+            }
+        }
+        testDao = new OrderDaoColumnarImpl(testOrdersPath);
+
+        final Product fakeProduct = new Product(
+                "Not Real",
+                GenericValidator.createBigDecimal("2.21"),
+                GenericValidator.createBigDecimal("3.23")
+        );
+        final StateTax fakeStateTax = new StateTax(
+                "CA",
+                "California",
+                GenericValidator.createBigDecimal("25.00")
+        );
+        testOrder = new Order()
+                .setOrderDate(LocalDate.of(2030, 1, 1))
+                .setCustomerName("John Smith")
+                .setArea(GenericValidator.createBigDecimal("100.00"))
+                .setProduct(fakeProduct)
+                .setStateTax(fakeStateTax);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try(Stream<Path> files = Files.walk(Paths.get(testColumnarPath))) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void assertSameOrder(Order expected, Order actual) {
+        assertEquals(expected.getOrderNumber(), actual.getOrderNumber());
+        assertEquals(expected.getOrderDate(), actual.getOrderDate());
+        assertEquals(expected.getCustomerName(), actual.getCustomerName());
+        assertEquals(expected.getStateTax().getStateAbbreviation(), actual.getStateTax().getStateAbbreviation());
+        assertEquals(expected.getStateTax().getTaxRate(), actual.getStateTax().getTaxRate());
+        assertEquals(expected.getProduct().getProductType(), actual.getProduct().getProductType());
+        assertEquals(expected.getArea(), actual.getArea());
+        assertEquals(expected.getTotal(), actual.getTotal());
+    }
+
+    @Test
+    public void testReadsAndWritesTheOrderFiles() throws FlooringDataPersistenceException, OrderNotFoundException {
+        // read with the file reader alone, a file dao would write its catalog into the restore directory
+        final OrderFileReader orderFileReader = new OrderFileReaderScannerImpl();
+        final List<Order> restored = new ArrayList<>();
+        restored.addAll(orderFileReader.read(Paths.get(testRestoreOrdersPath, "Orders_06012013.txt"), LocalDate.of(2013, 6, 1), new CRC32()));
+        restored.addAll(orderFileReader.read(Paths.get(testRestoreOrdersPath, "Orders_06022013.txt"), LocalDate.of(2013, 6, 2), new CRC32()));
+        final List<Order> loaded = testDao.getAllOrders();
+        assertEquals(restored.size(), loaded.size());
+        for(int i = 0; i < restored.size(); i++) {
+            assertSameOrder(restored.get(i), loaded.get(i));
+        }
+        assertEquals("Doctor Who", testDao.getOrder(2).getCustomerName());
+        assertEquals(1, testDao.getOrdersByCustomerName("  albert ").size());
+
+        final Order added = testDao.addOrder(testOrder.cloneOrder());
+        assertEquals(4, added.getOrderNumber(), "Numbers in the order files should not be reused!");
+        testDao.editOrder(added.cloneOrder().setCustomerName("Jane Smith"));
+        final Order removed = testDao.removeOrder(LocalDate.of(2013, 6, 2), 2);
+        assertEquals("Doctor Who", removed.getCustomerName());
+        assertThrows(OrderNotFoundException.class, () -> testDao.getOrder(2));
+        assertThrows(OrderNotFoundException.class, () -> testDao.removeOrder(LocalDate.of(2013, 6, 1), 3),
+                "An order should only be found on its own date!");
+
+        // the files hold every change, as the file dao reads them
+        final List<Order> written = new OrderDaoFileImpl(testOrdersPath).getAllOrders();
+        final List<Order> expected = testDao.getAllOrders();
+        assertEquals(3, written.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertSameOrder(expected.get(i), written.get(i));
+        }
+        assertEquals("Jane Smith", written.get(2).getCustomerName());
+    }
+
+    @Test
+    public void testRemovedRowsAreFilledAndTheColumnsGrow() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final int orderCount = 1000;
+        final int dateCount = 20;
+        final List<Order> toAdd = new ArrayList<>();
+        for(int i = 0; i < orderCount; i++) {
+            toAdd.add(testOrder.cloneOrder()
+                    .setOrderDate(testOrder.getOrderDate().plusDays(i % dateCount))
+                    .setCustomerName("Customer " + i));
+        }
+        final long emptyBytes = testDao.getOffHeapBytes();
+        assertTrue(testDao.addOrders(toAdd).stream().allMatch(result -> result.getFailure() == null));
+        assertTrue(testDao.getOffHeapBytes() > emptyBytes, "The columns should grow!");
+
+        // every other order is removed, so most removals move the last row into the hole
+        final List<Order> toRemove = new ArrayList<>();
+        for(int i = 0; i < orderCount; i += 2) {
+            toRemove.add(toAdd.get(i));
+        }
+        assertTrue(testDao.removeOrders(toRemove).stream().allMatch(result -> result.getFailure() == null));
+        assertEquals(3 + orderCount / 2, testDao.getNumberOfOrders());
+        for(int i = 1; i < orderCount; i += 2) {
+            assertSameOrder(toAdd.get(i), testDao.getOrder(toAdd.get(i).getOrderNumber()));
+        }
+
+        final List<Order> dayOrders = testDao.getAllOrders(testOrder.getOrderDate().plusDays(1));
+        assertEquals(orderCount / dateCount, dayOrders.size());
+        for(int i = 1; i < dayOrders.size(); i++) {
+            assertTrue(dayOrders.get(i - 1).getOrderNumber() < dayOrders.get(i).getOrderNumber(), "Orders should come by number!");
+        }
+        assertThrows(OrderNotFoundException.class, () -> testDao.getAllOrders(testOrder.getOrderDate()),
+                "A date with every order removed should have none!");
+        assertFalse(Files.exists(Paths.get(testOrdersPath, "Orders_01012030.txt")), "An empty date should have no file!");
+
+        // a fresh dao reads the same orders back from the files
+        final List<Order> allOrders = testDao.getAllOrders();
+        final List<Order> reread = new OrderDaoColumnarImpl(testOrdersPath).getAllOrders();
+        assertEquals(allOrders.size(), reread.size());
+        for(int i = 0; i < allOrders.size(); i++) {
+            assertSameOrder(allOrders.get(i), reread.get(i));
+        }
+        try(Stream<Order> streamed = testDao.streamAllOrders()) {
+            assertEquals(allOrders.size(), streamed.count());
+        }
+    }
+
+    @Test
+    public void testImportsAnotherDirectoryOfOrderFiles() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDaoColumnarImpl importingDao = new OrderDaoColumnarImpl(testColumnarPath + "/Imported");
+        assertEquals(0, importingDao.getNumberOfOrders());
+
+        assertEquals(3, importingDao.importOrderFiles(testOrdersPath));
+        final List<Order> imported = importingDao.getAllOrders();
+        final List<Order> source = testDao.getAllOrders();
+        assertEquals(source.size(), imported.size());
+        for(int i = 0; i < source.size(); i++) {
+            assertSameOrder(source.get(i), imported.get(i));
+        }
+
+        // importing again replaces the same orders, and imported numbers are never handed out again
+        assertEquals(3, importingDao.importOrderFiles(testOrdersPath));
+        assertEquals(3, importingDao.getNumberOfOrders());
+        assertEquals(4, importingDao.addOrder(testOrder.cloneOrder()).getOrderNumber());
+
+        testDao.removeOrder(LocalDate.of(2013, 6, 2), 3);
+        testDao.addOrder(testOrder.cloneOrder().setOrderDate(LocalDate.of(2013, 6, 3)));
+        assertThrows(FlooringDataPersistenceException.class, () -> importingDao.importOrderFiles(testOrdersPath),
+                "An order number already used on another date should not be imported!");
+    }
+
+    @Test
+    public void testAFailedWriteLeavesTheCallersOrderAlone() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderFileWriter failingWriter = (orderFile, orders) -> {
+            throw new FlooringDataPersistenceException("The disk is full.");
+        };
+        final OrderDaoColumnarImpl failingDao = new OrderDaoColumnarImpl(testOrdersPath, new OrderFileReaderScannerImpl(), failingWriter);
+
+        final Order toAdd = testOrder.cloneOrder();
+        assertThrows(FlooringDataPersistenceException.class, () -> failingDao.addOrder(toAdd));
+        assertEquals(-1, toAdd.getOrderNumber(), "A failed add should not number the caller's order!");
+
+        final List<OrderResult> results = failingDao.addOrders(List.of(toAdd, testOrder.cloneOrder()));
+        assertTrue(results.stream().noneMatch(OrderResult::isSuccessful));
+        assertEquals(-1, toAdd.getOrderNumber(), "A failed add should not number the caller's order!");
+        assertEquals(3, failingDao.getNumberOfOrders(), "A date that could not be written should be read back!");
+
+        final Order added = testOrder.cloneOrder();
+        assertSame(added, testDao.addOrder(added), "An add should hand back the caller's own order!");
+        assertTrue(added.getOrderNumber() > 3);
+        added.setCustomerName("Changed By The Caller");
+        assertEquals("John Smith", testDao.getOrder(added.getOrderNumber()).getCustomerName());
+    }
+}
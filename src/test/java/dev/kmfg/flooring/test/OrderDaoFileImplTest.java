@@ -1,9 +1,20 @@
 package dev.kmfg.flooring.test;
 
+import dev.kmfg.flooring.dao.OrderCommitCoordinator;
 import dev.kmfg.flooring.dao.OrderDao;
 import dev.kmfg.flooring.dao.OrderDaoFileImpl;
+import dev.kmfg.flooring.dao.OrderFileLocks;
+import dev.kmfg.flooring.dao.OrderFileReaderMappedImpl;
+import dev.kmfg.flooring.dao.OrderFileReaderScannerImpl;
+import dev.kmfg.flooring.dao.OrderFileWriter;
+import dev.kmfg.flooring.dao.OrderFileWriterAtomicImpl;
+import dev.kmfg.flooring.dao.OrderMarshaller;
+import dev.kmfg.flooring.dao.OrderResult;
+import dev.kmfg.flooring.dao.OrderUnmarshaller;
+import dev.kmfg.flooring.dao.ProductDaoFileImpl;
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.dao.exception.ProductNotFoundException;
 import dev.kmfg.flooring.model.Order;
 import dev.kmfg.flooring.model.Product;
 import dev.kmfg.flooring.model.StateTax;
@@ -14,15 +25,27 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
 
 public class OrderDaoFileImplTest {
     private static final String testOrdersPath = "TestData/Orders";
@@ -313,4 +336,724 @@ public class OrderDaoFileImplTest {
             assertEquals(orders.get(i), expectedOrders.get(i), "Orders are not equal!");
         }
     }
+
+    @Test
+    public void testOrderNumberSequenceIsNotReused() {
+        Order addedOrder = null;
+        try {
+            addedOrder = testDao.addOrder(testOrder);
+            testDao.removeOrder(addedOrder.getOrderDate(), addedOrder.getOrderNumber());
+        } catch(FlooringDataPersistenceException e) {
+            fail("Could not add then remove order!", e);
+        } catch (OrderNotFoundException e) {
+            fail("Order was not found after adding!", e);
+        }
+
+        // a fresh dao must continue from the persisted high-water-mark, not from the orders left on file
+        final OrderDao restartedDao = new OrderDaoFileImpl(testOrdersPath);
+        final Order secondOrder = testOrder.cloneOrder();
+        assertDoesNotThrow(() -> restartedDao.addOrder(secondOrder));
+        assertEquals(addedOrder.getOrderNumber() + 1, secondOrder.getOrderNumber(), "Order number was reused after a restart!");
+    }
+
+    @Test
+    public void testOrderNumberSequenceRebuildsWhenCorrupt() throws IOException {
+        Files.writeString(Paths.get(testOrdersPath, "OrderNumberSequence.dat"), "not a sequence");
+
+        assertDoesNotThrow(() -> testDao.addOrder(testOrder));
+        final int expectedOrderNumber = 4; // rebuilt from the 3 orders on file
+        assertEquals(expectedOrderNumber, testOrder.getOrderNumber(), "Corrupt sequence was not rebuilt from the order files!");
+    }
+
+    @Test
+    public void testCatalogCountsOrders() throws FlooringDataPersistenceException {
+        final int existingOrders = 3;
+        assertEquals(existingOrders, testDao.getNumberOfOrders(), "Catalog did not count the orders on file!");
+
+        assertDoesNotThrow(() -> testDao.addOrder(testOrder));
+        assertEquals(existingOrders + 1, testDao.getNumberOfOrders(), "Catalog was not updated after adding an order!");
+
+        assertDoesNotThrow(() -> testDao.removeOrder(testOrder.getOrderDate(), testOrder.getOrderNumber()));
+        assertEquals(existingOrders, testDao.getNumberOfOrders(), "Catalog was not updated after removing an order!");
+    }
+
+    @Test
+    public void testRebuildCatalogFindsExternalChanges() throws IOException, FlooringDataPersistenceException {
+        final OrderDaoFileImpl fileDao = new OrderDaoFileImpl(testOrdersPath);
+        assertEquals(3, fileDao.getNumberOfOrders(), "Catalog did not count the orders on file!");
+
+        // removed behind the dao's back, it cannot know until the catalog is rebuilt
+        Files.delete(Paths.get(testOrdersPath, "Orders_06022013.txt"));
+        assertEquals(3, fileDao.getNumberOfOrders(), "Catalog should not list the directory on every call!");
+
+        fileDao.rebuildCatalog();
+        assertEquals(1, fileDao.getNumberOfOrders(), "Rebuilt catalog does not match the orders directory!");
+    }
+
+    @Test
+    public void testPartitionCacheHitsAndInvalidates() throws IOException, FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDaoFileImpl fileDao = new OrderDaoFileImpl(testOrdersPath);
+        final LocalDate existingDate = LocalDate.parse("06/01/2013", GenericValidator.STR_DATE_FORMATTER);
+
+        // a caller changing its order should not change the cached one
+        fileDao.getOrder(existingDate, 1).setCustomerName("Not Cached");
+        assertEquals("Ada Lovelace", fileDao.getOrder(existingDate, 1).getCustomerName(), "A hit handed out the cached order itself!");
+        fileDao.getAllOrders(existingDate);
+        assertEquals(1, fileDao.getPartitionCache().getMissCount(), "Only the first lookup should have parsed the file!");
+        assertEquals(2, fileDao.getPartitionCache().getHitCount(), "Repeated lookups did not hit the cache!");
+
+        // same size, and likely the same timestamp, so only the content hash can tell it changed
+        final Path existingFile = Paths.get(testOrdersPath, "Orders_06012013.txt");
+        Files.writeString(existingFile, Files.readString(existingFile).replace("Ada Lovelace", "Ada Lovelacy"));
+
+        assertEquals("Ada Lovelacy", fileDao.getOrder(existingDate, 1).getCustomerName(), "Cache returned orders from a changed file!");
+        assertEquals(2, fileDao.getPartitionCache().getMissCount(), "Changed file was not treated as a miss!");
+    }
+
+    @Test
+    public void testOnlyAReloadedDayIsIndexedAgain() throws IOException, FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDaoFileImpl fileDao = new OrderDaoFileImpl(testOrdersPath);
+
+        assertEquals("Ada Lovelace", fileDao.getOrder(1).getCustomerName());
+        final long indexCount = fileDao.getDayIndexCount();
+        fileDao.getOrder(1);
+        fileDao.getOrder(1);
+        assertEquals(indexCount, fileDao.getDayIndexCount(), "A partition cache hit should not index the day again!");
+
+        final Path existingFile = Paths.get(testOrdersPath, "Orders_06012013.txt");
+        Files.writeString(existingFile, Files.readString(existingFile).replace("Ada Lovelace", "Ada Lovelacy"));
+        assertEquals("Ada Lovelacy", fileDao.getOrder(1).getCustomerName());
+        assertEquals(indexCount + 1, fileDao.getDayIndexCount(), "A day read again from disk should be indexed again!");
+
+        // moved to another date, the stale entry is dropped and the number found through the catalog
+        final Order moved = fileDao.getOrder(1);
+        fileDao.removeOrder(moved.getOrderDate(), 1);
+        final Order readded = fileDao.addOrder(moved.setOrderDate(LocalDate.of(2013, 6, 2)));
+        assertEquals(LocalDate.of(2013, 6, 2), fileDao.getOrder(readded.getOrderNumber()).getOrderDate());
+        assertEquals(2, fileDao.getOrder(2).getOrderNumber(), "An order indexed before the commit was lost!");
+        assertThrows(OrderNotFoundException.class, () -> fileDao.getOrder(1));
+    }
+
+    @Test
+    public void testMappedReaderMatchesScannerReader() throws FlooringDataPersistenceException, OrderNotFoundException {
+        // the test files use windows line endings, and have no line ending after the last row
+        final OrderDao mappedDao = new OrderDaoFileImpl(testOrdersPath, new OrderFileReaderMappedImpl());
+        final List<Order> scannedOrders = testDao.getAllOrders();
+        final List<Order> mappedOrders = mappedDao.getAllOrders();
+
+        scannedOrders.sort(Comparator.comparing(Order::getOrderNumber));
+        mappedOrders.sort(Comparator.comparing(Order::getOrderNumber));
+        assertEquals(scannedOrders, mappedOrders, "Mapped reader did not produce the same orders as the scanner reader!");
+    }
+
+    @Test
+    public void testMappedReaderReadsLargeFilesThroughItsBuffer() throws IOException, FlooringDataPersistenceException, OrderNotFoundException {
+        // enough rows that the reader's buffer has to grow, and a name that is not ascii
+        final Path restoredFile = Paths.get(testOrdersBackupPath, "Orders_06012013.txt");
+        final String[] restoredLines = Files.readString(restoredFile).split("\r\n");
+        final String row = restoredLines[1].substring(restoredLines[1].indexOf(','));
+        final StringBuilder largeFile = new StringBuilder(restoredLines[0]);
+        final int rowCount = 5000;
+        for(int orderNumber = 1; orderNumber <= rowCount; orderNumber++) {
+            largeFile.append("\r\n").append(orderNumber).append(row.replace("Ada Lovelace", "Zoë Ångström " + orderNumber));
+        }
+        final Path largePath = Paths.get(testOrdersPath, "Orders_01012001.txt");
+        Files.writeString(largePath, largeFile, StandardCharsets.UTF_8);
+        final LocalDate largeDate = LocalDate.of(2001, 1, 1);
+
+        final OrderFileReaderMappedImpl mappedReader = new OrderFileReaderMappedImpl();
+        final CRC32 mappedChecksum = new CRC32();
+        final CRC32 scannedChecksum = new CRC32();
+        final List<Order> mappedOrders = mappedReader.read(largePath, largeDate, mappedChecksum);
+        final List<Order> scannedOrders = new OrderFileReaderScannerImpl().read(largePath, largeDate, scannedChecksum);
+        assertEquals(rowCount, mappedOrders.size());
+        assertEquals("Zoë Ångström 1", mappedOrders.get(0).getCustomerName(), "Both readers should decode UTF-8!");
+        assertEquals(scannedOrders, mappedOrders, "Mapped reader did not produce the same orders as the scanner reader!");
+        assertEquals(scannedChecksum.getValue(), mappedChecksum.getValue());
+
+        // the reused buffer holds the large file's bytes, a smaller file read next must not see them
+        final List<Order> smallOrders = mappedReader.read(restoredFile, LocalDate.of(2013, 6, 1), new CRC32());
+        assertEquals(1, smallOrders.size());
+        assertEquals("Ada Lovelace", smallOrders.get(0).getCustomerName());
+
+        // nothing is left mapped, so the file can be renamed over at once, as the atomic writer does
+        final Path replacement = Paths.get(testOrdersPath, "Orders_01012001.tmp");
+        Files.copy(restoredFile, replacement);
+        Files.move(replacement, largePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(largePath);
+    }
+
+    @Test
+    public void testJournalModeOnlyAppendsAndIsReplayed() throws IOException, FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDaoFileImpl journalDao = new OrderDaoFileImpl(testOrdersPath, new OrderFileReaderScannerImpl(), true);
+        final LocalDate firstDate = LocalDate.parse("06/01/2013", GenericValidator.STR_DATE_FORMATTER);
+        final LocalDate secondDate = LocalDate.parse("06/02/2013", GenericValidator.STR_DATE_FORMATTER);
+        final Path firstFile = Paths.get(testOrdersPath, "Orders_06012013.txt");
+        final Path secondFile = Paths.get(testOrdersPath, "Orders_06022013.txt");
+        final byte[] firstFileBefore = Files.readAllBytes(firstFile);
+        final byte[] secondFileBefore = Files.readAllBytes(secondFile);
+
+        journalDao.addOrder(testOrder);
+        journalDao.editOrder(journalDao.getOrder(firstDate, 1).setCustomerName("Journaled Name"));
+        journalDao.removeOrder(secondDate, 2);
+
+        // the journaled dao sees its own mutations
+        assertEquals("Journaled Name", journalDao.getOrder(firstDate, 1).getCustomerName());
+        assertThrows(OrderNotFoundException.class, () -> journalDao.getOrder(secondDate, 2));
+        assertEquals(3, journalDao.getNumberOfOrders(), "Journaled mutations were not counted!");
+
+        // but no order file was rewritten
+        assertArrayEquals(firstFileBefore, Files.readAllBytes(firstFile), "Journal mode rewrote an order file!");
+        assertArrayEquals(secondFileBefore, Files.readAllBytes(secondFile), "Journal mode rewrote an order file!");
+        assertFalse(Files.exists(Paths.get(testOrdersPath, "Orders_" + testOrder.getOrderDate().format(java.time.format.DateTimeFormatter.ofPattern("MMddyyyy")) + ".txt")));
+
+        // a restart without journal mode replays and folds in the journal left behind
+        final OrderDao restartedDao = new OrderDaoFileImpl(testOrdersPath);
+        assertEquals(3, restartedDao.getNumberOfOrders());
+        assertEquals("Journaled Name", restartedDao.getOrder(firstDate, 1).getCustomerName());
+        assertThrows(OrderNotFoundException.class, () -> restartedDao.getOrder(secondDate, 2));
+        assertEquals(
+                testOrder.getCustomerName(),
+                restartedDao.getOrder(testOrder.getOrderDate(), testOrder.getOrderNumber()).getCustomerName()
+        );
+        assertFalse(Files.exists(Paths.get(testOrdersPath, "OrderJournal.dat")), "Journal was not cleared after it was folded in!");
+        assertTrue(Files.readString(firstFile).contains("Journaled Name"), "Journal was not folded into the order file!");
+    }
+
+    @Test
+    public void testJournalReplayCutsTornRecord() throws IOException, FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDaoFileImpl journalDao = new OrderDaoFileImpl(testOrdersPath, new OrderFileReaderScannerImpl(), true);
+        journalDao.addOrder(testOrder);
+
+        // a crash mid append leaves a record without its line end
+        Files.writeString(Paths.get(testOrdersPath, "OrderJournal.dat"), "1f2e|P,0601", StandardOpenOption.APPEND);
+
+        final OrderDaoFileImpl restartedDao = new OrderDaoFileImpl(testOrdersPath, new OrderFileReaderScannerImpl(), true);
+        assertEquals(4, restartedDao.getNumberOfOrders(), "Acknowledged record was lost, or torn record was replayed!");
+        restartedDao.close();
+        assertFalse(Files.exists(Paths.get(testOrdersPath, "OrderJournal.dat")), "Closing did not fold in the journal!");
+        assertEquals(4, new OrderDaoFileImpl(testOrdersPath).getNumberOfOrders());
+    }
+
+    @Test
+    public void testAtomicWriterReplacesDayFile() throws IOException, FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDao atomicDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderScannerImpl(),
+                new OrderFileWriterAtomicImpl(),
+                false
+        );
+        final LocalDate existingDate = LocalDate.parse("06/02/2013", GenericValidator.STR_DATE_FORMATTER);
+
+        atomicDao.editOrder(atomicDao.getOrder(existingDate, 3).setCustomerName("Atomic Name"));
+        atomicDao.addOrder(testOrder);
+
+        try(Stream<Path> paths = Files.list(Paths.get(testOrdersPath))) {
+            assertTrue(paths.noneMatch(path -> path.toString().endsWith(".tmp")), "Temp file was left behind!");
+        }
+
+        final OrderDao restartedDao = new OrderDaoFileImpl(testOrdersPath);
+        assertEquals("Atomic Name", restartedDao.getOrder(existingDate, 3).getCustomerName());
+        assertEquals("Doctor Who", restartedDao.getOrder(existingDate, 2).getCustomerName());
+        assertEquals(4, restartedDao.getAllOrders().size());
+    }
+
+    @Test
+    public void testConcurrentAddsAreGroupCommitted() throws InterruptedException, FlooringDataPersistenceException {
+        final int maxBatchSize = 16;
+        final long maxLingerMillis = 20;
+        final OrderDaoFileImpl groupDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderScannerImpl(),
+                new OrderFileWriterAtomicImpl(),
+                false,
+                maxBatchSize,
+                maxLingerMillis,
+                1
+        );
+
+        final int threadCount = 8;
+        final int addsPerThread = 10;
+        final List<Integer> orderNumbers = Collections.synchronizedList(new ArrayList<>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = new ArrayList<>();
+        for(int i = 0; i < threadCount; i++) {
+            threads.add(new Thread(() -> {
+                for(int j = 0; j < addsPerThread; j++) {
+                    try {
+                        orderNumbers.add(groupDao.addOrder(testOrder.cloneOrder()).getOrderNumber());
+                    } catch(Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.isEmpty(), "Concurrent adds failed: " + failures);
+        final int totalAdds = threadCount * addsPerThread;
+        assertEquals(totalAdds, new HashSet<>(orderNumbers).size(), "Order numbers were handed out twice!");
+        assertEquals(3 + totalAdds, new OrderDaoFileImpl(testOrdersPath).getNumberOfOrders(), "Committed orders are missing!");
+
+        final OrderCommitCoordinator<?, ?> coordinator = groupDao.getCommitCoordinator();
+        assertEquals(totalAdds, coordinator.getMutationCount());
+        assertTrue(coordinator.getBatchCount() < totalAdds, "Concurrent adds were never committed together!");
+        assertTrue(coordinator.getLargestBatchSize() > 1 && coordinator.getLargestBatchSize() <= maxBatchSize);
+    }
+
+    @Test
+    public void testBatchWritesEachDateOnce() throws FlooringDataPersistenceException {
+        final Map<Path, Integer> writesPerFile = new HashMap<>();
+        final OrderFileWriter atomicWriter = new OrderFileWriterAtomicImpl();
+        final OrderFileWriter countingWriter = (orderFile, orders) -> {
+            writesPerFile.merge(orderFile, 1, Integer::sum);
+            atomicWriter.write(orderFile, orders);
+        };
+        final OrderDaoFileImpl batchDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderScannerImpl(),
+                countingWriter,
+                false
+        );
+
+        final List<Order> newOrders = new ArrayList<>();
+        for(int i = 0; i < 50; i++) {
+            newOrders.add(testOrder.cloneOrder().setOrderDate(testOrder.getOrderDate().plusDays(i % 2)));
+        }
+        final List<OrderResult> addResults = batchDao.addOrders(newOrders);
+        assertTrue(addResults.stream().allMatch(OrderResult::isSuccessful));
+        assertEquals(2, writesPerFile.size(), "Only the two dates added to should be written!");
+        assertTrue(writesPerFile.values().stream().allMatch(writes -> writes == 1), "A date was written more than once!");
+        assertEquals(53, batchDao.getNumberOfOrders());
+
+        final LocalDate existingDate = LocalDate.parse("06/02/2013", GenericValidator.STR_DATE_FORMATTER);
+        final Order missingOrder = testOrder.cloneOrder().setOrderDate(existingDate).setOrderNumber(999);
+        final Order existingOrder = testOrder.cloneOrder().setOrderDate(existingDate).setOrderNumber(2);
+        final List<OrderResult> editResults = batchDao.editOrders(List.of(missingOrder, existingOrder));
+        assertInstanceOf(OrderNotFoundException.class, editResults.get(0).getFailure(), "Missing order should fail on its own!");
+        assertTrue(editResults.get(1).isSuccessful(), "A bad order failed the rest of the batch!");
+    }
+
+    @Test
+    public void testFailedWriteLeavesTheCallersOrderAlone() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderFileWriter failingWriter = (orderFile, orders) -> {
+            throw new FlooringDataPersistenceException("The disk is full.");
+        };
+        final OrderDaoFileImpl failingDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderScannerImpl(),
+                failingWriter,
+                false
+        );
+
+        final int unnumbered = testOrder.getOrderNumber();
+        assertThrows(FlooringDataPersistenceException.class, () -> failingDao.addOrder(testOrder));
+        assertEquals(unnumbered, testOrder.getOrderNumber(), "An order that was never stored should not get a number!");
+        assertThrows(OrderNotFoundException.class, () -> failingDao.getAllOrders(testOrder.getOrderDate()));
+
+        final Order added = testDao.addOrder(testOrder);
+        assertSame(testOrder, added, "An add should hand back the caller's own order!");
+        added.setCustomerName("Changed After Adding");
+        assertEquals("John Smith", testDao.getOrder(added.getOrderDate(), added.getOrderNumber()).getCustomerName(),
+                "The dao should not hold the caller's order!");
+    }
+
+    @Test
+    public void testParallelReadAllMatchesSequential() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final List<Order> newOrders = new ArrayList<>();
+        for(int i = 0; i < 40; i++) {
+            newOrders.add(testOrder.cloneOrder().setOrderDate(testOrder.getOrderDate().plusDays(i % 20)));
+        }
+        testDao.addOrders(newOrders);
+
+        final OrderDao sequentialDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderScannerImpl(),
+                new OrderFileWriterAtomicImpl(),
+                false,
+                1,
+                0,
+                1
+        );
+        final OrderDao parallelDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderMappedImpl(),
+                new OrderFileWriterAtomicImpl(),
+                false,
+                1,
+                0,
+                4
+        );
+
+        final List<Order> sequentialOrders = sequentialDao.getAllOrders();
+        assertEquals(43, sequentialOrders.size());
+        // same orders in the same order, not just the same set
+        assertEquals(sequentialOrders, parallelDao.getAllOrders(), "Parallel load did not match the sequential load!");
+        // and again, now partly from the cache
+        assertEquals(sequentialOrders, parallelDao.getAllOrders(), "Cached parallel load did not match the sequential load!");
+    }
+
+    @Test
+    public void testStreamAllOrdersReadsDaysLazily() throws FlooringDataPersistenceException, OrderNotFoundException {
+        testDao.addOrder(testOrder);
+
+        final OrderDaoFileImpl streamingDao = new OrderDaoFileImpl(testOrdersPath);
+        final List<Order> expectedOrders = streamingDao.getAllOrders();
+        expectedOrders.sort(Comparator.comparing(Order::getOrderDate).thenComparing(Order::getOrderNumber));
+
+        final OrderDaoFileImpl freshDao = new OrderDaoFileImpl(testOrdersPath);
+        try(Stream<Order> orderStream = freshDao.streamAllOrders()) {
+            assertEquals(expectedOrders, orderStream.collect(Collectors.toList()), "Streamed orders do not match every order!");
+        }
+        assertFalse(
+                freshDao.getPartitionCache().contains(testOrder.getOrderDate()),
+                "Streaming should not fill the cache with every day it reads!"
+        );
+
+        // only the first day is read when that is all the caller needs
+        assertEquals(1, freshDao.streamAllOrders().findFirst().orElseThrow().getOrderNumber());
+    }
+
+    @Test
+    public void testExportAllWalksDaysInOrder() throws FlooringDataPersistenceException, OrderNotFoundException, IOException {
+        testDao.addOrder(testOrder);
+
+        // a fresh dao has no orders in memory, the export has to read them from the day files
+        final OrderDaoFileImpl exportingDao = new OrderDaoFileImpl(testOrdersPath);
+        final Path exportPath = Paths.get(testOrdersPath, "ExportAll.txt");
+        exportingDao.exportAll(exportPath.toString());
+
+        final List<String> lines = Files.readAllLines(exportPath);
+        assertEquals(OrderMarshaller.EXPORT_ALL_HEADER, lines.get(0));
+        assertEquals(exportingDao.getNumberOfOrders(), lines.size() - 1, "Every order should be exported once!");
+
+        LocalDate lastDate = LocalDate.MIN;
+        int lastOrderNumber = 0;
+        for(String line : lines.subList(1, lines.size())) {
+            final String[] fields = line.split(",");
+            final LocalDate orderDate = LocalDate.parse(fields[fields.length - 1], GenericValidator.EXPORT_DATE_FORMATTER);
+            final int orderNumber = Integer.parseInt(fields[0]);
+            assertTrue(
+                    orderDate.isAfter(lastDate) || (orderDate.equals(lastDate) && orderNumber > lastOrderNumber),
+                    "Orders should be exported by date, then order number!"
+            );
+            lastDate = orderDate;
+            lastOrderNumber = orderNumber;
+        }
+    }
+
+    @Test
+    public void testParallelExportMatchesPrintWriterExport() throws FlooringDataPersistenceException, OrderNotFoundException, IOException {
+        testDao.addOrder(testOrder);
+
+        // what a PrintWriter writing one order at a time produces
+        final StringWriter expected = new StringWriter();
+        try(PrintWriter out = new PrintWriter(expected);
+            Stream<Order> orderStream = new OrderDaoFileImpl(testOrdersPath).streamAllOrders()) {
+            out.println(OrderMarshaller.EXPORT_ALL_HEADER);
+            orderStream.forEach(order -> out.println(OrderMarshaller.exportMarshallOrder(order)));
+        }
+
+        final OrderDaoFileImpl exportingDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderMappedImpl(),
+                new OrderFileWriterAtomicImpl(),
+                false,
+                64,
+                0,
+                4
+        );
+        final Path exportPath = Paths.get(testOrdersPath, "ParallelExportAll.txt");
+        exportingDao.exportAll(exportPath.toString());
+
+        assertArrayEquals(
+                expected.toString().getBytes(Charset.defaultCharset()),
+                Files.readAllBytes(exportPath),
+                "Parallel export should be byte for byte the same as writing one order at a time!"
+        );
+    }
+
+    @Test
+    public void testGetOrdersOnlyReadsDatesInRange() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final LocalDate firstDate = LocalDate.of(2013, 6, 1);
+        final LocalDate secondDate = LocalDate.of(2013, 6, 2);
+
+        final OrderDaoFileImpl rangeDao = new OrderDaoFileImpl(testOrdersPath);
+        final List<Order> secondDayOrders = rangeDao.getOrders(secondDate, secondDate.plusMonths(1));
+        assertEquals(
+                List.of(2, 3),
+                secondDayOrders.stream().map(Order::getOrderNumber).collect(Collectors.toList()),
+                "Only the orders on or after the start of the range should be found!"
+        );
+        assertFalse(rangeDao.getPartitionCache().contains(firstDate), "A date outside of the range should not be read!");
+        assertTrue(rangeDao.getPartitionCache().contains(secondDate));
+
+        assertEquals(3, rangeDao.getOrders(firstDate, secondDate).size());
+        assertTrue(rangeDao.getOrders(secondDate, firstDate).isEmpty(), "A backwards range should have no orders!");
+    }
+
+    @Test
+    public void testCustomerIndexFindsOrdersByNamePrefix() throws FlooringDataPersistenceException, OrderNotFoundException {
+        assertEquals(
+                List.of("Albert Einstein"),
+                testDao.getOrdersByCustomerName("  aLbErT ").stream().map(Order::getCustomerName).collect(Collectors.toList()),
+                "Lookups should ignore case and surrounding whitespace!"
+        );
+
+        final Order addedOrder = testDao.addOrder(testOrder.cloneOrder().setCustomerName("Albert Hofmann"));
+        assertEquals(2, testDao.getOrdersByCustomerName("albert").size(), "Added orders should be indexed!");
+
+        testDao.removeOrder(addedOrder.getOrderDate(), addedOrder.getOrderNumber());
+        assertEquals(1, testDao.getOrdersByCustomerName("albert").size(), "Removed orders should leave the index!");
+
+        // a fresh dao loads the persisted index rather than rebuilding it
+        assertTrue(Files.exists(Paths.get(testOrdersPath, "OrderCustomerIndex.dat")));
+        final OrderDaoFileImpl freshDao = new OrderDaoFileImpl(testOrdersPath);
+        assertEquals(1, freshDao.getOrdersByCustomerName("ALBERT E").size());
+        assertTrue(freshDao.getOrdersByCustomerName("Nobody").isEmpty());
+    }
+
+    @Test
+    public void testGetOrderByNumberAlone() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDaoFileImpl freshDao = new OrderDaoFileImpl(testOrdersPath);
+        assertEquals("Albert Einstein", freshDao.getOrder(3).getCustomerName());
+        assertEquals(LocalDate.of(2013, 6, 2), freshDao.getOrder(2).getOrderDate());
+        assertEquals("Ada Lovelace", freshDao.getOrder(1).getCustomerName());
+
+        final Order addedOrder = freshDao.addOrder(testOrder);
+        assertEquals(testOrder.getCustomerName(), freshDao.getOrder(addedOrder.getOrderNumber()).getCustomerName());
+
+        freshDao.removeOrder(LocalDate.of(2013, 6, 2), 2);
+        final OrderNotFoundException notFound = assertThrows(OrderNotFoundException.class, () -> freshDao.getOrder(2));
+        assertNull(notFound.getOrderDate(), "An order looked up by number alone has no date to report!");
+        assertEquals("Albert Einstein", freshDao.getOrder(3).getCustomerName(), "Rows should move with a removal!");
+    }
+
+    @Test
+    public void testSameOrderNumberOnTwoDatesIsKeptApart() throws FlooringDataPersistenceException, OrderNotFoundException, IOException {
+        // a copy of the first day under another date holds order 1 as well
+        final LocalDate copiedDate = LocalDate.of(2013, 6, 3);
+        Files.copy(
+                Paths.get(testOrdersPath, "Orders_06012013.txt"),
+                Paths.get(testOrdersPath, "Orders_06032013.txt")
+        );
+
+        final OrderDaoFileImpl freshDao = new OrderDaoFileImpl(testOrdersPath);
+        final List<Order> allOrders = freshDao.getAllOrders();
+        assertEquals(
+                2,
+                allOrders.stream().filter(order -> order.getOrderNumber() == 1).count(),
+                "Orders on different dates should not overwrite each other!"
+        );
+        assertEquals(copiedDate, freshDao.getOrder(copiedDate, 1).getOrderDate());
+
+        freshDao.removeOrder(copiedDate, 1);
+        assertEquals("Ada Lovelace", freshDao.getOrder(LocalDate.of(2013, 6, 1), 1).getCustomerName());
+    }
+
+    @Test
+    public void testConcurrentMutationsAndReadsStayConsistent() throws InterruptedException, FlooringDataPersistenceException, OrderNotFoundException {
+        final OrderDaoFileImpl sharedDao = new OrderDaoFileImpl(testOrdersPath);
+        final int writerCount = 8;
+        final int operationsPerWriter = 40;
+        // fewer dates than writers, so writers contend on dates as well as run in parallel on others
+        final int dateCount = 3;
+        final LocalDate firstDate = LocalDate.of(2030, 1, 1);
+
+        final Map<Integer, String> expectedNames = Collections.synchronizedMap(new HashMap<>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> writers = new ArrayList<>();
+        for(int i = 0; i < writerCount; i++) {
+            final int writer = i;
+            writers.add(new Thread(() -> {
+                final LocalDate orderDate = firstDate.plusDays(writer % dateCount);
+                final List<Order> liveOrders = new ArrayList<>();
+                for(int j = 0; j < operationsPerWriter; j++) {
+                    try {
+                        if(liveOrders.isEmpty() || j % 3 == 0) {
+                            final Order added = sharedDao.addOrder(testOrder.cloneOrder()
+                                    .setOrderDate(orderDate)
+                                    .setCustomerName("Writer " + writer + " Add " + j));
+                            liveOrders.add(added.cloneOrder());
+                            expectedNames.put(added.getOrderNumber(), added.getCustomerName());
+                        } else if(j % 3 == 1) {
+                            final Order edited = liveOrders.get(j % liveOrders.size()).cloneOrder()
+                                    .setCustomerName("Writer " + writer + " Edit " + j);
+                            sharedDao.editOrder(edited);
+                            liveOrders.set(j % liveOrders.size(), edited);
+                            expectedNames.put(edited.getOrderNumber(), edited.getCustomerName());
+                        } else {
+                            final Order removed = liveOrders.remove(j % liveOrders.size());
+                            sharedDao.removeOrder(orderDate, removed.getOrderNumber());
+                            expectedNames.remove(removed.getOrderNumber());
+                        }
+                    } catch(Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+
+        final Thread reader = new Thread(() -> {
+            while(writers.stream().anyMatch(Thread::isAlive)) {
+                try {
+                    final List<Order> allOrders = sharedDao.getAllOrders();
+                    final long distinctNumbers = allOrders.stream().mapToInt(Order::getOrderNumber).distinct().count();
+                    if(distinctNumbers != allOrders.size()) {
+                        failures.add(new AssertionError("A read saw an order number twice!"));
+                    }
+                    sharedDao.getOrder(1);
+                } catch(Throwable e) {
+                    failures.add(e);
+                }
+            }
+        });
+
+        writers.forEach(Thread::start);
+        reader.start();
+        for(Thread writer : writers) {
+            writer.join();
+        }
+        reader.join();
+
+        assertTrue(failures.isEmpty(), "Concurrent mutations or reads failed: " + failures);
+        assertEquals(3 + expectedNames.size(), sharedDao.getNumberOfOrders());
+
+        final OrderDaoFileImpl freshDao = new OrderDaoFileImpl(testOrdersPath);
+        final Map<Integer, String> storedNames = freshDao.getOrders(firstDate, firstDate.plusDays(dateCount - 1)).stream()
+                .collect(Collectors.toMap(Order::getOrderNumber, Order::getCustomerName));
+        assertEquals(expectedNames, storedNames, "The order files do not hold every committed mutation!");
+        assertEquals(freshDao.getNumberOfOrders(), freshDao.getAllOrders().size());
+    }
+
+    @Test
+    public void testProcessLocksCoordinateDaosSharingADirectory() throws InterruptedException, FlooringDataPersistenceException, OrderNotFoundException {
+        // each dao has its own lock file channel, just as a separate process would
+        final String lockPath = testOrdersPath + "/OrderLocks.dat";
+        final List<OrderDaoFileImpl> processDaos = new ArrayList<>();
+        for(int i = 0; i < 2; i++) {
+            processDaos.add(new OrderDaoFileImpl(
+                    testOrdersPath,
+                    new OrderFileReaderScannerImpl(),
+                    new OrderFileWriterAtomicImpl(),
+                    false,
+                    new OrderFileLocks(lockPath, 5000)
+            ));
+        }
+
+        final int addsPerDao = 20;
+        final List<Integer> orderNumbers = Collections.synchronizedList(new ArrayList<>());
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        final List<Thread> threads = new ArrayList<>();
+        for(OrderDaoFileImpl processDao : processDaos) {
+            threads.add(new Thread(() -> {
+                for(int j = 0; j < addsPerDao; j++) {
+                    try {
+                        orderNumbers.add(processDao.addOrder(testOrder.cloneOrder()).getOrderNumber());
+                    } catch(Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for(Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(failures.isEmpty(), "Adds from sharing daos failed: " + failures);
+        assertEquals(2 * addsPerDao, new HashSet<>(orderNumbers).size(), "Sharing daos handed out the same order number!");
+        assertEquals(2 * addsPerDao, new OrderDaoFileImpl(testOrdersPath).getAllOrders(testOrder.getOrderDate()).size(),
+                "A rewrite of the date lost the other dao's orders!");
+
+        // a date held exclusively elsewhere cannot be read once the timeout passes
+        final LocalDate lockedDate = LocalDate.of(2013, 6, 1);
+        final OrderFileLocks otherProcess = new OrderFileLocks(lockPath, 0);
+        final OrderFileLocks.Held held = otherProcess.lockDate(lockedDate, true);
+        final OrderFileLocks impatientLocks = new OrderFileLocks(lockPath, 50);
+        final OrderDaoFileImpl impatientDao = new OrderDaoFileImpl(
+                testOrdersPath,
+                new OrderFileReaderScannerImpl(),
+                new OrderFileWriterAtomicImpl(),
+                false,
+                impatientLocks
+        );
+        assertThrows(FlooringDataPersistenceException.class, () -> impatientDao.getAllOrders(lockedDate));
+        assertEquals(1, impatientLocks.getTimeoutCount());
+
+        held.release();
+        assertEquals(1, impatientDao.getAllOrders(lockedDate).size());
+        assertTrue(impatientLocks.getAcquireCount() > 0);
+        assertTrue(impatientLocks.getMaxWaitMillis() >= impatientLocks.getAverageWaitMillis());
+        otherProcess.close();
+        impatientLocks.close();
+    }
+
+    @Test
+    public void testSharingDaosSeeEachOthersDatesThroughCompaction() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final String lockPath = testOrdersPath + "/OrderLocks.dat";
+        final OrderFileLocks firstLocks = new OrderFileLocks(lockPath, 5000);
+        final OrderFileLocks secondLocks = new OrderFileLocks(lockPath, 5000);
+        final OrderDaoFileImpl firstDao = new OrderDaoFileImpl(
+                testOrdersPath, new OrderFileReaderScannerImpl(), new OrderFileWriterAtomicImpl(), false, firstLocks);
+        final OrderDaoFileImpl secondDao = new OrderDaoFileImpl(
+                testOrdersPath, new OrderFileReaderScannerImpl(), new OrderFileWriterAtomicImpl(), false, secondLocks);
+
+        // both have the catalog and the customer index loaded before either changes them
+        assertEquals(3, firstDao.getNumberOfOrders());
+        assertEquals(3, secondDao.getNumberOfOrders());
+        assertTrue(firstDao.getOrdersByCustomerName("John Smith").isEmpty());
+        assertTrue(secondDao.getOrdersByCustomerName("John Smith").isEmpty());
+
+        final LocalDate newDate = LocalDate.of(2013, 7, 4);
+        final int orderNumber = firstDao.addOrder(testOrder.cloneOrder().setOrderDate(newDate)).getOrderNumber();
+
+        assertEquals(4, secondDao.getNumberOfOrders(), "The other dao does not see the new date!");
+        assertEquals(1, secondDao.getAllOrders(newDate).size());
+        assertEquals(1, secondDao.getOrdersByCustomerName("John Smith").size());
+
+        // enough edits in the second dao for it to compact both the catalog and the customer index
+        final Order edited = secondDao.getOrder(LocalDate.of(2013, 6, 1), 1);
+        for(int i = 0; i < 80; i++) {
+            secondDao.editOrder(edited.setCustomerName("Edited " + i));
+        }
+
+        assertTrue(secondDao.getAllOrders().stream().anyMatch(order -> order.getOrderNumber() == orderNumber),
+                "Compaction lost the other dao's date!");
+        assertEquals(4, firstDao.getNumberOfOrders());
+        assertEquals(1, firstDao.getOrdersByCustomerName("Edited 79").size());
+        firstLocks.close();
+        secondLocks.close();
+
+        final OrderDaoFileImpl restartedDao = new OrderDaoFileImpl(testOrdersPath);
+        assertEquals(4, restartedDao.getNumberOfOrders(), "The compacted catalog lost the other dao's date!");
+        assertEquals(1, restartedDao.getAllOrders(newDate).size());
+        assertEquals(orderNumber, restartedDao.getOrdersByCustomerName("John Smith").get(0).getOrderNumber(),
+                "The compacted customer index lost the other dao's order!");
+    }
+
+    @Test
+    public void testReadOrdersShareTheirProductsAndStateTaxes() throws FlooringDataPersistenceException, OrderNotFoundException, ProductNotFoundException {
+        final Path orderFile = Paths.get(testOrdersPath, "Orders_06012013.txt");
+        final LocalDate orderDate = LocalDate.of(2013, 6, 1);
+        final Order scanned = new OrderFileReaderScannerImpl().read(orderFile, orderDate, new CRC32()).get(0);
+        final Order mapped = new OrderFileReaderMappedImpl().read(orderFile, orderDate, new CRC32()).get(0);
+
+        assertNotSame(scanned, mapped);
+        assertSame(scanned.getProduct(), mapped.getProduct(), "Orders with the same product should share one instance!");
+        assertSame(scanned.getStateTax(), mapped.getStateTax(), "Orders with the same state tax should share one instance!");
+        assertSame(scanned.getProduct(), new ProductDaoFileImpl("TestData/Products.txt").getProduct("Tile"),
+                "The product dao should hand out the instance the orders share!");
+
+        final Order otherCost = OrderUnmarshaller.unmarshallOrder(
+                "1,Ada Lovelace,CA,25.00,Tile,249.00,3.51,4.15,0,0,0,0",
+                OrderUnmarshaller.createTokenizer(),
+                orderDate
+        );
+        assertNotSame(scanned.getProduct(), otherCost.getProduct(), "A product at another cost should not be shared!");
+        assertNotEquals(scanned.getProduct(), otherCost.getProduct());
+    }
 }
@@ -0,0 +1,217 @@
+package dev.kmfg.flooring.test;
+
+import dev.kmfg.flooring.dao.OrderDaoFileImpl;
+import dev.kmfg.flooring.dao.OrderDaoPagedImpl;
+import dev.kmfg.flooring.dao.OrderFileWriterAtomicImpl;
+import dev.kmfg.flooring.dao.OrderResult;
+import dev.kmfg.flooring.dao.PageFile;
+import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
+import dev.kmfg.flooring.dao.exception.OrderNotFoundException;
+import dev.kmfg.flooring.model.Order;
+import dev.kmfg.flooring.model.Product;
+import dev.kmfg.flooring.model.StateTax;
+import dev.kmfg.flooring.service.validator.GenericValidator;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class OrderDaoPagedImplTest {
+    private static final String testOrdersPath = "TestData/Orders";
+    private static final String testPagedPath = "TestData/Paged";
+    private static final String testDataFile = testPagedPath + "/Orders.dat";
+    // small enough that the tests below evict pages
+    private static final int testBufferPoolPages = 8;
+
+    private OrderDaoPagedImpl testDao;
+    private Order testOrder;
+
+    @BeforeEach
+    public void setUp() {
+        testDao = new OrderDaoPagedImpl(testDataFile, testBufferPoolPages);
+
+        final Product fakeProduct = new Product(
+                "Not Real",
+                GenericValidator.createBigDecimal("2.21"),
+                GenericValidator.createBigDecimal("3.23")
+        );
+        final StateTax fakeStateTax = new StateTax(
+                "CA",
+                "California",
+                GenericValidator.createBigDecimal("25.00")
+        );
+        testOrder = new Order()
+                .setOrderDate(LocalDate.of(2030, 1, 1))
+                .setCustomerName("John Smith")
+                .setArea(GenericValidator.createBigDecimal("100.00"))
+                .setProduct(fakeProduct)
+                .setStateTax(fakeStateTax);
+    }
+
+    /**
+     * Removes the data file and anything exported next to it.
+     *
+     * @throws IOException if the files cannot be removed, later tests would not start from an empty data file.
+     */
+    @AfterEach
+    public void tearDown() throws IOException, FlooringDataPersistenceException {
+        testDao.close();
+        final Path pagedDirectory = Paths.get(testPagedPath);
+        if(!Files.exists(pagedDirectory)) {
+            return;
+        }
+        try(Stream<Path> files = Files.walk(pagedDirectory)) {
+            for(Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static void assertSameOrder(Order expected, Order actual) {
+        assertEquals(expected.getOrderNumber(), actual.getOrderNumber());
+        assertEquals(expected.getOrderDate(), actual.getOrderDate());
+        assertEquals(expected.getCustomerName(), actual.getCustomerName());
+        assertEquals(expected.getStateTax().getStateAbbreviation(), actual.getStateTax().getStateAbbreviation());
+        assertEquals(expected.getStateTax().getTaxRate(), actual.getStateTax().getTaxRate());
+        assertEquals(expected.getProduct().getProductType(), actual.getProduct().getProductType());
+        assertEquals(expected.getArea(), actual.getArea());
+        assertEquals(expected.getTotal(), actual.getTotal());
+    }
+
+    @Test
+    public void testImportAndExportOrderFilesRoundTrip() throws FlooringDataPersistenceException, OrderNotFoundException {
+        assertEquals(3, testDao.importOrderFiles(testOrdersPath));
+        assertEquals(3, testDao.getNumberOfOrders());
+        assertEquals("Doctor Who", testDao.getOrder(2).getCustomerName());
+        final Order added = testDao.addOrder(testOrder.cloneOrder());
+        assertEquals(4, added.getOrderNumber(), "Imported order numbers should not be reused!");
+
+        final String exportedPath = testPagedPath + "/Orders";
+        assertEquals(3, testDao.exportOrderFiles(exportedPath));
+
+        final List<Order> exported = new OrderDaoFileImpl(exportedPath).getAllOrders();
+        final List<Order> expected = new ArrayList<>(new OrderDaoFileImpl(testOrdersPath).getAllOrders());
+        expected.add(added);
+        assertEquals(expected.size(), exported.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertSameOrder(expected.get(i), exported.get(i));
+        }
+    }
+
+    @Test
+    public void testTreeSplitsEvictsAndReusesFreedPages() throws FlooringDataPersistenceException, OrderNotFoundException {
+        final int orderCount = 2000;
+        final int dateCount = 50;
+        final List<Order> toAdd = new ArrayList<>();
+        for(int i = 0; i < orderCount; i++) {
+            toAdd.add(testOrder.cloneOrder()
+                    .setOrderDate(testOrder.getOrderDate().plusDays(i % dateCount))
+                    .setCustomerName("Customer " + i));
+        }
+        assertTrue(testDao.addOrders(toAdd).stream().allMatch(result -> result.getFailure() == null));
+
+        final PageFile pageFile = testDao.getPageFile();
+        assertTrue(pageFile.getPageCount() > testBufferPoolPages, "The orders should span many pages!");
+        assertTrue(pageFile.getBufferPool().getEvictionCount() > 0, "A full buffer pool should evict pages!");
+
+        // a fresh dao reads everything back from the file
+        testDao.close();
+        testDao = new OrderDaoPagedImpl(testDataFile, testBufferPoolPages);
+        assertEquals(orderCount, testDao.getNumberOfOrders());
+        final List<Order> allOrders = testDao.getAllOrders();
+        assertEquals(orderCount, allOrders.size());
+        for(int i = 1; i < allOrders.size(); i++) {
+            final Order previous = allOrders.get(i - 1);
+            final Order current = allOrders.get(i);
+            assertTrue(previous.getOrderDate().isBefore(current.getOrderDate())
+                    || previous.getOrderNumber() < current.getOrderNumber(), "Orders should come by date, then number!");
+        }
+        assertEquals(orderCount / dateCount, testDao.getAllOrders(testOrder.getOrderDate()).size());
+        assertEquals(2 * orderCount / dateCount, testDao.getOrders(testOrder.getOrderDate(), testOrder.getOrderDate().plusDays(1)).size());
+        assertEquals("Customer 1234", testDao.getOrder(1235).getCustomerName());
+
+        // removing the orders frees their pages, and adding them back reuses those pages
+        assertTrue(testDao.removeOrders(allOrders).stream().allMatch(result -> result.getFailure() == null));
+        assertEquals(0, testDao.getNumberOfOrders());
+        assertThrows(OrderNotFoundException.class, () -> testDao.getOrder(1235));
+        final int pageCount = testDao.getPageFile().getPageCount();
+        assertTrue(testDao.getPageFile().getFreePageCount() > 0, "Emptied pages should be freed!");
+
+        testDao.addOrders(toAdd);
+        assertEquals(pageCount, testDao.getPageFile().getPageCount(), "Freed pages should be used before the file grows!");
+        assertEquals(orderCount, testDao.getAllOrders().size());
+    }
+
+    @Test
+    public void testAFailedChangeLeavesTheTreeIntact() throws FlooringDataPersistenceException, OrderNotFoundException, IOException {
+        assertEquals(3, testDao.importOrderFiles(testOrdersPath));
+        final List<Order> before = testDao.getAllOrders();
+        final int pageCount = testDao.getPageFile().getPageCount();
+
+        // the first date splits the tree many times over in a pool of 8 pages,
+        //  then the second date reuses one of its numbers, which fails the whole import
+        final String importPath = testPagedPath + "/Import";
+        Files.createDirectories(Paths.get(importPath));
+        final List<Order> firstDay = new ArrayList<>();
+        for(int i = 0; i < 2000; i++) {
+            firstDay.add(testOrder.cloneOrder().setOrderNumber(100 + i).setCustomerName("Customer " + i));
+        }
+        final OrderFileWriterAtomicImpl orderFileWriter = new OrderFileWriterAtomicImpl();
+        orderFileWriter.write(Paths.get(importPath, "Orders_01012030.txt"), firstDay);
+        orderFileWriter.write(Paths.get(importPath, "Orders_01022030.txt"),
+                List.of(testOrder.cloneOrder().setOrderDate(LocalDate.of(2030, 1, 2)).setOrderNumber(100)));
+
+        final long evictions = testDao.getPageFile().getBufferPool().getEvictionCount();
+        assertThrows(FlooringDataPersistenceException.class, () -> testDao.importOrderFiles(importPath));
+        assertTrue(testDao.getPageFile().getBufferPool().getEvictionCount() > evictions,
+                "The import should have needed more pages than the pool holds!");
+        assertEquals(0, testDao.getPageFile().getBufferPool().getDirtyPageCount());
+        assertEquals(pageCount, testDao.getPageFile().getPageCount());
+
+        // both this dao and a fresh one read the tree as it was before the import
+        testDao.close();
+        for(int reopen = 0; reopen < 2; reopen++) {
+            testDao = new OrderDaoPagedImpl(testDataFile, testBufferPoolPages);
+            assertEquals(3, testDao.getNumberOfOrders());
+            final List<Order> after = testDao.getAllOrders();
+            assertEquals(before.size(), after.size());
+            for(int i = 0; i < before.size(); i++) {
+                assertSameOrder(before.get(i), after.get(i));
+            }
+            assertThrows(OrderNotFoundException.class, () -> testDao.getOrder(100));
+            testDao.close();
+        }
+        testDao = new OrderDaoPagedImpl(testDataFile, testBufferPoolPages);
+        assertEquals(2000, testDao.addOrders(firstDay).size());
+        assertEquals(2003, testDao.getAllOrders().size());
+    }
+
+    @Test
+    public void testAFailedAddLeavesTheCallersOrderAlone() throws FlooringDataPersistenceException, OrderNotFoundException {
+        // too long a name to store, so the add fails after its number was handed out
+        final Order unstorable = testOrder.cloneOrder().setCustomerName("x".repeat(70000));
+        assertThrows(FlooringDataPersistenceException.class, () -> testDao.addOrder(unstorable));
+        assertEquals(-1, unstorable.getOrderNumber(), "A failed add should not number the caller's order!");
+
+        final Order storable = testOrder.cloneOrder();
+        final List<OrderResult> results = testDao.addOrders(List.of(unstorable, storable));
+        assertFalse(results.get(0).isSuccessful());
+        assertEquals(-1, unstorable.getOrderNumber(), "A failed add should not number the caller's order!");
+        assertSame(storable, results.get(1).getOrder());
+        assertEquals("John Smith", testDao.getOrder(storable.getOrderNumber()).getCustomerName());
+
+        final Order another = testOrder.cloneOrder();
+        assertSame(another, testDao.addOrder(another), "An add should hand back the caller's own order!");
+        assertEquals(storable.getOrderNumber() + 1, another.getOrderNumber());
+    }
+}
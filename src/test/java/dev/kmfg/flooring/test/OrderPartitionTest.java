@@ -0,0 +1,46 @@
+package dev.kmfg.flooring.test;
+
+import dev.kmfg.flooring.dao.OrderNumberIndex;
+import dev.kmfg.flooring.dao.OrderPartition;
+import dev.kmfg.flooring.model.Order;
+import org.junit.jupiter.api.*;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderPartitionTest {
+    @Test
+    public void testMatchesAHashMapThroughGrowthAndRemoval() {
+        final OrderPartition partition = new OrderPartition();
+        final OrderNumberIndex index = new OrderNumberIndex();
+        final Map<Integer, Order> expected = new HashMap<>();
+        final LocalDate orderDate = LocalDate.of(2013, 6, 1);
+        final Random random = new Random(42);
+
+        for(int i = 0; i < 20_000; i++) {
+            // a small key range, so removals keep cutting into runs of probed keys
+            final int orderNumber = 1 + random.nextInt(2_000);
+            if(random.nextInt(3) == 0) {
+                assertSame(expected.remove(orderNumber), partition.remove(orderNumber));
+                index.remove(orderNumber);
+            } else {
+                final Order order = new Order().setOrderNumber(orderNumber);
+                assertSame(expected.put(orderNumber, order), partition.put(order));
+                index.put(orderNumber, orderDate, i);
+            }
+        }
+
+        assertEquals(expected.size(), partition.size());
+        assertEquals(expected.size(), index.size());
+        for(int orderNumber = 1; orderNumber <= 2_000; orderNumber++) {
+            assertSame(expected.get(orderNumber), partition.get(orderNumber));
+            assertEquals(expected.containsKey(orderNumber), partition.containsKey(orderNumber));
+            assertEquals(expected.containsKey(orderNumber) ? orderDate : null, index.getOrderDate(orderNumber));
+        }
+        assertEquals(expected.size(), partition.values().size());
+    }
+}
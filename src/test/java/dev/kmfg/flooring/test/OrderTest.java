@@ -0,0 +1,86 @@
+package dev.kmfg.flooring.test;
+
+import dev.kmfg.flooring.model.Money;
+import dev.kmfg.flooring.model.Order;
+import dev.kmfg.flooring.model.Product;
+import dev.kmfg.flooring.model.Rate;
+import dev.kmfg.flooring.model.StateTax;
+import dev.kmfg.flooring.service.validator.GenericValidator;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderTest {
+    private static Order order(String area, String costPerSqft, String laborCostPerSqft, String taxRate) {
+        return new Order()
+                .setArea(GenericValidator.createBigDecimal(area))
+                .setProduct(new Product(
+                        "Not Real",
+                        GenericValidator.createBigDecimal(costPerSqft),
+                        GenericValidator.createBigDecimal(laborCostPerSqft)
+                ))
+                .setStateTax(new StateTax("NR", "Not Real", GenericValidator.createBigDecimal(taxRate)));
+    }
+
+    @Test
+    public void testTaxUsesEveryDigitOfTheRate() {
+        // 243.00 sqft of Wood at 9.25%, material 1251.45 and labor 1154.25
+        final Order order = order("243.00", "5.15", "4.75", "9.25");
+        assertEquals(Money.ofCents(125145), order.getMaterialCost());
+        assertEquals(Money.ofCents(115425), order.getLaborCost());
+        // 2405.70 * 0.0925 = 222.52725, not 2405.70 * 0.09
+        assertEquals(Money.ofCents(22253), order.getTax());
+        assertEquals(Money.ofCents(262823), order.getTotal());
+        assertEquals("2628.23", order.getTotal().toString());
+
+        final Order fractionalRate = order("100.00", "1.00", "0.00", "4.45");
+        assertEquals(445, fractionalRate.getTaxCents(), "A 4.45% rate should not be applied as 4%!");
+    }
+
+    @Test
+    public void testRoundsHalfUpToTheCent() {
+        // 100.01 sqft * 0.05 = 5.0005, 100.10 sqft * 0.05 = 5.005
+        assertEquals(500, order("100.01", "0.05", "0.00", "0.00").getMaterialCostCents());
+        assertEquals(501, order("100.10", "0.05", "0.00", "0.00").getMaterialCostCents());
+        // 1.50 * 0.01% = 0.00015, 50.00 * 0.01% = 0.005
+        assertEquals(0, order("1.50", "1.00", "0.00", "0.01").getTaxCents());
+        assertEquals(1, order("50.00", "1.00", "0.00", "0.01").getTaxCents());
+
+        final Order order = order("249.00", "3.50", "4.15", "25.00");
+        assertEquals(order.getMaterialCostCents() + order.getLaborCostCents() + order.getTaxCents(), order.getTotalCents(),
+                "The total should be the sum of its rounded parts!");
+        assertEquals(Money.ofCents(238106), order.getTotal());
+    }
+
+    @Test
+    public void testChangingThePricedFieldsReprices() {
+        final Order order = order("100.00", "1.00", "1.00", "10.00");
+        assertEquals(Money.ofCents(22000), order.getTotal());
+
+        order.setArea(GenericValidator.createBigDecimal("200.00"));
+        assertEquals(Money.ofCents(44000), order.getTotal(), "Changing the area should reprice the order!");
+
+        order.setProduct(new Product("Not Real", GenericValidator.createBigDecimal("2.00"), GenericValidator.createBigDecimal("1.00")));
+        assertEquals(Money.ofCents(40000), order.getMaterialCost(), "Changing the product should reprice the order!");
+        assertEquals(Money.ofCents(66000), order.getTotal());
+
+        order.setStateTax(new StateTax("NR", "Not Real", GenericValidator.createBigDecimal("5.00")));
+        assertEquals(Money.ofCents(3000), order.getTax(), "Changing the state tax should reprice the order!");
+        assertEquals(Money.ofCents(63000), order.getTotal());
+
+        assertEquals(order.getTotal(), order.cloneOrder().getTotal());
+    }
+
+    @Test
+    public void testCostsArePricedWithoutATaxRate() {
+        final Order order = order("100.00", "1.00", "2.00", "10.00")
+                .setStateTax(new StateTax("NR", "Not Real", (Rate) null));
+        assertEquals(Money.ofCents(10000), order.getMaterialCost(), "A missing tax rate should not stop the costs being priced!");
+        assertEquals(Money.ofCents(20000), order.getLaborCost());
+        assertThrows(NullPointerException.class, order::getTax);
+
+        order.setStateTax(null);
+        assertEquals(Money.ofCents(10000), order.getMaterialCost());
+        assertThrows(NullPointerException.class, order::getTotal);
+    }
+}
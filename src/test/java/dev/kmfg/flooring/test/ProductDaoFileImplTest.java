@@ -4,17 +4,23 @@ import dev.kmfg.flooring.dao.ProductDao;
 import dev.kmfg.flooring.dao.ProductDaoFileImpl;
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.ProductNotFoundException;
+import dev.kmfg.flooring.model.Money;
 import dev.kmfg.flooring.model.Product;
 import dev.kmfg.flooring.service.validator.GenericValidator;
 import org.junit.jupiter.api.*;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class ProductDaoFileImplTest {
     private static final String testProductsFile = "TestData/Products.txt";
+    private static final String testWatchedPath = "TestData/WatchedProducts";
+    private static final long RELOAD_TIMEOUT_MILLIS = 10_000;
 
     private ProductDao testDao;
 
@@ -78,11 +84,52 @@ public class ProductDaoFileImplTest {
             fail("The known product was received, but is null");
         }
 
-        final BigDecimal knownCostPerSqft = GenericValidator.createBigDecimal("3.50");
-        final BigDecimal knownLaborCostPerSqft = GenericValidator.createBigDecimal("4.15");
+        final Money knownCostPerSqft = Money.of(GenericValidator.createBigDecimal("3.50"));
+        final Money knownLaborCostPerSqft = Money.of(GenericValidator.createBigDecimal("4.15"));
 
         assertTrue(knownProductType.equalsIgnoreCase(product.getProductType()), "The product type does not match the expected name!");
         assertEquals(knownCostPerSqft, product.getCostPerSqft(), "The cost per sqft does not match the expected value!");
         assertEquals(knownLaborCostPerSqft, product.getLaborCostPerSqft(), "The labor cost per sqft does not match the expected value!");
     }
+
+    private static Money waitForTileCost(ProductDao dao, Money expected) throws Throwable {
+        final long deadline = System.currentTimeMillis() + RELOAD_TIMEOUT_MILLIS;
+        Money cost = dao.getProduct("Tile").getCostPerSqft();
+        while(!expected.equals(cost) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            cost = dao.getProduct("Tile").getCostPerSqft();
+        }
+        return cost;
+    }
+
+    @Test
+    public void testChangesToTheFileAreReloaded() throws Throwable {
+        final Path watchedFile = Paths.get(testWatchedPath, "Products.txt");
+        Files.createDirectories(watchedFile.getParent());
+        Files.copy(Paths.get(testProductsFile), watchedFile);
+        final ProductDaoFileImpl watchedDao = new ProductDaoFileImpl(watchedFile.toString());
+        try {
+            assertEquals(Money.ofCents(350), watchedDao.getProduct("Tile").getCostPerSqft());
+
+            final String products = new String(Files.readAllBytes(watchedFile), StandardCharsets.UTF_8);
+            Files.write(watchedFile, products.replace("Tile,3.50,4.15", "Tile,3.75,4.15").getBytes(StandardCharsets.UTF_8));
+            assertEquals(Money.ofCents(375), waitForTileCost(watchedDao, Money.ofCents(375)),
+                    "A change to the products file should be picked up!");
+
+            Files.write(watchedFile, "ProductType,CostPerSquareFoot\r\nTile,1.00\r\n".getBytes(StandardCharsets.UTF_8));
+            Thread.sleep(500);
+            assertEquals(Money.ofCents(375), watchedDao.getProduct("Tile").getCostPerSqft(),
+                    "A malformed products file should keep the last good products!");
+
+            // a file truncated to its header parses, but has no products
+            Files.write(watchedFile, "ProductType,CostPerSquareFoot,LaborCostPerSquareFoot\r\n".getBytes(StandardCharsets.UTF_8));
+            Thread.sleep(500);
+            assertEquals(Money.ofCents(375), watchedDao.getProduct("Tile").getCostPerSqft(),
+                    "An empty products file should keep the last good products!");
+        } finally {
+            watchedDao.close();
+            Files.deleteIfExists(watchedFile);
+            Files.deleteIfExists(watchedFile.getParent());
+        }
+    }
 }
@@ -4,17 +4,23 @@ import dev.kmfg.flooring.dao.StateTaxDao;
 import dev.kmfg.flooring.dao.StateTaxDaoFileImpl;
 import dev.kmfg.flooring.dao.exception.FlooringDataPersistenceException;
 import dev.kmfg.flooring.dao.exception.StateTaxNotFoundException;
+import dev.kmfg.flooring.model.Rate;
 import dev.kmfg.flooring.model.StateTax;
 import dev.kmfg.flooring.service.validator.GenericValidator;
 import org.junit.jupiter.api.*;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class StateTaxDaoFileImplTest {
     private static final String testStateTaxesFile = "TestData/Taxes.txt";
+    private static final String testWatchedPath = "TestData/WatchedTaxes";
+    private static final long RELOAD_TIMEOUT_MILLIS = 10_000;
 
     private StateTaxDao testDao;
 
@@ -79,10 +85,34 @@ public class StateTaxDaoFileImplTest {
         }
 
         final String knownStateName = "Kentucky";
-        final BigDecimal knownTaxRate = GenericValidator.createBigDecimal("6.00");
+        final Rate knownTaxRate = Rate.of(GenericValidator.createBigDecimal("6.00"));
 
         assertTrue(knownStateName.equalsIgnoreCase(stateTax.getStateName()), "The state name does not match the expected name!");
         assertTrue(knownStateAbbreviation.equalsIgnoreCase(stateTax.getStateAbbreviation()), "The state abbreviation does not match the expected abbreviation!");
         assertEquals(knownTaxRate, stateTax.getTaxRate(), "The tax rate does not match the expected value!");
     }
+
+    @Test
+    public void testChangesToTheFileAreReloaded() throws Exception {
+        final Path watchedFile = Paths.get(testWatchedPath, "Taxes.txt");
+        Files.createDirectories(watchedFile.getParent());
+        Files.copy(Paths.get(testStateTaxesFile), watchedFile);
+        final StateTaxDaoFileImpl watchedDao = new StateTaxDaoFileImpl(watchedFile.toString());
+        try {
+            assertThrowsExactly(StateTaxNotFoundException.class, () -> watchedDao.getStateTax("NR"));
+
+            final String stateTaxes = new String(Files.readAllBytes(watchedFile), StandardCharsets.UTF_8);
+            Files.write(watchedFile, (stateTaxes + "\r\nNR,Not Real,4.45").getBytes(StandardCharsets.UTF_8));
+            final long deadline = System.currentTimeMillis() + RELOAD_TIMEOUT_MILLIS;
+            while(watchedDao.getAllStateTaxes().size() < 5 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(Rate.ofHundredthsOfPercent(445), watchedDao.getStateTax("NR").getTaxRate(),
+                    "A state added to the taxes file should be picked up!");
+        } finally {
+            watchedDao.close();
+            Files.deleteIfExists(watchedFile);
+            Files.deleteIfExists(watchedFile.getParent());
+        }
+    }
 }